@@ -0,0 +1,136 @@
+package com.example.hotel.grpc;
+
+import com.example.hotel.grpc.db.ReservationDao;
+import com.example.hotel.grpc.db.ReservationDao.NewReservation;
+import com.example.hotel.grpc.db.UnknownChambreException;
+import io.grpc.Context;
+import io.grpc.stub.StreamObserver;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Receives one {@code BulkCreateReservations} client stream and stores it in
+ * batches through {@link ReservationDao#createBatch}, which costs four
+ * statements per batch whatever its size. When a batch fails it is replayed
+ * one item at a time so that only the offending items are reported as failed;
+ * items naming a chambre that does not exist are reported without a replay.
+ */
+class BulkReservationWriter implements StreamObserver<CreateReservationRequest> {
+
+    private final ReservationDao dao;
+    private final int batchSize;
+    private final StreamObserver<BulkCreateReservationsResponse> responseObserver;
+
+    private final List<NewReservation> pending = new ArrayList<>();
+    private final List<Integer> pendingIndexes = new ArrayList<>();
+    private final List<BulkCreateResult> results = new ArrayList<>();
+    private int received;
+    private int created;
+
+    BulkReservationWriter(ReservationDao dao, int batchSize,
+            StreamObserver<BulkCreateReservationsResponse> responseObserver) {
+        this.dao = dao;
+        this.batchSize = Math.max(1, batchSize);
+        this.responseObserver = responseObserver;
+    }
+
+    @Override
+    public void onNext(CreateReservationRequest request) {
+        int index = received++;
+        try {
+            pending.add(NewReservation.of(request));
+            pendingIndexes.add(index);
+        } catch (IllegalArgumentException e) {
+            failed(index, "Invalid date: " + e.getMessage());
+            return;
+        }
+        if (pending.size() >= batchSize) {
+            flush();
+        }
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        // The client aborted: batches already committed stay, the rest is dropped
+        pending.clear();
+        pendingIndexes.clear();
+    }
+
+    @Override
+    public void onCompleted() {
+        flush();
+        results.sort(Comparator.comparingInt(BulkCreateResult::getIndex));
+        responseObserver.onNext(BulkCreateReservationsResponse.newBuilder()
+                .setCreated(created)
+                .setFailed(results.size() - created)
+                .addAllResults(results)
+                .build());
+        responseObserver.onCompleted();
+    }
+
+    private void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        try {
+            List<Reservation> stored = dao.createBatch(pending);
+            for (int i = 0; i < stored.size(); i++) {
+                stored(pendingIndexes.get(i), stored.get(i));
+            }
+        } catch (UnknownChambreException e) {
+            // Nothing was written: drop the items naming those chambres and store the rest as one batch
+            removeUnknownChambres(e.getChambreIds());
+            flush();
+            return;
+        } catch (SQLException e) {
+            // A batch stopped by the call's deadline or cancellation is not replayed
+            if (!Context.current().isCancelled()) {
+                insertOneByOne();
+            }
+        }
+        pending.clear();
+        pendingIndexes.clear();
+    }
+
+    private void removeUnknownChambres(Set<Long> chambreIds) {
+        for (int i = pending.size() - 1; i >= 0; i--) {
+            long chambreId = pending.get(i).getChambre().getId();
+            if (chambreIds.contains(chambreId)) {
+                failed(pendingIndexes.get(i), "Chambre " + chambreId + " not found");
+                pending.remove(i);
+                pendingIndexes.remove(i);
+            }
+        }
+    }
+
+    private void insertOneByOne() {
+        for (int i = 0; i < pending.size(); i++) {
+            try {
+                stored(pendingIndexes.get(i), dao.create(pending.get(i)));
+            } catch (SQLException e) {
+                failed(pendingIndexes.get(i), e.getMessage());
+            }
+        }
+    }
+
+    private void stored(int index, Reservation reservation) {
+        created++;
+        results.add(BulkCreateResult.newBuilder()
+                .setIndex(index)
+                .setReservationId(reservation.getId())
+                .setClientId(reservation.getClient().getId())
+                .setChambreId(reservation.getChambre().getId())
+                .build());
+    }
+
+    private void failed(int index, String error) {
+        results.add(BulkCreateResult.newBuilder()
+                .setIndex(index)
+                .setError(error == null ? "unknown error" : error)
+                .build());
+    }
+}
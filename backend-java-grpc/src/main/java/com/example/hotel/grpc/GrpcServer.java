@@ -1,18 +1,151 @@
 package com.example.hotel.grpc;
 
+import com.example.hotel.grpc.cache.EncodedResponseCache;
+import com.example.hotel.grpc.config.Settings;
+import com.example.hotel.grpc.db.ConnectionPool;
+import com.example.hotel.grpc.db.ReservationDao;
+import com.example.hotel.grpc.metrics.CacheCollector;
+import com.example.hotel.grpc.metrics.ConnectionPoolCollector;
+import com.example.hotel.grpc.metrics.ExecutorCollector;
+import com.example.hotel.grpc.metrics.LimiterCollector;
+import com.example.hotel.grpc.metrics.MetricsInterceptor;
+import com.example.hotel.grpc.metrics.PreparedStatementCollector;
+import com.example.hotel.grpc.server.AdaptiveLimit;
+import com.example.hotel.grpc.server.CompressionInterceptor;
+import com.example.hotel.grpc.server.ConcurrencyLimitInterceptor;
+import com.example.hotel.grpc.server.ServerExecutors;
+import com.example.hotel.grpc.server.ServerWarmUp;
+import com.example.hotel.grpc.v2.ReservationGrpcServiceV2;
+import com.example.hotel.grpc.watch.ChangeFeed;
+import com.example.hotel.grpc.web.WebGateway;
 import io.grpc.Server;
 import io.grpc.ServerBuilder;
+import io.grpc.ServerInterceptor;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.health.v1.HealthCheckResponse.ServingStatus;
+import io.grpc.protobuf.services.HealthStatusManager;
+import io.prometheus.client.exporter.HTTPServer;
 import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 public class GrpcServer {
-    public static void main(String[] args) throws IOException, InterruptedException {
-        int port = 9095;
-        Server server = ServerBuilder.forPort(port)
-                .addService(new ReservationGrpcService())
+    public static void main(String[] args) throws IOException, InterruptedException, SQLException {
+        int port = Settings.getInt("hotel.grpc.port", 9095);
+        int metricsPort = Settings.getInt("hotel.metrics.port", 9464);
+
+        ConnectionPool pool = ConnectionPool.fromSettings();
+        pool.warmUp();
+        new ConnectionPoolCollector(pool).register();
+        new PreparedStatementCollector(pool).register();
+        System.out.println("Connection pool ready with " + pool.getSize() + " connections");
+
+        EncodedResponseCache cache = EncodedResponseCache.fromSettings();
+        if (cache != null) {
+            new CacheCollector(cache).register();
+        }
+
+        ServerExecutors executors = ServerExecutors.fromSettings();
+        new ExecutorCollector(executors).register();
+
+        ServerBuilder<?> builder = ServerBuilder.forPort(port);
+        executors.apply(builder);
+        CompressionInterceptor.registerCodecs(builder);
+        builder.intercept(CompressionInterceptor.fromSettings());
+        // Outermost first, shared with the gRPC-Web gateway
+        List<ServerInterceptor> callInterceptors = new ArrayList<>();
+        callInterceptors.add(new MetricsInterceptor());
+        if (Settings.getBoolean("hotel.grpc.limit.enabled", true)) {
+            AdaptiveLimit limit = AdaptiveLimit.fromSettings();
+            new LimiterCollector(limit).register();
+            // Inside the metrics interceptor, so shed calls still show up in the call metrics
+            callInterceptors.add(new ConcurrencyLimitInterceptor(limit));
+        }
+        // Interceptors run in reverse order of registration
+        for (int i = callInterceptors.size() - 1; i >= 0; i--) {
+            builder.intercept(callInterceptors.get(i));
+        }
+        ChangeFeed changeFeed = ChangeFeed.start(pool);
+        if (changeFeed != null && cache != null) {
+            // Drops responses cached before another service changed the reservation; a created one
+            // cannot be cached yet, and invalidating it would only drop unrelated loads on its stripe
+            changeFeed.addListener(entry -> {
+                if (entry.getEvent().getType() != ReservationEvent.Type.CREATED) {
+                    cache.invalidate(entry.getEvent().getReservationId());
+                }
+            });
+        }
+        ReservationDao dao = ReservationDao.fromSettings(pool.getDataSource());
+        ReservationGrpcService v1 = new ReservationGrpcService(dao, executors.blockingExecutor(),
+                executors.offloadExecutor(), cache, changeFeed);
+        ServerServiceDefinition v2 = new ReservationGrpcServiceV2(dao, pool.getDataSource(), cache).bindService();
+        List<ServerServiceDefinition> services = List.of(v1.serviceDefinition(), v2);
+        HealthStatusManager health = new HealthStatusManager();
+        health.setStatus(HealthStatusManager.SERVICE_NAME_ALL_SERVICES, ServingStatus.NOT_SERVING);
+
+        services.forEach(builder::addService);
+        Server server = builder
+                .addService(health.getHealthService())
                 .build()
                 .start();
 
-        System.out.println("Server started, listening on " + port);
+        WebGateway gateway = WebGateway.fromSettings(services, callInterceptors, executors);
+
+        HTTPServer metrics = new HTTPServer.Builder().withPort(metricsPort).withDaemonThreads(true).build();
+        System.out.println("Metrics available on http://localhost:" + metrics.getPort() + "/metrics");
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            // Fail health checks first so load balancers stop routing here, then
+            // refuse new calls and give the in-flight ones until the deadline
+            health.enterTerminalState();
+            try {
+                Thread.sleep(Settings.getLong("hotel.grpc.shutdown.delay-ms", 0));
+                long drainDeadline = System.nanoTime()
+                        + TimeUnit.MILLISECONDS.toNanos(Settings.getLong("hotel.grpc.shutdown.drain-ms", 20_000));
+                server.shutdown();
+                if (gateway != null) {
+                    gateway.shutdown();
+                }
+                if (changeFeed != null) {
+                    // Watch streams never finish on their own; end them so the drain can
+                    changeFeed.close();
+                }
+                boolean drained = server.awaitTermination(drainDeadline - System.nanoTime(), TimeUnit.NANOSECONDS)
+                        && (gateway == null
+                        || gateway.awaitTermination(drainDeadline - System.nanoTime(), TimeUnit.NANOSECONDS));
+                if (!drained) {
+                    System.err.println("Drain deadline reached, cancelling remaining calls");
+                    server.shutdownNow();
+                    server.awaitTermination(5, TimeUnit.SECONDS);
+                }
+            } catch (InterruptedException e) {
+                server.shutdownNow();
+                Thread.currentThread().interrupt();
+            } finally {
+                if (gateway != null) {
+                    gateway.close();
+                }
+                executors.close();
+                pool.close();
+                metrics.close();
+                System.out.println("Server stopped");
+            }
+        }, "grpc-shutdown"));
+
+        System.out.println("Server started, listening on " + port + " (executor mode " + executors.getMode() + ")");
+        ServerWarmUp.fromSettings(List.of(v1.uncachedServiceDefinition(), v2), pool.getSize()).run();
+        health.setStatus(HealthStatusManager.SERVICE_NAME_ALL_SERVICES, ServingStatus.SERVING);
+        for (ServerServiceDefinition service : services) {
+            health.setStatus(service.getServiceDescriptor().getName(), ServingStatus.SERVING);
+        }
+        System.out.println("Reporting SERVING");
+        if (gateway != null) {
+            // Browsers get no health checks, so only open the port once warm
+            gateway.start();
+            System.out.println("gRPC-Web and JSON gateway listening on " + gateway.getPort());
+        }
         server.awaitTermination();
     }
 }
@@ -0,0 +1,59 @@
+package com.example.hotel.grpc;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Clients and rooms a normalized stream has already sent, so each goes over
+ * the wire once and reservations can refer to it by id.
+ * <p>
+ * Both tables are bounded and forget the least recently referenced id first:
+ * a long watch stream does not grow without limit, and a client or room that
+ * comes back after being forgotten is simply sent again. One instance per
+ * stream, used under the stream's own lock.
+ */
+public final class ReferenceTable {
+
+    private final Map<Long, Boolean> clients;
+    private final Map<Long, Boolean> chambres;
+
+    public ReferenceTable(int maxEntries) {
+        this.clients = lru(maxEntries);
+        this.chambres = lru(maxEntries);
+    }
+
+    /**
+     * Returns {@code reservation} with its client and room reduced to their ids,
+     * after passing the full ones to the consumers if this stream has not sent
+     * them yet.
+     */
+    public Reservation normalize(Reservation reservation, Consumer<Client> newClient,
+            Consumer<Chambre> newChambre) {
+        Reservation.Builder normalized = reservation.toBuilder();
+        long clientId = reservation.getClient().getId();
+        if (clientId > 0) {
+            if (clients.put(clientId, Boolean.TRUE) == null) {
+                newClient.accept(reservation.getClient());
+            }
+            normalized.setClient(Client.newBuilder().setId(clientId));
+        }
+        long chambreId = reservation.getChambre().getId();
+        if (chambreId > 0) {
+            if (chambres.put(chambreId, Boolean.TRUE) == null) {
+                newChambre.accept(reservation.getChambre());
+            }
+            normalized.setChambre(Chambre.newBuilder().setId(chambreId));
+        }
+        return normalized.build();
+    }
+
+    private static Map<Long, Boolean> lru(int maxEntries) {
+        return new LinkedHashMap<>(Math.min(maxEntries, 1 << 12), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+}
@@ -1,138 +1,248 @@
 package com.example.hotel.grpc;
 
+import com.example.hotel.grpc.cache.EncodedResponseCache;
+import com.example.hotel.grpc.cache.PreEncoded;
+import com.example.hotel.grpc.config.Settings;
+import com.example.hotel.grpc.db.ReservationDao;
+import com.example.hotel.grpc.db.ReservationDao.NewReservation;
+import com.example.hotel.grpc.db.ReservationDao.UpdateFields;
+import com.example.hotel.grpc.db.SqlStatus;
+import com.example.hotel.grpc.watch.ChangeFeed;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.ServerCalls;
 import io.grpc.stub.StreamObserver;
-import java.sql.*;
-import java.time.LocalDate;
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class ReservationGrpcService extends ReservationServiceGrpc.ReservationServiceImplBase {
 
-    private static final String DB_URL = "jdbc:postgresql://localhost:5432/hotel_db";
-    private static final String USER = "postgres";
-    private static final String PASS = "password";
+    static final MethodDescriptor<GetReservationRequest, byte[]> GET_RESERVATION_ENCODED =
+            PreEncoded.encodedResponses(ReservationServiceGrpc.getGetReservationMethod());
+
+    private final ReservationDao dao;
+    private final Executor blockingExecutor;
+    private final Executor offloadExecutor;
+    private final EncodedResponseCache cache;
+    private final int listFetchSize;
+    private final int bulkBatchSize;
+    private final ScheduledExecutorService lookupTimer;
+    private final long lookupWindowMicros;
+    private final int lookupBatchSize;
+    private final int referenceEntries;
+    private final ChangeFeed changeFeed;
+
+    public ReservationGrpcService(DataSource dataSource) {
+        this(new ReservationDao(dataSource), Runnable::run, Executors.newCachedThreadPool(), null, null);
+    }
+
+    /**
+     * @param blockingExecutor runs the JDBC part of calls that may start on the
+     *                         transport event loop (see {@code ExecutorMode.HYBRID})
+     * @param offloadExecutor  runs the JDBC part of work that starts on a timer
+     *                         rather than on a call's thread; it must propagate
+     *                         the caller's context
+     * @param cache            encoded GetReservation responses by id, or {@code null}
+     *                         to always read from the database
+     * @param changeFeed       source of WatchReservations events, or {@code null}
+     *                         to answer them with UNAVAILABLE
+     */
+    public ReservationGrpcService(ReservationDao dao, Executor blockingExecutor, Executor offloadExecutor,
+            EncodedResponseCache cache, ChangeFeed changeFeed) {
+        this.dao = dao;
+        this.blockingExecutor = blockingExecutor;
+        this.offloadExecutor = offloadExecutor;
+        this.cache = cache;
+        this.changeFeed = changeFeed;
+        this.listFetchSize = Settings.getInt("hotel.grpc.list.fetch-size", 256);
+        this.bulkBatchSize = Settings.getInt("hotel.grpc.bulk.batch-size", 500);
+        this.referenceEntries = Settings.getInt("hotel.grpc.normalize.max-entries", 10_000);
+        this.lookupWindowMicros = Settings.getLong("hotel.grpc.lookup.window-us", 1_000);
+        this.lookupBatchSize = Settings.getInt("hotel.grpc.lookup.batch-size", 64);
+        // Only fires the window flushes, which hand the batch queries to the offload executor
+        AtomicInteger counter = new AtomicInteger();
+        this.lookupTimer = Executors.newScheduledThreadPool(Settings.getInt("hotel.grpc.lookup.threads", 1), r -> {
+            Thread t = new Thread(r, "lookup-flush-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
 
     @Override
     public void createReservation(CreateReservationRequest request,
             StreamObserver<ReservationResponse> responseObserver) {
-        try (Connection conn = DriverManager.getConnection(DB_URL, USER, PASS)) {
-            // Simple implementation: Insert Client, Chambre, Reservation
-            // Note: In real world, we'd handle transactions and existing entities
-
-            // 1. Insert Client
-            String insertClient = "INSERT INTO client (nom, prenom, email, telephone) VALUES (?, ?, ?, ?) RETURNING id";
-            PreparedStatement psClient = conn.prepareStatement(insertClient);
-            psClient.setString(1, request.getClient().getNom());
-            psClient.setString(2, request.getClient().getPrenom());
-            psClient.setString(3, request.getClient().getEmail());
-            psClient.setString(4, request.getClient().getTelephone());
-            ResultSet rsClient = psClient.executeQuery();
-            rsClient.next();
-            long clientId = rsClient.getLong(1);
-
-            // 2. Insert Chambre
-            String insertChambre = "INSERT INTO chambre (type, prix, disponible) VALUES (?, ?, ?) RETURNING id";
-            PreparedStatement psChambre = conn.prepareStatement(insertChambre);
-            psChambre.setString(1, request.getChambre().getType());
-            psChambre.setDouble(2, request.getChambre().getPrix());
-            psChambre.setBoolean(3, request.getChambre().getDisponible());
-            ResultSet rsChambre = psChambre.executeQuery();
-            rsChambre.next();
-            long chambreId = rsChambre.getLong(1);
-
-            // 3. Insert Reservation
-            String insertRes = "INSERT INTO reservation (client_id, chambre_id, date_debut, date_fin, preferences) VALUES (?, ?, ?, ?, ?) RETURNING id";
-            PreparedStatement psRes = conn.prepareStatement(insertRes);
-            psRes.setLong(1, clientId);
-            psRes.setLong(2, chambreId);
-            psRes.setDate(3, Date.valueOf(request.getDateDebut()));
-            psRes.setDate(4, Date.valueOf(request.getDateFin()));
-            psRes.setString(5, request.getPreferences());
-            ResultSet rsRes = psRes.executeQuery();
-            rsRes.next();
-            long resId = rsRes.getLong(1);
-
-            // Construct Response
-            Reservation reservation = Reservation.newBuilder()
-                    .setId(resId)
-                    .setClient(request.getClient().toBuilder().setId(clientId).build())
-                    .setChambre(request.getChambre().toBuilder().setId(chambreId).build())
-                    .setDateDebut(request.getDateDebut())
-                    .setDateFin(request.getDateFin())
-                    .setPreferences(request.getPreferences())
-                    .build();
-
+        try {
+            Reservation reservation = dao.create(NewReservation.of(request));
             responseObserver.onNext(ReservationResponse.newBuilder().setReservation(reservation).build());
             responseObserver.onCompleted();
+        } catch (IllegalArgumentException e) {
+            responseObserver.onError(Status.INVALID_ARGUMENT
+                    .withDescription("Invalid date: " + e.getMessage()).asRuntimeException());
+        } catch (SQLException e) {
+            responseObserver.onError(SqlStatus.toStatus(e));
+        }
+    }
+
+    /**
+     * Service definition to register with the server. Unlike {@link #bindService()}
+     * it binds GetReservation with {@link #GET_RESERVATION_ENCODED}: responses leave
+     * the server as cached protobuf bytes, so a hit costs neither SQL nor
+     * serialization.
+     */
+    public ServerServiceDefinition serviceDefinition() {
+        return PreEncoded.replaceMethod(super.bindService(), GET_RESERVATION_ENCODED,
+                ServerCalls.asyncUnaryCall(this::getEncodedReservation));
+    }
+
+    /**
+     * Like {@link #serviceDefinition()}, but GetReservation neither reads nor
+     * fills the cache, for {@code ServerWarmUp}: calls answered from the cache
+     * would leave the lookup statement unprepared on most connections.
+     */
+    public ServerServiceDefinition uncachedServiceDefinition() {
+        return PreEncoded.replaceMethod(super.bindService(), GET_RESERVATION_ENCODED,
+                ServerCalls.asyncUnaryCall((request, responseObserver) ->
+                        offloadLoad(request, responseObserver, null)));
+    }
 
+    void getEncodedReservation(GetReservationRequest request, StreamObserver<byte[]> responseObserver) {
+        if (cache != null) {
+            byte[] cached = cache.get(request.getId());
+            if (cached != null) {
+                responseObserver.onNext(cached);
+                responseObserver.onCompleted();
+                return;
+            }
+        }
+        offloadLoad(request, responseObserver, cache);
+    }
+
+    private void offloadLoad(GetReservationRequest request, StreamObserver<byte[]> responseObserver,
+            EncodedResponseCache fill) {
+        try {
+            blockingExecutor.execute(() -> loadReservation(request, responseObserver, fill));
+        } catch (RejectedExecutionException e) {
+            responseObserver.onError(Status.RESOURCE_EXHAUSTED
+                    .withDescription("Server is overloaded").asRuntimeException());
+        }
+    }
+
+    private void loadReservation(GetReservationRequest request, StreamObserver<byte[]> responseObserver,
+            EncodedResponseCache fill) {
+        long token = fill == null ? 0 : fill.loadToken(request.getId());
+        try {
+            Reservation reservation = dao.findById(request.getId());
+            if (reservation != null) {
+                byte[] encoded = ReservationResponse.newBuilder().setReservation(reservation).build().toByteArray();
+                if (fill != null) {
+                    fill.putIfUnchanged(request.getId(), encoded, token);
+                }
+                responseObserver.onNext(encoded);
+                responseObserver.onCompleted();
+            } else {
+                responseObserver.onError(Status.NOT_FOUND
+                        .withDescription("Reservation not found").asRuntimeException());
+            }
         } catch (SQLException e) {
-            responseObserver.onError(e);
+            responseObserver.onError(SqlStatus.toStatus(e));
         }
     }
 
     @Override
-    public void getReservation(GetReservationRequest request, StreamObserver<ReservationResponse> responseObserver) {
-        try (Connection conn = DriverManager.getConnection(DB_URL, USER, PASS)) {
-            String sql = "SELECT r.id, r.date_debut, r.date_fin, r.preferences, " +
-                    "c.id as c_id, c.nom, c.prenom, c.email, c.telephone, " +
-                    "ch.id as ch_id, ch.type, ch.prix, ch.disponible " +
-                    "FROM reservation r " +
-                    "JOIN client c ON r.client_id = c.id " +
-                    "JOIN chambre ch ON r.chambre_id = ch.id " +
-                    "WHERE r.id = ?";
-
-            PreparedStatement ps = conn.prepareStatement(sql);
-            ps.setLong(1, request.getId());
-            ResultSet rs = ps.executeQuery();
-
-            if (rs.next()) {
-                Client client = Client.newBuilder()
-                        .setId(rs.getLong("c_id"))
-                        .setNom(rs.getString("nom"))
-                        .setPrenom(rs.getString("prenom"))
-                        .setEmail(rs.getString("email"))
-                        .setTelephone(rs.getString("telephone"))
-                        .build();
-
-                Chambre chambre = Chambre.newBuilder()
-                        .setId(rs.getLong("ch_id"))
-                        .setType(rs.getString("type"))
-                        .setPrix(rs.getDouble("prix"))
-                        .setDisponible(rs.getBoolean("disponible"))
-                        .build();
-
-                Reservation reservation = Reservation.newBuilder()
-                        .setId(rs.getLong("id"))
-                        .setClient(client)
-                        .setChambre(chambre)
-                        .setDateDebut(rs.getDate("date_debut").toString())
-                        .setDateFin(rs.getDate("date_fin").toString())
-                        .setPreferences(rs.getString("preferences"))
-                        .build();
+    public void updateReservation(UpdateReservationRequest request,
+            StreamObserver<ReservationResponse> responseObserver) {
+        UpdateFields fields;
+        try {
+            fields = UpdateFields.of(request.getUpdateMask());
+        } catch (IllegalArgumentException e) {
+            responseObserver.onError(Status.INVALID_ARGUMENT.withDescription(e.getMessage()).asRuntimeException());
+            return;
+        }
 
+        try {
+            Reservation reservation = dao.update(request, fields);
+            if (reservation != null) {
+                invalidate(request.getId());
                 responseObserver.onNext(ReservationResponse.newBuilder().setReservation(reservation).build());
                 responseObserver.onCompleted();
             } else {
-                responseObserver.onError(new RuntimeException("Reservation not found"));
+                responseObserver.onError(Status.NOT_FOUND
+                        .withDescription("Reservation not found").asRuntimeException());
             }
-
+        } catch (IllegalArgumentException e) {
+            responseObserver.onError(Status.INVALID_ARGUMENT
+                    .withDescription("Invalid date: " + e.getMessage()).asRuntimeException());
         } catch (SQLException e) {
-            responseObserver.onError(e);
+            responseObserver.onError(SqlStatus.toStatus(e));
         }
     }
 
-    // Implement Update and Delete similarly...
     @Override
     public void deleteReservation(DeleteReservationRequest request,
             StreamObserver<DeleteReservationResponse> responseObserver) {
-        try (Connection conn = DriverManager.getConnection(DB_URL, USER, PASS)) {
-            String sql = "DELETE FROM reservation WHERE id = ?";
-            PreparedStatement ps = conn.prepareStatement(sql);
-            ps.setLong(1, request.getId());
-            int rows = ps.executeUpdate();
+        try {
+            boolean deleted = dao.delete(request.getId());
+            invalidate(request.getId());
 
-            responseObserver.onNext(DeleteReservationResponse.newBuilder().setSuccess(rows > 0).build());
+            responseObserver.onNext(DeleteReservationResponse.newBuilder().setSuccess(deleted).build());
             responseObserver.onCompleted();
         } catch (SQLException e) {
-            responseObserver.onError(e);
+            responseObserver.onError(SqlStatus.toStatus(e));
+        }
+    }
+
+    @Override
+    public void listReservations(ListReservationsRequest request,
+            StreamObserver<ListReservationsResponse> responseObserver) {
+        ServerCallStreamObserver<ListReservationsResponse> observer =
+                (ServerCallStreamObserver<ListReservationsResponse>) responseObserver;
+        try {
+            ReferenceTable references = request.getNormalized() ? new ReferenceTable(referenceEntries) : null;
+            new ReservationListStream(dao, request, listFetchSize, references, observer).start();
+        } catch (IllegalArgumentException e) {
+            observer.onError(Status.INVALID_ARGUMENT.withDescription(e.getMessage()).asRuntimeException());
+        }
+    }
+
+    @Override
+    public StreamObserver<CreateReservationRequest> bulkCreateReservations(
+            StreamObserver<BulkCreateReservationsResponse> responseObserver) {
+        return new BulkReservationWriter(dao, bulkBatchSize, responseObserver);
+    }
+
+    @Override
+    public StreamObserver<LookupReservationRequest> lookupReservations(
+            StreamObserver<LookupReservationResponse> responseObserver) {
+        return new ReservationLookupStream(dao, lookupTimer, offloadExecutor, lookupWindowMicros, lookupBatchSize,
+                (ServerCallStreamObserver<LookupReservationResponse>) responseObserver);
+    }
+
+    @Override
+    public void watchReservations(WatchReservationsRequest request,
+            StreamObserver<ReservationEvent> responseObserver) {
+        if (changeFeed == null) {
+            responseObserver.onError(Status.UNAVAILABLE
+                    .withDescription("WatchReservations is disabled on this server").asRuntimeException());
+            return;
+        }
+        try {
+            changeFeed.subscribe(request, (ServerCallStreamObserver<ReservationEvent>) responseObserver);
+        } catch (IllegalArgumentException e) {
+            responseObserver.onError(Status.INVALID_ARGUMENT
+                    .withDescription("Invalid date: " + e.getMessage()).asRuntimeException());
+        }
+    }
+
+    private void invalidate(long id) {
+        if (cache != null) {
+            cache.invalidate(id);
         }
     }
 }
@@ -0,0 +1,99 @@
+package com.example.hotel.grpc;
+
+import com.example.hotel.grpc.db.ReservationCursor;
+import com.example.hotel.grpc.db.ReservationDao;
+import com.example.hotel.grpc.db.SqlStatus;
+import io.grpc.stub.ServerCallStreamObserver;
+
+import java.sql.SQLException;
+
+/**
+ * Streams one {@code ListReservations} call straight from a server-side cursor.
+ * <p>
+ * The query runs with autocommit off and a bounded fetch size, so the driver
+ * only holds one batch of rows at a time. Rows are read from the cursor only
+ * while the transport reports {@link ServerCallStreamObserver#isReady()}; when
+ * the client falls behind the loop returns and resumes from the on-ready
+ * handler, so a slow consumer stalls the cursor instead of filling the heap.
+ * <p>
+ * A normalized stream sends each client and room ahead of the first
+ * reservation that refers to it; those extra messages are not counted against
+ * {@code isReady()}, which bounds the overshoot to two small messages.
+ */
+class ReservationListStream implements Runnable {
+
+    private final ReservationDao dao;
+    private final ListReservationsRequest request;
+    private final int fetchSize;
+    private final ServerCallStreamObserver<ListReservationsResponse> observer;
+    private final ReferenceTable references;
+
+    private ReservationCursor cursor;
+    private boolean done;
+
+    /**
+     * @param references clients and rooms already sent, or {@code null} for a
+     *                   stream that is not normalized
+     */
+    ReservationListStream(ReservationDao dao, ListReservationsRequest request, int fetchSize,
+            ReferenceTable references, ServerCallStreamObserver<ListReservationsResponse> observer) {
+        this.dao = dao;
+        this.request = request;
+        this.fetchSize = fetchSize;
+        this.references = references;
+        this.observer = observer;
+    }
+
+    void start() {
+        observer.setOnCancelHandler(this::cancel);
+        observer.setOnReadyHandler(this);
+        run();
+    }
+
+    @Override
+    public synchronized void run() {
+        if (done) {
+            return;
+        }
+        try {
+            if (cursor == null) {
+                cursor = dao.list(request, fetchSize);
+            }
+            while (observer.isReady()) {
+                Reservation reservation = cursor.next();
+                if (reservation == null) {
+                    finish();
+                    observer.onCompleted();
+                    return;
+                }
+                if (references != null) {
+                    reservation = references.normalize(reservation,
+                            client -> observer.onNext(ListReservationsResponse.newBuilder().setClient(client).build()),
+                            chambre -> observer.onNext(ListReservationsResponse.newBuilder().setChambre(chambre).build()));
+                }
+                observer.onNext(ListReservationsResponse.newBuilder().setReservation(reservation).build());
+            }
+        } catch (SQLException e) {
+            finish();
+            observer.onError(SqlStatus.toStatus(e));
+        }
+    }
+
+    private synchronized void cancel() {
+        finish();
+    }
+
+    private void finish() {
+        if (done) {
+            return;
+        }
+        done = true;
+        if (cursor != null) {
+            try {
+                cursor.close();
+            } catch (SQLException e) {
+                System.err.println("Failed to release ListReservations cursor: " + e.getMessage());
+            }
+        }
+    }
+}
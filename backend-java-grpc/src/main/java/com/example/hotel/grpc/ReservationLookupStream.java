@@ -0,0 +1,216 @@
+package com.example.hotel.grpc;
+
+import com.example.hotel.grpc.db.ReservationDao;
+import com.example.hotel.grpc.db.SqlStatus;
+import io.grpc.Context;
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves one {@code LookupReservations} stream by coalescing ids into batch
+ * reads.
+ * <p>
+ * The first id of a batch arms a timer of {@code windowMicros}; ids arriving
+ * before it fires join the batch, which is read with one
+ * {@code WHERE r.id = ANY(?)} query when the timer fires or as soon as it
+ * holds {@code batchSize} ids. Either way the read runs on {@code executor},
+ * in the call's context so it keeps its deadline: the timer threads only hand
+ * batches over.
+ * <p>
+ * Requests are read with flow control: the stream asks the client for two
+ * batches' worth of ids, and asks for more only as their answers are sent
+ * and the response stream is ready, so a client that outpaces the database
+ * or does not read its answers is paused instead of buffered. The stream
+ * completes once the client half-closes and every batch has been answered.
+ */
+class ReservationLookupStream implements StreamObserver<LookupReservationRequest> {
+
+    private final ReservationDao dao;
+    private final ScheduledExecutorService timer;
+    private final Executor executor;
+    private final long windowMicros;
+    private final int batchSize;
+    private final ServerCallStreamObserver<LookupReservationResponse> responseObserver;
+    private final Runnable flushWindow;
+
+    private List<LookupReservationRequest> pending = new ArrayList<>();
+    private ScheduledFuture<?> scheduled;
+    private int batchesInFlight;
+    /** Ids answered but not yet requested again, waiting for the response stream to be ready. */
+    private int owedRequests;
+    private boolean halfClosed;
+    private boolean done;
+
+    ReservationLookupStream(ReservationDao dao, ScheduledExecutorService timer, Executor executor, long windowMicros,
+            int batchSize, ServerCallStreamObserver<LookupReservationResponse> responseObserver) {
+        this.dao = dao;
+        this.timer = timer;
+        this.executor = executor;
+        this.windowMicros = windowMicros;
+        this.batchSize = Math.max(1, batchSize);
+        this.responseObserver = responseObserver;
+        // Timer flushes keep the call's deadline and cancellation
+        this.flushWindow = Context.current().wrap(this::flushWindow);
+
+        responseObserver.disableAutoRequest();
+        responseObserver.setOnReadyHandler(this::requestOwed);
+        responseObserver.request(2 * this.batchSize);
+    }
+
+    @Override
+    public void onNext(LookupReservationRequest request) {
+        List<LookupReservationRequest> batch = null;
+        synchronized (this) {
+            if (done) {
+                return;
+            }
+            pending.add(request);
+            if (pending.size() >= batchSize) {
+                batch = takePending();
+            } else if (scheduled == null) {
+                scheduled = timer.schedule(flushWindow, windowMicros, TimeUnit.MICROSECONDS);
+            }
+        }
+        if (batch != null) {
+            submit(batch);
+        }
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        // The client went away: drop whatever has not been read yet
+        synchronized (this) {
+            done = true;
+            pending.clear();
+            cancelTimer();
+        }
+    }
+
+    @Override
+    public void onCompleted() {
+        List<LookupReservationRequest> batch = null;
+        synchronized (this) {
+            halfClosed = true;
+            if (!pending.isEmpty()) {
+                batch = takePending();
+            }
+        }
+        if (batch != null) {
+            submit(batch);
+        } else {
+            completeIfIdle();
+        }
+    }
+
+    private void flushWindow() {
+        List<LookupReservationRequest> batch = null;
+        synchronized (this) {
+            scheduled = null;
+            if (!done && !pending.isEmpty()) {
+                batch = takePending();
+            }
+        }
+        if (batch != null) {
+            submit(batch);
+        }
+    }
+
+    private List<LookupReservationRequest> takePending() {
+        List<LookupReservationRequest> batch = pending;
+        pending = new ArrayList<>();
+        batchesInFlight++;
+        cancelTimer();
+        return batch;
+    }
+
+    private void cancelTimer() {
+        if (scheduled != null) {
+            scheduled.cancel(false);
+            scheduled = null;
+        }
+    }
+
+    private void submit(List<LookupReservationRequest> batch) {
+        try {
+            executor.execute(() -> lookup(batch));
+        } catch (RejectedExecutionException e) {
+            fail(Status.RESOURCE_EXHAUSTED.withDescription("Server is overloaded").asRuntimeException());
+        }
+    }
+
+    private void lookup(List<LookupReservationRequest> batch) {
+        Set<Long> ids = new LinkedHashSet<>();
+        for (LookupReservationRequest request : batch) {
+            ids.add(request.getId());
+        }
+        Map<Long, Reservation> found;
+        try {
+            found = dao.findByIds(ids);
+        } catch (SQLException e) {
+            fail(SqlStatus.toStatus(e));
+            return;
+        }
+        synchronized (this) {
+            batchesInFlight--;
+            if (done) {
+                return;
+            }
+            for (LookupReservationRequest request : batch) {
+                Reservation reservation = found.get(request.getId());
+                LookupReservationResponse.Builder response = LookupReservationResponse.newBuilder()
+                        .setCorrelationId(request.getCorrelationId())
+                        .setFound(reservation != null);
+                if (reservation != null) {
+                    response.setReservation(reservation);
+                }
+                responseObserver.onNext(response.build());
+            }
+            owedRequests += batch.size();
+            if (responseObserver.isReady()) {
+                requestOwed();
+            }
+        }
+        completeIfIdle();
+    }
+
+    /** Asks the client for as many ids as have been answered since the stream was last ready. */
+    private synchronized void requestOwed() {
+        if (done || halfClosed || owedRequests == 0) {
+            return;
+        }
+        responseObserver.request(owedRequests);
+        owedRequests = 0;
+    }
+
+    private synchronized void fail(Throwable error) {
+        batchesInFlight--;
+        if (done) {
+            return;
+        }
+        done = true;
+        pending.clear();
+        cancelTimer();
+        responseObserver.onError(error);
+    }
+
+    private synchronized void completeIfIdle() {
+        if (done || !halfClosed || batchesInFlight > 0 || !pending.isEmpty()) {
+            return;
+        }
+        done = true;
+        responseObserver.onCompleted();
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.hotel.grpc.bench;
+
+import com.example.hotel.grpc.BulkCreateReservationsResponse;
+import com.example.hotel.grpc.BulkCreateResult;
+import com.example.hotel.grpc.Chambre;
+import com.example.hotel.grpc.Client;
+import com.example.hotel.grpc.ListReservationsResponse;
+import com.example.hotel.grpc.Reservation;
+import com.example.hotel.grpc.server.DeflateCodec;
+import io.grpc.Codec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Bytes on the wire and CPU per message for the encodings the server offers,
+ * on the payloads that actually travel: one ListReservations (or
+ * GetReservation) reply, a BulkCreateReservations summary of 500 results, and
+ * a page of 100 reservations in one buffer, which shows how much of the
+ * repetition is only visible across messages.
+ * <p>
+ * CPU is one compress plus one decompress through the same codec streams gRPC
+ * uses. Usage: {@code CompressionBenchmark [iterations]}.
+ */
+public class CompressionBenchmark {
+
+    private static final String[] TYPES = { "SIMPLE", "DOUBLE", "SUITE" };
+    private static final String[] NAMES = { "Martin", "Bernard", "Dubois", "Thomas", "Robert", "Richard" };
+    private static final String[] PREFERENCES = {
+            "Non-smoking, late check-in", "High floor, quiet room", "Extra bed for a child", "" };
+
+    private static long sink;
+
+    public static void main(String[] args) throws IOException {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        List<Codec> codecs = List.of(Codec.Identity.NONE, new Codec.Gzip(), new DeflateCodec());
+
+        byte[] single = ListReservationsResponse.newBuilder().setReservation(reservation(0)).build().toByteArray();
+        byte[] bulk = bulkSummary(500);
+        byte[] page = page(100);
+
+        for (Object[] payload : new Object[][] {
+                { "1 reservation", single }, { "bulk summary x500", bulk }, { "page of 100", page } }) {
+            String label = (String) payload[0];
+            byte[] message = (byte[]) payload[1];
+            int rounds = Math.max(1, iterations * 150 / message.length);
+            for (Codec codec : codecs) {
+                byte[] compressed = compress(codec, message);
+                // Warm up, then measure
+                time(codec, message, rounds);
+                long nanos = time(codec, message, rounds);
+                System.out.printf("%-20s %-8s %7d B -> %7d B (%5.1f%%)  %8.1f us/msg%n",
+                        label, codec.getMessageEncoding(), message.length, compressed.length,
+                        100.0 * compressed.length / message.length, nanos / 1e3 / rounds);
+            }
+        }
+        if (sink == 42) {
+            System.out.println();
+        }
+    }
+
+    private static long time(Codec codec, byte[] message, int rounds) throws IOException {
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            sink += decompress(codec, compress(codec, message)).length;
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static byte[] compress(Codec codec, byte[] message) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(message.length + 32);
+        try (OutputStream os = codec.compress(out)) {
+            os.write(message);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] decompress(Codec codec, byte[] compressed) throws IOException {
+        try (InputStream is = codec.decompress(new ByteArrayInputStream(compressed))) {
+            return is.readAllBytes();
+        }
+    }
+
+    private static Reservation reservation(int i) {
+        String nom = NAMES[i % NAMES.length];
+        return Reservation.newBuilder()
+                .setId(100_000 + i)
+                .setClient(Client.newBuilder()
+                        .setId(20_000 + i).setNom(nom).setPrenom("Camille")
+                        .setEmail("camille." + nom.toLowerCase() + i + "@example.com").setTelephone("+3361234" + (5678 + i)))
+                .setChambre(Chambre.newBuilder()
+                        .setId(100 + i % 40).setType(TYPES[i % TYPES.length]).setPrix(79.90 + 25 * (i % 3))
+                        .setDisponible(true))
+                .setDateDebut("2025-07-" + (10 + i % 18))
+                .setDateFin("2025-08-0" + (1 + i % 9))
+                .setPreferences(PREFERENCES[i % PREFERENCES.length])
+                .build();
+    }
+
+    private static byte[] bulkSummary(int count) {
+        BulkCreateReservationsResponse.Builder response = BulkCreateReservationsResponse.newBuilder()
+                .setCreated(count);
+        for (int i = 0; i < count; i++) {
+            response.addResults(BulkCreateResult.newBuilder()
+                    .setIndex(i).setReservationId(100_000 + i).setClientId(20_000 + i).setChambreId(30_000 + i));
+        }
+        return response.build().toByteArray();
+    }
+
+    private static byte[] page(int count) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 0; i < count; i++) {
+            ListReservationsResponse.newBuilder().setReservation(reservation(i)).build().writeDelimitedTo(out);
+        }
+        return out.toByteArray();
+    }
+}
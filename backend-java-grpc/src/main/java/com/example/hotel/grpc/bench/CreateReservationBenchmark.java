@@ -0,0 +1,143 @@
+package com.example.hotel.grpc.bench;
+
+import com.example.hotel.grpc.db.ConnectionPool;
+import com.example.hotel.grpc.db.ReservationDao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the single-statement create path against the former three
+ * auto-committed inserts, directly over the pool.
+ * <p>
+ * Usage: {@code CreateReservationBenchmark [operations] [threads]} with the
+ * usual {@code hotel.db.*} settings. Rows written by the benchmark are deleted
+ * once it finishes.
+ */
+public class CreateReservationBenchmark {
+
+    private static final String MARKER = "create-benchmark";
+
+    private static final String INSERT_CLIENT = "INSERT INTO client (nom, prenom, email, telephone) VALUES (?, ?, ?, ?) RETURNING id";
+    // Same parameter conversions as ReservationDao.CREATE: epoch days and minor units
+    private static final String INSERT_CHAMBRE = "INSERT INTO chambre (type, prix, disponible) " +
+            "VALUES (?, CAST(? AS bigint) / 100.0, ?) RETURNING id";
+    private static final String INSERT_RESERVATION = "INSERT INTO reservation (client_id, chambre_id, date_debut, " +
+            "date_fin, preferences) VALUES (?, ?, DATE '1970-01-01' + CAST(? AS integer), " +
+            "DATE '1970-01-01' + CAST(? AS integer), ?) RETURNING id";
+
+    private static final String CLEANUP =
+            "WITH r AS (DELETE FROM reservation WHERE preferences = ? RETURNING client_id, chambre_id), " +
+            "dc AS (DELETE FROM client WHERE id IN (SELECT client_id FROM r)) " +
+            "DELETE FROM chambre WHERE id IN (SELECT chambre_id FROM r)";
+
+    interface Operation {
+        void run(Connection conn) throws SQLException;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int operations = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+
+        try (ConnectionPool pool = ConnectionPool.fromSettings()) {
+            pool.warmUp();
+
+            // Warm the JIT and the server-side plans for both paths before measuring
+            run(pool, Math.min(operations, 1_000), threads, CreateReservationBenchmark::threeStatements);
+            run(pool, Math.min(operations, 1_000), threads, CreateReservationBenchmark::singleStatement);
+
+            run(pool, operations, threads, CreateReservationBenchmark::threeStatements)
+                    .print("three statements");
+            run(pool, operations, threads, CreateReservationBenchmark::singleStatement)
+                    .print("single CTE statement");
+
+            try (Connection conn = pool.getConnection();
+                    PreparedStatement ps = conn.prepareStatement(CLEANUP)) {
+                ps.setString(1, MARKER);
+                ps.executeUpdate();
+            }
+        }
+    }
+
+    private static LatencyStats run(ConnectionPool pool, int operations, int threads, Operation operation)
+            throws InterruptedException {
+        LatencyStats stats = new LatencyStats(operations);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        stats.start();
+        for (int i = 0; i < operations; i++) {
+            executor.execute(() -> {
+                long begin = System.nanoTime();
+                try (Connection conn = pool.getConnection()) {
+                    operation.run(conn);
+                } catch (SQLException e) {
+                    throw new IllegalStateException(e);
+                }
+                stats.record(System.nanoTime() - begin);
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.HOURS);
+        stats.stop();
+        return stats;
+    }
+
+    private static void threeStatements(Connection conn) throws SQLException {
+        long clientId;
+        try (PreparedStatement ps = conn.prepareStatement(INSERT_CLIENT)) {
+            bindClient(ps, 1);
+            clientId = single(ps);
+        }
+        long chambreId;
+        try (PreparedStatement ps = conn.prepareStatement(INSERT_CHAMBRE)) {
+            bindChambre(ps, 1);
+            chambreId = single(ps);
+        }
+        try (PreparedStatement ps = conn.prepareStatement(INSERT_RESERVATION)) {
+            ps.setLong(1, clientId);
+            ps.setLong(2, chambreId);
+            bindReservation(ps, 3);
+            single(ps);
+        }
+    }
+
+    private static void singleStatement(Connection conn) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(ReservationDao.CREATE.getSql())) {
+            bindClient(ps, 1);
+            bindChambre(ps, 5);
+            bindReservation(ps, 8);
+            single(ps);
+        }
+    }
+
+    private static void bindClient(PreparedStatement ps, int first) throws SQLException {
+        ps.setString(first, "Bench");
+        ps.setString(first + 1, "Mark");
+        ps.setString(first + 2, "bench@example.com");
+        ps.setString(first + 3, "0600000000");
+    }
+
+    private static void bindChambre(PreparedStatement ps, int first) throws SQLException {
+        ps.setString(first, "DOUBLE");
+        ps.setLong(first + 1, 12_000);
+        ps.setBoolean(first + 2, true);
+    }
+
+    private static void bindReservation(PreparedStatement ps, int first) throws SQLException {
+        ps.setInt(first, (int) LocalDate.of(2025, 7, 1).toEpochDay());
+        ps.setInt(first + 1, (int) LocalDate.of(2025, 7, 5).toEpochDay());
+        ps.setString(first + 2, MARKER);
+    }
+
+    private static long single(PreparedStatement ps) throws SQLException {
+        try (ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.hotel.grpc.bench;
+
+import com.example.hotel.grpc.GetReservationRequest;
+import com.example.hotel.grpc.ReservationServiceGrpc;
+import com.example.hotel.grpc.config.Settings;
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+
+/**
+ * Sequential GetReservation latency against a running server: plain gRPC,
+ * gRPC-Web through the in-process gateway, the same through Envoy, and JSON
+ * through the gateway. Each path gets its own warm-up pass first.
+ * <p>
+ * Usage: {@code GatewayLatencyBenchmark <reservationId> [operations]}. The
+ * endpoints come from {@code hotel.bench.grpc-target} (localhost:9095),
+ * {@code hotel.bench.gateway-url} (http://localhost:8080) and
+ * {@code hotel.bench.envoy-url} (http://localhost:8082, see the {@code envoy}
+ * compose profile; empty to skip).
+ */
+public class GatewayLatencyBenchmark {
+
+    private static final String PATH = "/hotel.ReservationService/GetReservation";
+
+    interface Call {
+        void run() throws IOException, InterruptedException;
+    }
+
+    public static void main(String[] args) throws Exception {
+        long id = Long.parseLong(args[0]);
+        int operations = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+        String gateway = Settings.getString("hotel.bench.gateway-url", "http://localhost:8080");
+        String envoy = Settings.getString("hotel.bench.envoy-url", "http://localhost:8082");
+
+        ManagedChannel channel = ManagedChannelBuilder
+                .forTarget(Settings.getString("hotel.bench.grpc-target", "localhost:9095"))
+                .usePlaintext()
+                .build();
+        ReservationServiceGrpc.ReservationServiceBlockingStub stub = ReservationServiceGrpc.newBlockingStub(channel);
+        GetReservationRequest request = GetReservationRequest.newBuilder().setId(id).build();
+        // One keep-alive connection per path, like a browser tab
+        HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+        try {
+            measure("direct gRPC", operations, () -> stub.getReservation(request));
+            measure("gateway gRPC-Web", operations, grpcWeb(http, gateway, request));
+            if (!envoy.isEmpty()) {
+                measure("Envoy gRPC-Web", operations, grpcWeb(http, envoy, request));
+            }
+            HttpRequest json = HttpRequest.newBuilder(URI.create(gateway + PATH + "?id=" + id)).GET().build();
+            measure("gateway JSON", operations, () -> expectOk(http.send(json, HttpResponse.BodyHandlers.ofString())));
+        } finally {
+            channel.shutdownNow();
+        }
+    }
+
+    private static Call grpcWeb(HttpClient http, String baseUrl, GetReservationRequest request) {
+        byte[] message = request.toByteArray();
+        byte[] body = ByteBuffer.allocate(5 + message.length).put((byte) 0).putInt(message.length).put(message).array();
+        HttpRequest httpRequest = HttpRequest.newBuilder(URI.create(baseUrl + PATH))
+                .header("content-type", "application/grpc-web+proto")
+                .header("x-grpc-web", "1")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                .build();
+        return () -> expectOk(http.send(httpRequest, HttpResponse.BodyHandlers.ofByteArray()));
+    }
+
+    private static void expectOk(HttpResponse<?> response) {
+        String grpcStatus = response.headers().firstValue("grpc-status").orElse("0");
+        if (response.statusCode() != 200 || !"0".equals(grpcStatus)) {
+            throw new IllegalStateException("HTTP " + response.statusCode() + ", grpc-status " + grpcStatus);
+        }
+    }
+
+    private static void measure(String label, int operations, Call call) throws IOException, InterruptedException {
+        for (int i = 0; i < Math.min(operations, 2_000); i++) {
+            call.run();
+        }
+        LatencyStats stats = new LatencyStats(operations);
+        stats.start();
+        for (int i = 0; i < operations; i++) {
+            long begin = System.nanoTime();
+            call.run();
+            stats.record(System.nanoTime() - begin);
+        }
+        stats.stop();
+        stats.print(label);
+    }
+}
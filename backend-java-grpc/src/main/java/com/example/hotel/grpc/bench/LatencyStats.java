@@ -0,0 +1,51 @@
+package com.example.hotel.grpc.bench;
+
+import java.util.Arrays;
+
+/**
+ * Collects per-operation latencies for the benchmark mains and prints
+ * throughput and percentiles.
+ */
+public class LatencyStats {
+
+    private final long[] samples;
+    private int count;
+    private long startNanos;
+    private long elapsedNanos;
+
+    public LatencyStats(int capacity) {
+        this.samples = new long[capacity];
+    }
+
+    public void start() {
+        startNanos = System.nanoTime();
+    }
+
+    public void stop() {
+        elapsedNanos = System.nanoTime() - startNanos;
+    }
+
+    public synchronized void record(long nanos) {
+        if (count < samples.length) {
+            samples[count++] = nanos;
+        }
+    }
+
+    public synchronized void print(String label) {
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        double seconds = elapsedNanos / 1e9;
+        System.out.printf("%-28s ops=%d  ops/s=%.0f  p50=%.2fms  p99=%.2fms  max=%.2fms%n",
+                label, count, count / seconds,
+                percentile(sorted, 0.50) / 1e6, percentile(sorted, 0.99) / 1e6,
+                count == 0 ? 0 : sorted[count - 1] / 1e6);
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.hotel.grpc.bench;
+
+import com.example.hotel.grpc.Chambre;
+import com.example.hotel.grpc.Client;
+import com.example.hotel.grpc.ListReservationsResponse;
+import com.example.hotel.grpc.ReferenceTable;
+import com.example.hotel.grpc.Reservation;
+import com.google.protobuf.InvalidProtocolBufferException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Bytes on the wire and CPU for a ListReservations stream sent as full
+ * reservations versus normalized, on three shapes of data:
+ * <ul>
+ * <li>the bookings of one busy room, guests drawn from a population with
+ * returning customers;</li>
+ * <li>the histories of frequent guests, many stays per client over a few
+ * dozen rooms;</li>
+ * <li>a hotel-wide listing, 40 rooms and guests drawn with a skew towards
+ * regulars.</li>
+ * </ul>
+ * Bytes include the 5-byte gRPC frame header of every message. Encode is
+ * building and serializing every message of the stream, normalizing included;
+ * decode is parsing them and, for the normalized stream, rebuilding the full
+ * reservations from the side tables. Usage: {@code NormalizationBenchmark [rounds]}.
+ */
+public class NormalizationBenchmark {
+
+    private static final String[] TYPES = { "SIMPLE", "DOUBLE", "SUITE" };
+    private static final String[] NAMES = { "Martin", "Bernard", "Dubois", "Thomas", "Robert", "Richard" };
+    private static final String[] PREFERENCES = {
+            "Non-smoking, late check-in", "High floor, quiet room", "Extra bed for a child", "" };
+    private static final int FRAME_HEADER = 5;
+
+    private static long sink;
+
+    public static void main(String[] args) throws InvalidProtocolBufferException {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        Random random = new Random(42);
+
+        List<Reservation> busyRoom = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            busyRoom.add(reservation(i, random.nextInt(3_000), 7));
+        }
+        List<Reservation> frequentGuests = new ArrayList<>();
+        for (int client = 0; client < 200; client++) {
+            for (int stay = 0; stay < 50; stay++) {
+                frequentGuests.add(reservation(frequentGuests.size(), client, random.nextInt(40)));
+            }
+        }
+        List<Reservation> hotel = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            // Squaring the draw puts most bookings on a small share of the guests
+            double draw = random.nextDouble();
+            hotel.add(reservation(i, (int) (draw * draw * 8_000), random.nextInt(40)));
+        }
+
+        System.out.printf("%-16s %-11s %6s %10s %8s %10s %10s%n",
+                "dataset", "encoding", "msgs", "bytes", "B/resv", "enc us/r", "dec us/r");
+        for (Object[] dataset : new Object[][] {
+                { "busy room", busyRoom }, { "frequent guests", frequentGuests }, { "hotel-wide", hotel } }) {
+            @SuppressWarnings("unchecked")
+            List<Reservation> reservations = (List<Reservation>) dataset[1];
+            report((String) dataset[0], "full", reservations, false, rounds);
+            report((String) dataset[0], "normalized", reservations, true, rounds);
+        }
+        if (sink == 42) {
+            System.out.println();
+        }
+    }
+
+    private static void report(String dataset, String label, List<Reservation> reservations, boolean normalized,
+            int rounds) throws InvalidProtocolBufferException {
+        List<byte[]> messages = encode(reservations, normalized);
+        List<Reservation> rebuilt = decode(messages);
+        if (!rebuilt.equals(reservations)) {
+            throw new IllegalStateException(dataset + " " + label + ": rebuilt reservations differ");
+        }
+        long bytes = 0;
+        for (byte[] message : messages) {
+            bytes += message.length + FRAME_HEADER;
+        }
+
+        // Warm up, then measure
+        for (int i = 0; i < rounds; i++) {
+            sink += encode(reservations, normalized).size() + decode(messages).size();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            sink += encode(reservations, normalized).size();
+        }
+        long encodeNanos = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            sink += decode(messages).size();
+        }
+        long decodeNanos = System.nanoTime() - start;
+
+        double perReservation = 1e3 * rounds * reservations.size();
+        System.out.printf("%-16s %-11s %6d %10d %8.1f %10.3f %10.3f%n",
+                dataset, label, messages.size(), bytes, (double) bytes / reservations.size(),
+                encodeNanos / perReservation, decodeNanos / perReservation);
+    }
+
+    /** Serializes the stream the way ReservationListStream sends it. */
+    private static List<byte[]> encode(List<Reservation> reservations, boolean normalized) {
+        List<byte[]> messages = new ArrayList<>(reservations.size() * 2);
+        ReferenceTable references = normalized ? new ReferenceTable(10_000) : null;
+        for (Reservation reservation : reservations) {
+            if (references != null) {
+                reservation = references.normalize(reservation,
+                        client -> messages.add(ListReservationsResponse.newBuilder().setClient(client).build()
+                                .toByteArray()),
+                        chambre -> messages.add(ListReservationsResponse.newBuilder().setChambre(chambre).build()
+                                .toByteArray()));
+            }
+            messages.add(ListReservationsResponse.newBuilder().setReservation(reservation).build().toByteArray());
+        }
+        return messages;
+    }
+
+    /** What a client does with either stream: full reservations, in order. */
+    private static List<Reservation> decode(List<byte[]> messages) throws InvalidProtocolBufferException {
+        List<Reservation> reservations = new ArrayList<>(messages.size());
+        Map<Long, Client> clients = new HashMap<>();
+        Map<Long, Chambre> chambres = new HashMap<>();
+        for (byte[] message : messages) {
+            ListReservationsResponse response = ListReservationsResponse.parseFrom(message);
+            switch (response.getItemCase()) {
+                case CLIENT:
+                    clients.put(response.getClient().getId(), response.getClient());
+                    break;
+                case CHAMBRE:
+                    chambres.put(response.getChambre().getId(), response.getChambre());
+                    break;
+                default:
+                    Reservation reservation = response.getReservation();
+                    Client client = clients.get(reservation.getClient().getId());
+                    Chambre chambre = chambres.get(reservation.getChambre().getId());
+                    if (client != null || chambre != null) {
+                        Reservation.Builder full = reservation.toBuilder();
+                        if (client != null) {
+                            full.setClient(client);
+                        }
+                        if (chambre != null) {
+                            full.setChambre(chambre);
+                        }
+                        reservation = full.build();
+                    }
+                    reservations.add(reservation);
+            }
+        }
+        return reservations;
+    }
+
+    private static Reservation reservation(int i, int client, int chambre) {
+        String nom = NAMES[client % NAMES.length];
+        return Reservation.newBuilder()
+                .setId(100_000 + i)
+                .setClient(Client.newBuilder()
+                        .setId(20_000 + client).setNom(nom).setPrenom("Camille")
+                        .setEmail("camille." + nom.toLowerCase() + client + "@example.com")
+                        .setTelephone("+3361234" + (5678 + client)))
+                .setChambre(Chambre.newBuilder()
+                        .setId(100 + chambre).setType(TYPES[chambre % TYPES.length]).setPrix(79.90 + 25 * (chambre % 3))
+                        .setDisponible(true))
+                .setDateDebut("2025-07-" + (10 + i % 18))
+                .setDateFin("2025-08-0" + (1 + i % 9))
+                .setPreferences(PREFERENCES[i % PREFERENCES.length])
+                .build();
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.hotel.grpc.bench;
+
+import com.example.hotel.grpc.Chambre;
+import com.example.hotel.grpc.Client;
+import com.example.hotel.grpc.Reservation;
+import com.example.hotel.grpc.ReservationResponse;
+import com.google.protobuf.InvalidProtocolBufferException;
+
+import java.sql.Date;
+import java.time.LocalDate;
+
+/**
+ * Compares encoded size and encode/decode CPU of a typical reservation in the
+ * v1 schema (ISO date strings, double price) and the v2 schema (epoch days,
+ * minor units). Each side includes the conversions its service performs: v1
+ * formats dates when it reads and, when it writes, parses them to the epoch
+ * days and scales the price to the minor units the DAO binds; v2 passes both
+ * through unchanged.
+ * <p>
+ * Usage: {@code WireFormatBenchmark [iterations]}.
+ */
+public class WireFormatBenchmark {
+
+    private static long sink;
+
+    public static void main(String[] args) throws InvalidProtocolBufferException {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+
+        byte[] v1 = encodeV1(0);
+        byte[] v2 = encodeV2(0);
+        System.out.printf("ReservationResponse bytes: v1=%d  v2=%d  (%.0f%% smaller)%n",
+                v1.length, v2.length, 100.0 * (v1.length - v2.length) / v1.length);
+
+        for (int round = 0; round < 3; round++) {
+            long v1Nanos = timeV1(iterations);
+            long v2Nanos = timeV2(iterations);
+            System.out.printf("round %d  v1 %.0f ns/op  v2 %.0f ns/op%n", round,
+                    (double) v1Nanos / iterations, (double) v2Nanos / iterations);
+        }
+        if (sink == 42) {
+            System.out.println();
+        }
+    }
+
+    private static long timeV1(int iterations) throws InvalidProtocolBufferException {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            ReservationResponse decoded = ReservationResponse.parseFrom(encodeV1(i));
+            // What the v1 write path does with the dates and the price
+            Reservation reservation = decoded.getReservation();
+            sink += Date.valueOf(reservation.getDateDebut()).toLocalDate().toEpochDay();
+            sink += Date.valueOf(reservation.getDateFin()).toLocalDate().toEpochDay();
+            sink += Math.round(reservation.getChambre().getPrix() * 100);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static long timeV2(int iterations) throws InvalidProtocolBufferException {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            com.example.hotel.grpc.v2.ReservationResponse decoded =
+                    com.example.hotel.grpc.v2.ReservationResponse.parseFrom(encodeV2(i));
+            com.example.hotel.grpc.v2.Reservation reservation = decoded.getReservation();
+            sink += reservation.getDateDebut() + reservation.getDateFin() + reservation.getChambre().getPrixMinor();
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static byte[] encodeV1(int i) {
+        // What the v1 read path does with the dates
+        LocalDate debut = LocalDate.of(2025, 7, 1).plusDays(i & 255);
+        return ReservationResponse.newBuilder()
+                .setReservation(Reservation.newBuilder()
+                        .setId(100_000 + i)
+                        .setClient(Client.newBuilder()
+                                .setId(20_000 + i).setNom("Martin").setPrenom("Camille")
+                                .setEmail("camille.martin@example.com").setTelephone("+33612345678"))
+                        .setChambre(Chambre.newBuilder()
+                                .setId(120).setType("DOUBLE").setPrix(129.90).setDisponible(true))
+                        .setDateDebut(Date.valueOf(debut).toString())
+                        .setDateFin(Date.valueOf(debut.plusDays(4)).toString())
+                        .setPreferences("Non-smoking, late check-in"))
+                .build()
+                .toByteArray();
+    }
+
+    private static byte[] encodeV2(int i) {
+        int debut = (int) LocalDate.of(2025, 7, 1).toEpochDay() + (i & 255);
+        return com.example.hotel.grpc.v2.ReservationResponse.newBuilder()
+                .setReservation(com.example.hotel.grpc.v2.Reservation.newBuilder()
+                        .setId(100_000 + i)
+                        .setClient(com.example.hotel.grpc.v2.Client.newBuilder()
+                                .setId(20_000 + i).setNom("Martin").setPrenom("Camille")
+                                .setEmail("camille.martin@example.com").setTelephone("+33612345678"))
+                        .setChambre(com.example.hotel.grpc.v2.Chambre.newBuilder()
+                                .setId(120).setType("DOUBLE").setPrixMinor(12_990).setDisponible(true))
+                        .setDateDebut(debut)
+                        .setDateFin(debut + 4)
+                        .setPreferences("Non-smoking, late check-in"))
+                .build()
+                .toByteArray();
+    }
+}
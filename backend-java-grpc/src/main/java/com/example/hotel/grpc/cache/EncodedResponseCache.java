@@ -0,0 +1,244 @@
+package com.example.hotel.grpc.cache;
+
+import com.example.hotel.grpc.config.Settings;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded map from a primitive {@code long} id to pre-encoded response bytes.
+ * <p>
+ * Keys live in a {@code long[]} open-addressing table (linear probing,
+ * backward-shift deletion), so lookups never box. The cache is bounded both by
+ * entry count and by total payload bytes and evicts with the CLOCK algorithm:
+ * every hit sets a reference bit, and the eviction hand clears bits until it
+ * finds an entry that has not been read since its last pass.
+ * <p>
+ * Loads race with invalidations, so a loader takes a {@link #loadToken} for
+ * its key before reading the database and stores the result with
+ * {@link #putIfUnchanged}. The put is dropped if the key was invalidated in
+ * between, which keeps a stale row from being cached after an update. Keys
+ * share {@value #VERSION_STRIPES} invalidation counters by hash, so an
+ * invalidation only drops the loads of the keys on its stripe.
+ * <p>
+ * Invalidations only come from this process: its own writes, and the change
+ * log entries the {@code ChangeFeed} reads for writes made elsewhere. Entries
+ * also expire after a time to live, which bounds how stale a response can get
+ * when that feed is disabled or behind, or when only the client or room row
+ * changed, which the change log does not record.
+ */
+public class EncodedResponseCache {
+
+    /** Rough JVM overhead per slot and per cached array, for the footprint gauge. */
+    private static final int SLOT_OVERHEAD_BYTES = Long.BYTES + 4 + 1;
+    private static final int ARRAY_HEADER_BYTES = 16;
+
+    private static final int VERSION_STRIPES = 1024;
+
+    private final int maxEntries;
+    private final long maxBytes;
+    private final int mask;
+    private final long[] keys;
+    private final byte[][] values;
+    private final boolean[] referenced;
+    private final long[] storedAt;
+    private final long ttlNanos;
+    private final long[] versions = new long[VERSION_STRIPES];
+
+    private int size;
+    private long payloadBytes;
+    private int hand;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+    private long droppedPuts;
+
+    public EncodedResponseCache(int maxEntries, long maxBytes) {
+        this(maxEntries, maxBytes, 0);
+    }
+
+    /**
+     * @param ttlMillis how long an entry may be served after it was stored, 0
+     *                  to keep it until it is invalidated or evicted
+     */
+    public EncodedResponseCache(int maxEntries, long maxBytes, long ttlMillis) {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.maxBytes = maxBytes;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, ttlMillis));
+        int capacity = Integer.highestOneBit(Math.max(2, this.maxEntries * 2 - 1)) << 1;
+        this.mask = capacity - 1;
+        this.keys = new long[capacity];
+        this.values = new byte[capacity][];
+        this.referenced = new boolean[capacity];
+        this.storedAt = new long[capacity];
+    }
+
+    /**
+     * Cache sized by {@code hotel.grpc.cache.max-entries} and
+     * {@code hotel.grpc.cache.max-bytes}, with entries expiring after
+     * {@code hotel.grpc.cache.ttl-ms}, or {@code null} when max-entries is 0.
+     */
+    public static EncodedResponseCache fromSettings() {
+        int maxEntries = Settings.getInt("hotel.grpc.cache.max-entries", 10_000);
+        if (maxEntries <= 0) {
+            return null;
+        }
+        return new EncodedResponseCache(maxEntries, Settings.getLong("hotel.grpc.cache.max-bytes", 16L << 20),
+                Settings.getLong("hotel.grpc.cache.ttl-ms", 30_000));
+    }
+
+    public synchronized byte[] get(long key) {
+        int slot = find(key);
+        if (slot < 0) {
+            misses++;
+            return null;
+        }
+        if (ttlNanos > 0 && System.nanoTime() - storedAt[slot] > ttlNanos) {
+            remove(slot);
+            expirations++;
+            misses++;
+            return null;
+        }
+        hits++;
+        referenced[slot] = true;
+        return values[slot];
+    }
+
+    public synchronized long loadToken(long key) {
+        return versions[stripe(key)];
+    }
+
+    public synchronized void putIfUnchanged(long key, byte[] value, long token) {
+        if (token != versions[stripe(key)]) {
+            droppedPuts++;
+            return;
+        }
+        if (value.length > maxBytes) {
+            return;
+        }
+        int slot = find(key);
+        if (slot >= 0) {
+            payloadBytes += value.length - values[slot].length;
+            values[slot] = value;
+            storedAt[slot] = System.nanoTime();
+        } else {
+            while (size >= maxEntries || payloadBytes + value.length > maxBytes) {
+                evictOne();
+            }
+            slot = indexFor(key);
+            while (values[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            values[slot] = value;
+            referenced[slot] = false;
+            storedAt[slot] = System.nanoTime();
+            size++;
+            payloadBytes += value.length;
+        }
+        while (payloadBytes > maxBytes && size > 0) {
+            evictOne();
+        }
+    }
+
+    public synchronized void invalidate(long key) {
+        versions[stripe(key)]++;
+        int slot = find(key);
+        if (slot >= 0) {
+            remove(slot);
+        }
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public synchronized long getExpirations() {
+        return expirations;
+    }
+
+    /** Loads not stored because their key was invalidated while they read the database. */
+    public synchronized long getDroppedPuts() {
+        return droppedPuts;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized long getPayloadBytes() {
+        return payloadBytes;
+    }
+
+    /** Estimated heap held by the cache: table arrays plus cached payloads. */
+    public synchronized long getFootprintBytes() {
+        return (long) keys.length * SLOT_OVERHEAD_BYTES + payloadBytes + (long) size * ARRAY_HEADER_BYTES;
+    }
+
+    private int find(long key) {
+        int slot = indexFor(key);
+        while (values[slot] != null) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private int indexFor(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private static int stripe(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32) & (VERSION_STRIPES - 1);
+    }
+
+    private void evictOne() {
+        while (true) {
+            if (values[hand] != null) {
+                if (referenced[hand]) {
+                    referenced[hand] = false;
+                } else {
+                    remove(hand);
+                    evictions++;
+                    return;
+                }
+            }
+            hand = (hand + 1) & mask;
+        }
+    }
+
+    /** Removes the entry at {@code slot} and shifts later entries of the probe run back. */
+    private void remove(int slot) {
+        payloadBytes -= values[slot].length;
+        size--;
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (values[next] != null) {
+            int home = indexFor(keys[next]);
+            // Move the entry if its home slot is not cyclically within (hole, next]
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                values[hole] = values[next];
+                referenced[hole] = referenced[next];
+                storedAt[hole] = storedAt[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        values[hole] = null;
+        referenced[hole] = false;
+    }
+}
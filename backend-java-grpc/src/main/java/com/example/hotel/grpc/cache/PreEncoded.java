@@ -0,0 +1,76 @@
+package com.example.hotel.grpc.cache;
+
+import io.grpc.KnownLength;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerMethodDefinition;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.ServiceDescriptor;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Support for methods whose responses are sent as already-encoded protobuf
+ * bytes, so the transport copies them instead of serializing a message.
+ */
+public final class PreEncoded {
+
+    /** Passes encoded message bytes through unchanged in both directions. */
+    public static final MethodDescriptor.Marshaller<byte[]> MARSHALLER = new MethodDescriptor.Marshaller<>() {
+        @Override
+        public InputStream stream(byte[] value) {
+            return new KnownLengthInputStream(value);
+        }
+
+        @Override
+        public byte[] parse(InputStream stream) {
+            try {
+                return stream.readAllBytes();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    };
+
+    private PreEncoded() {
+    }
+
+    /**
+     * Copy of {@code method} that keeps its name and request marshaller but
+     * sends responses as encoded bytes. The wire format is unchanged.
+     */
+    public static <ReqT> MethodDescriptor<ReqT, byte[]> encodedResponses(MethodDescriptor<ReqT, ?> method) {
+        return method.toBuilder(method.getRequestMarshaller(), MARSHALLER).build();
+    }
+
+    /**
+     * Rebuilds a service definition with {@code method} bound to {@code handler}
+     * in place of the generated method of the same name.
+     */
+    public static <ReqT, RespT> ServerServiceDefinition replaceMethod(ServerServiceDefinition service,
+            MethodDescriptor<ReqT, RespT> method, ServerCallHandler<ReqT, RespT> handler) {
+        ServiceDescriptor original = service.getServiceDescriptor();
+        ServiceDescriptor.Builder descriptor = ServiceDescriptor.newBuilder(original.getName())
+                .setSchemaDescriptor(original.getSchemaDescriptor());
+        for (MethodDescriptor<?, ?> existing : original.getMethods()) {
+            descriptor.addMethod(existing.getFullMethodName().equals(method.getFullMethodName()) ? method : existing);
+        }
+
+        ServerServiceDefinition.Builder rebuilt = ServerServiceDefinition.builder(descriptor.build());
+        for (ServerMethodDefinition<?, ?> existing : service.getMethods()) {
+            if (!existing.getMethodDescriptor().getFullMethodName().equals(method.getFullMethodName())) {
+                rebuilt.addMethod(existing);
+            }
+        }
+        return rebuilt.addMethod(method, handler).build();
+    }
+
+    private static final class KnownLengthInputStream extends ByteArrayInputStream implements KnownLength {
+        KnownLengthInputStream(byte[] bytes) {
+            super(bytes);
+        }
+    }
+}
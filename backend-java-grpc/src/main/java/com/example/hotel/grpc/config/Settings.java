@@ -0,0 +1,38 @@
+package com.example.hotel.grpc.config;
+
+/**
+ * Reads server settings from JVM system properties, falling back to environment
+ * variables and then to the supplied default.
+ * <p>
+ * A key such as {@code hotel.db.pool.size} is looked up as the system property
+ * {@code -Dhotel.db.pool.size=...} and then as the environment variable
+ * {@code HOTEL_DB_POOL_SIZE}.
+ */
+public final class Settings {
+
+    private Settings() {
+    }
+
+    public static String getString(String key, String defaultValue) {
+        String value = System.getProperty(key);
+        if (value == null || value.isBlank()) {
+            value = System.getenv(key.toUpperCase().replace('.', '_').replace('-', '_'));
+        }
+        return value == null || value.isBlank() ? defaultValue : value.trim();
+    }
+
+    public static int getInt(String key, int defaultValue) {
+        String value = getString(key, null);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    public static long getLong(String key, long defaultValue) {
+        String value = getString(key, null);
+        return value == null ? defaultValue : Long.parseLong(value);
+    }
+
+    public static boolean getBoolean(String key, boolean defaultValue) {
+        String value = getString(key, null);
+        return value == null ? defaultValue : Boolean.parseBoolean(value);
+    }
+}
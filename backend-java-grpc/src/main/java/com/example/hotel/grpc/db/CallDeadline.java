@@ -0,0 +1,118 @@
+package com.example.hotel.grpc.db;
+
+import io.grpc.Context;
+import io.grpc.Deadline;
+import io.prometheus.client.Counter;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Ties database work to the gRPC call it serves.
+ * <p>
+ * The current {@link Context} carries the client's deadline and is cancelled
+ * when the call ends early. Calls that are already over are rejected before a
+ * connection is borrowed; running statements get the remaining time as their
+ * query timeout and are cancelled on the server as soon as the call is, so a
+ * client that has given up stops costing database time.
+ */
+public final class CallDeadline {
+
+    /** SQLSTATE PostgreSQL reports for a statement stopped by a cancel request. */
+    static final String QUERY_CANCELED = "57014";
+
+    private static final Counter EXPIRED = Counter.build()
+            .name("hotel_db_calls_expired_total")
+            .help("Database work skipped because its gRPC call had already ended")
+            .labelNames("stage", "reason")
+            .register();
+    private static final Counter CANCELLED = Counter.build()
+            .name("hotel_db_statements_cancelled_total")
+            .help("Running statements cancelled because their gRPC call ended")
+            .labelNames("reason")
+            .register();
+
+    @FunctionalInterface
+    interface Execution<T> {
+        T run() throws SQLException;
+    }
+
+    private CallDeadline() {
+    }
+
+    /**
+     * Borrows a connection unless the current call has expired or been
+     * cancelled, so dead calls never wait in the pool queue.
+     */
+    public static Connection getConnection(DataSource dataSource) throws SQLException {
+        checkLive(Context.current(), "borrow");
+        return dataSource.getConnection();
+    }
+
+    /**
+     * Runs {@code execution} on {@code statement} bounded by the current call:
+     * the remaining deadline becomes the query timeout (rounded up to whole
+     * seconds, the driver's resolution) and a cancellation of the call cancels
+     * the statement on the server right away.
+     */
+    static <T> T execute(Statement statement, Execution<T> execution) throws SQLException {
+        Context context = Context.current();
+        checkLive(context, "execute");
+        Deadline deadline = context.getDeadline();
+        if (deadline != null) {
+            long remainingMs = deadline.timeRemaining(TimeUnit.MILLISECONDS);
+            statement.setQueryTimeout((int) Math.max(1, (remainingMs + 999) / 1000));
+        }
+
+        Context.CancellationListener listener = c -> cancel(statement, c);
+        context.addListener(listener, Runnable::run);
+        try {
+            return execution.run();
+        } catch (SQLException e) {
+            if (!QUERY_CANCELED.equals(e.getSQLState())) {
+                throw e;
+            }
+            if (context.isCancelled() && !isDeadline(context)) {
+                throw new SQLException("Call cancelled by the client", QUERY_CANCELED, e);
+            }
+            // Either the call deadline fired or the driver's own query timeout did
+            throw new SQLTimeoutException("Deadline exceeded during query", QUERY_CANCELED, e);
+        } finally {
+            context.removeListener(listener);
+        }
+    }
+
+    private static void checkLive(Context context, String stage) throws SQLException {
+        Deadline deadline = context.getDeadline();
+        if (deadline != null && deadline.isExpired()) {
+            EXPIRED.labels(stage, "deadline").inc();
+            throw new SQLTimeoutException("Deadline exceeded before " + stage, QUERY_CANCELED);
+        }
+        if (context.isCancelled()) {
+            boolean timedOut = isDeadline(context);
+            EXPIRED.labels(stage, timedOut ? "deadline" : "cancelled").inc();
+            if (timedOut) {
+                throw new SQLTimeoutException("Deadline exceeded before " + stage, QUERY_CANCELED);
+            }
+            throw new SQLException("Call cancelled before " + stage, QUERY_CANCELED);
+        }
+    }
+
+    private static boolean isDeadline(Context context) {
+        return context.cancellationCause() instanceof TimeoutException;
+    }
+
+    private static void cancel(Statement statement, Context context) {
+        CANCELLED.labels(isDeadline(context) ? "deadline" : "cancelled").inc();
+        try {
+            statement.cancel();
+        } catch (SQLException e) {
+            System.err.println("Failed to cancel statement: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.example.hotel.grpc.db;
+
+import com.example.hotel.grpc.ReservationEvent;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The {@code reservation_change_log} table and the trigger that fills it.
+ * <p>
+ * Every insert, update or delete on {@code reservation}, whichever service
+ * makes it, appends a row numbered by a sequence and sends a
+ * {@code NOTIFY reservation_changes}. The notification only wakes the reader;
+ * the log is what it reads, so nothing is lost while no one is listening and
+ * a client can resume from the sequence number of the last event it saw.
+ * Notifications with the same payload are merged per transaction, so a bulk
+ * insert wakes the reader once.
+ * <p>
+ * Needs PostgreSQL 14 for {@code CREATE OR REPLACE TRIGGER}, which swaps the
+ * trigger without a moment where reservations change unlogged.
+ */
+public final class ChangeLog {
+
+    public static final String CHANNEL = "reservation_changes";
+
+    /** Arbitrary key of the advisory lock that serializes installs by servers starting together. */
+    private static final long INSTALL_LOCK = 0x68_6f_74_65_6c_02L;
+
+    private static final String[] SCHEMA = {
+            "CREATE TABLE IF NOT EXISTS reservation_change_log (" +
+                    "seq bigserial PRIMARY KEY, " +
+                    "op char(1) NOT NULL, " +
+                    "reservation_id bigint NOT NULL, " +
+                    "chambre_id bigint, " +
+                    "date_debut date, " +
+                    "date_fin date, " +
+                    "changed_at timestamptz NOT NULL DEFAULT now())",
+            "CREATE INDEX IF NOT EXISTS reservation_change_log_changed_at ON reservation_change_log (changed_at)",
+            "CREATE OR REPLACE FUNCTION reservation_change_log_append() RETURNS trigger AS $$ " +
+                    "BEGIN " +
+                    "IF TG_OP = 'DELETE' THEN " +
+                    "INSERT INTO reservation_change_log (op, reservation_id, chambre_id, date_debut, date_fin) " +
+                    "VALUES ('D', OLD.id, OLD.chambre_id, OLD.date_debut, OLD.date_fin); " +
+                    "ELSE " +
+                    "INSERT INTO reservation_change_log (op, reservation_id, chambre_id, date_debut, date_fin) " +
+                    "VALUES (CASE TG_OP WHEN 'INSERT' THEN 'C' ELSE 'U' END, " +
+                    "NEW.id, NEW.chambre_id, NEW.date_debut, NEW.date_fin); " +
+                    "END IF; " +
+                    "PERFORM pg_notify('" + CHANNEL + "', ''); " +
+                    "RETURN NULL; " +
+                    "END $$ LANGUAGE plpgsql",
+            "CREATE OR REPLACE TRIGGER reservation_change_log_trigger AFTER INSERT OR UPDATE OR DELETE ON reservation " +
+                    "FOR EACH ROW EXECUTE FUNCTION reservation_change_log_append()",
+    };
+
+    static final Query READ = new Query("change_log_read",
+            "SELECT l.seq, l.op, l.reservation_id, l.chambre_id AS log_chambre_id, " +
+            "l.date_debut AS log_date_debut, l.date_fin AS log_date_fin, " +
+            "r.id, r.date_debut, r.date_fin, r.preferences, " +
+            "c.id as c_id, c.nom, c.prenom, c.email, c.telephone, " +
+            "ch.id as ch_id, ch.type, ch.prix, ch.disponible " +
+            "FROM reservation_change_log l " +
+            "LEFT JOIN reservation r ON r.id = l.reservation_id AND l.op <> 'D' " +
+            "LEFT JOIN client c ON r.client_id = c.id " +
+            "LEFT JOIN chambre ch ON r.chambre_id = ch.id " +
+            "WHERE l.seq > ? AND l.seq <= ? " +
+            "ORDER BY l.seq " +
+            "LIMIT ?");
+
+    static final Query BOUNDS = new Query("change_log_bounds",
+            "SELECT COALESCE(MIN(seq), 0), COALESCE(MAX(seq), 0) FROM reservation_change_log");
+
+    /**
+     * The oldest transaction still running and the first one not started yet,
+     * as bigints: {@code xid8} has no JDBC mapping.
+     */
+    static final Query SNAPSHOT = new Query("change_log_snapshot",
+            "SELECT CAST(CAST(pg_snapshot_xmin(s) AS text) AS bigint), " +
+            "CAST(CAST(pg_snapshot_xmax(s) AS text) AS bigint) " +
+            "FROM pg_current_snapshot() s");
+
+    static final Query TRIM = new Query("change_log_trim",
+            "WITH d AS (DELETE FROM reservation_change_log " +
+            "WHERE changed_at < now() - make_interval(hours => ?) RETURNING seq) " +
+            "SELECT COALESCE(MAX(seq), 0) FROM d");
+
+    /** One log row with the columns subscriptions filter on. */
+    public static final class Entry {
+        private final long seq;
+        private final ReservationEvent event;
+        private final long chambreId;
+        private final Date dateDebut;
+        private final Date dateFin;
+
+        Entry(long seq, ReservationEvent event, long chambreId, Date dateDebut, Date dateFin) {
+            this.seq = seq;
+            this.event = event;
+            this.chambreId = chambreId;
+            this.dateDebut = dateDebut;
+            this.dateFin = dateFin;
+        }
+
+        public long getSeq() {
+            return seq;
+        }
+
+        public ReservationEvent getEvent() {
+            return event;
+        }
+
+        public long getChambreId() {
+            return chambreId;
+        }
+
+        public Date getDateDebut() {
+            return dateDebut;
+        }
+
+        public Date getDateFin() {
+            return dateFin;
+        }
+    }
+
+    private ChangeLog() {
+    }
+
+    /**
+     * Creates the table, the trigger function and the trigger, or replaces the
+     * function and the trigger, in one transaction.
+     */
+    public static void install(Connection conn) throws SQLException {
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try (Statement st = conn.createStatement()) {
+            st.execute("SELECT pg_advisory_xact_lock(" + INSTALL_LOCK + ")");
+            for (String sql : SCHEMA) {
+                st.execute(sql);
+            }
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    /** Returns the lowest and highest sequence numbers still in the log, 0 when empty. */
+    public static long[] bounds(Connection conn) throws SQLException {
+        try (PreparedStatement ps = BOUNDS.prepare(conn);
+                ResultSet rs = BOUNDS.executeQuery(ps)) {
+            rs.next();
+            return new long[] { rs.getLong(1), rs.getLong(2) };
+        }
+    }
+
+    /** Reads up to {@code limit} entries with {@code afterSeq < seq <= upToSeq}, in order. */
+    public static List<Entry> read(Connection conn, long afterSeq, long upToSeq, int limit) throws SQLException {
+        List<Entry> entries = new ArrayList<>();
+        try (PreparedStatement ps = READ.prepare(conn)) {
+            ps.setLong(1, afterSeq);
+            ps.setLong(2, upToSeq);
+            ps.setInt(3, limit);
+            try (ResultSet rs = READ.executeQuery(ps)) {
+                while (rs.next()) {
+                    long seq = rs.getLong("seq");
+                    ReservationEvent.Builder event = ReservationEvent.newBuilder()
+                            .setResumeToken(seq)
+                            .setType(type(rs.getString("op")))
+                            .setReservationId(rs.getLong("reservation_id"));
+                    if (rs.getObject("id") != null) {
+                        event.setReservation(ReservationDao.mapReservation(rs));
+                    }
+                    entries.add(new Entry(seq, event.build(), rs.getLong("log_chambre_id"),
+                            rs.getDate("log_date_debut"), rs.getDate("log_date_fin")));
+                }
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Returns the xmin and xmax of a new snapshot: every transaction below
+     * xmin has ended, and every one at or above xmax started after it.
+     */
+    public static long[] snapshot(Connection conn) throws SQLException {
+        try (PreparedStatement ps = SNAPSHOT.prepare(conn);
+                ResultSet rs = SNAPSHOT.executeQuery(ps)) {
+            rs.next();
+            return new long[] { rs.getLong(1), rs.getLong(2) };
+        }
+    }
+
+    /**
+     * Deletes entries older than {@code hours} and returns the highest sequence
+     * number deleted, 0 if none; resume tokens below it have expired.
+     */
+    public static long trim(Connection conn, int hours) throws SQLException {
+        try (PreparedStatement ps = TRIM.prepare(conn)) {
+            ps.setInt(1, hours);
+            try (ResultSet rs = TRIM.executeQuery(ps)) {
+                rs.next();
+                return rs.getLong(1);
+            }
+        }
+    }
+
+    private static ReservationEvent.Type type(String op) {
+        switch (op) {
+            case "C":
+                return ReservationEvent.Type.CREATED;
+            case "D":
+                return ReservationEvent.Type.DELETED;
+            default:
+                return ReservationEvent.Type.UPDATED;
+        }
+    }
+}
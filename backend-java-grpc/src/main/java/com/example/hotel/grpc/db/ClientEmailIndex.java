@@ -0,0 +1,128 @@
+package com.example.hotel.grpc.db;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * The partial unique index on {@code client.email} that client deduplication
+ * relies on, and the migration that makes it buildable.
+ * <p>
+ * Tables written before the index existed can hold several clients with the
+ * same email. {@link #ensure} merges them first: their reservations move to the
+ * oldest client of each email and the others are deleted. It then builds the
+ * index {@code CONCURRENTLY}, so the other backends keep writing to
+ * {@code client} while it builds. A duplicate one of them commits between the
+ * merge and the end of the build makes the build fail and leaves an invalid
+ * index, which is dropped before merging again. A session advisory lock keeps
+ * servers that start together from migrating at the same time.
+ */
+final class ClientEmailIndex {
+
+    static final String NAME = "client_email_key";
+
+    /** Arbitrary key of the advisory lock, shared by every gRPC server. */
+    private static final long MIGRATION_LOCK = 0x68_6f_74_65_6c_01L;
+
+    private static final int ATTEMPTS = 3;
+
+    /** SQLSTATEs a concurrent writer can cause: unique and foreign key violations. */
+    private static final String UNIQUE_VIOLATION = "23505";
+    private static final String FOREIGN_KEY_VIOLATION = "23503";
+
+    /** Valid flag of the index, no row if it does not exist. */
+    private static final String STATE =
+            "SELECT indisvalid FROM pg_index WHERE indexrelid = to_regclass('" + NAME + "')";
+
+    /** Client ids with a non-empty email, and the oldest id with the same email. */
+    private static final String DUPLICATES =
+            "(SELECT id, min(id) OVER (PARTITION BY email) AS keep FROM client WHERE email <> '') d";
+
+    private static final String MOVE_RESERVATIONS =
+            "UPDATE reservation r SET client_id = d.keep FROM " + DUPLICATES +
+            " WHERE r.client_id = d.id AND d.id <> d.keep";
+
+    private static final String DELETE_DUPLICATES =
+            "DELETE FROM client c USING " + DUPLICATES + " WHERE c.id = d.id AND d.id <> d.keep";
+
+    /** Partial so that the many clients stored without an email never conflict. */
+    private static final String CREATE =
+            "CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS " + NAME + " ON client (email) WHERE email <> ''";
+
+    private static final String DROP = "DROP INDEX CONCURRENTLY IF EXISTS " + NAME;
+
+    private ClientEmailIndex() {
+    }
+
+    /**
+     * Returns once the index exists and is valid, merging duplicate clients
+     * first if it has to build it.
+     *
+     * @throws SQLException if the index still cannot be built after a few attempts
+     */
+    static void ensure(DataSource dataSource) throws SQLException {
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(true);
+            advisoryLock(conn, "pg_advisory_lock");
+            try (Statement st = conn.createStatement()) {
+                for (int attempt = 1; ; attempt++) {
+                    Boolean valid = state(st);
+                    if (Boolean.TRUE.equals(valid)) {
+                        return;
+                    }
+                    if (valid != null) {
+                        // Left by a build that failed, here or on another server
+                        st.execute(DROP);
+                    }
+                    try {
+                        int merged = mergeDuplicates(conn);
+                        if (merged > 0) {
+                            System.out.println("Merged " + merged + " duplicate clients into the oldest one per email");
+                        }
+                        st.execute(CREATE);
+                    } catch (SQLException e) {
+                        boolean concurrentWrite = UNIQUE_VIOLATION.equals(e.getSQLState())
+                                || FOREIGN_KEY_VIOLATION.equals(e.getSQLState());
+                        if (!concurrentWrite || attempt == ATTEMPTS) {
+                            throw e;
+                        }
+                    }
+                }
+            } finally {
+                advisoryLock(conn, "pg_advisory_unlock");
+            }
+        }
+    }
+
+    private static Boolean state(Statement st) throws SQLException {
+        try (ResultSet rs = st.executeQuery(STATE)) {
+            return rs.next() ? rs.getBoolean(1) : null;
+        }
+    }
+
+    /** Returns the number of clients deleted. */
+    private static int mergeDuplicates(Connection conn) throws SQLException {
+        conn.setAutoCommit(false);
+        try (Statement st = conn.createStatement()) {
+            st.executeUpdate(MOVE_RESERVATIONS);
+            int deleted = st.executeUpdate(DELETE_DUPLICATES);
+            conn.commit();
+            return deleted;
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    private static void advisoryLock(Connection conn, String function) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT " + function + "(?)")) {
+            ps.setLong(1, MIGRATION_LOCK);
+            ps.executeQuery().close();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.hotel.grpc.db;
+
+import io.prometheus.client.Counter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded LRU map from client email to {@code client.id}, so that bookings by
+ * returning guests skip the client upsert entirely.
+ * <p>
+ * Entries are only a hint: clients are never deleted through this service, and
+ * if one disappears anyway the reservation insert fails its foreign key and
+ * {@link ReservationDao} drops the entry and upserts again.
+ */
+public class ClientIdCache {
+
+    private static final Counter LOOKUPS = Counter.build()
+            .name("hotel_db_client_id_cache_lookups_total")
+            .help("Client id lookups by email, by result")
+            .labelNames("result")
+            .register();
+
+    private final Map<String, Long> ids;
+    private final Counter.Child hits = LOOKUPS.labels("hit");
+    private final Counter.Child misses = LOOKUPS.labels("miss");
+
+    public ClientIdCache(int maxEntries) {
+        this.ids = new LinkedHashMap<>(Math.min(maxEntries, 1 << 16), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /** Returns the cached id, or {@code null}. */
+    public synchronized Long get(String email) {
+        Long id = ids.get(email);
+        if (id == null) {
+            misses.inc();
+        } else {
+            hits.inc();
+        }
+        return id;
+    }
+
+    public synchronized void put(String email, long id) {
+        ids.put(email, id);
+    }
+
+    public synchronized void invalidate(String email) {
+        ids.remove(email);
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.hotel.grpc.db;
+
+import com.example.hotel.grpc.config.Settings;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fixed-size JDBC connection pool shared by every gRPC service.
+ * <p>
+ * The pool is bounded by {@code hotel.db.pool.size}, keeps that many connections
+ * open at all times, validates connections with {@link Connection#isValid(int)}
+ * before handing them out and fails a borrow with an
+ * {@link java.sql.SQLTransientConnectionException} once
+ * {@code hotel.db.pool.acquire-timeout-ms} has elapsed.
+ */
+public class ConnectionPool implements AutoCloseable {
+
+    private final HikariDataSource dataSource;
+    private final int size;
+
+    public ConnectionPool(HikariConfig config) {
+        this.dataSource = new HikariDataSource(config);
+        this.size = config.getMaximumPoolSize();
+    }
+
+    public static ConnectionPool fromSettings() {
+        int size = Settings.getInt("hotel.db.pool.size", 20);
+
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("hotel-grpc");
+        config.setJdbcUrl(Settings.getString("hotel.db.url", "jdbc:postgresql://localhost:5432/hotel_db"));
+        config.setUsername(Settings.getString("hotel.db.user", "postgres"));
+        config.setPassword(Settings.getString("hotel.db.password", "password"));
+        config.setMaximumPoolSize(size);
+        config.setMinimumIdle(size);
+        config.setConnectionTimeout(Settings.getLong("hotel.db.pool.acquire-timeout-ms", 2_000));
+        config.setValidationTimeout(Settings.getLong("hotel.db.pool.validation-timeout-ms", 1_000));
+        config.setKeepaliveTime(Settings.getLong("hotel.db.pool.keepalive-ms", 60_000));
+        config.setMaxLifetime(Settings.getLong("hotel.db.pool.max-lifetime-ms", 30 * 60_000));
+        // Lets the driver collapse JDBC insert batches into multi-row VALUES statements
+        config.addDataSourceProperty("reWriteBatchedInserts", "true");
+        // Server-prepare every statement on first use; the driver then keeps it
+        // per connection, so pooled connections never parse the same SQL twice
+        config.addDataSourceProperty("prepareThreshold",
+                Settings.getString("hotel.db.prepare-threshold", "1"));
+        config.addDataSourceProperty("preparedStatementCacheQueries",
+                Settings.getString("hotel.db.statement-cache.queries", "256"));
+        return new ConnectionPool(config);
+    }
+
+    public DataSource getDataSource() {
+        return dataSource;
+    }
+
+    public Connection getConnection() throws SQLException {
+        return dataSource.getConnection();
+    }
+
+    /**
+     * Opens a connection outside the pool with the same URL and credentials, for
+     * work that holds a session for the whole process lifetime, such as
+     * {@code LISTEN}.
+     */
+    public Connection openDedicated() throws SQLException {
+        return DriverManager.getConnection(dataSource.getJdbcUrl(), dataSource.getUsername(),
+                dataSource.getPassword());
+    }
+
+    /**
+     * Opens every pooled connection up front so the first requests after startup
+     * do not pay the TCP and authentication handshake.
+     */
+    public void warmUp() throws SQLException {
+        List<Connection> borrowed = new ArrayList<>(size);
+        try {
+            for (int i = 0; i < size; i++) {
+                Connection conn = dataSource.getConnection();
+                borrowed.add(conn);
+                if (!conn.isValid(1)) {
+                    throw new SQLException("Connection failed validation during warm-up");
+                }
+            }
+        } finally {
+            for (Connection conn : borrowed) {
+                conn.close();
+            }
+        }
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getActiveConnections() {
+        HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+        return pool == null ? 0 : pool.getActiveConnections();
+    }
+
+    public int getIdleConnections() {
+        HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+        return pool == null ? 0 : pool.getIdleConnections();
+    }
+
+    public int getThreadsAwaitingConnection() {
+        HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+        return pool == null ? 0 : pool.getThreadsAwaitingConnection();
+    }
+
+    @Override
+    public void close() {
+        dataSource.close();
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.hotel.grpc.db;
+
+import io.prometheus.client.Counter;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A named SQL statement and the counter of its executions.
+ * <p>
+ * Statements are reused through the PostgreSQL driver's per-connection cache:
+ * with {@code prepareThreshold=1} the first execution on a physical connection
+ * parses a named server-side statement, and every later
+ * {@code prepareStatement} of the same text on that connection gets the cached
+ * one back, even after the previous {@link PreparedStatement} was closed. The
+ * driver does not report when it parses, so whether that holds is read from the
+ * server's {@code pg_prepared_statements} instead, see
+ * {@code PreparedStatementCollector}.
+ * <p>
+ * Executions are bounded by the calling gRPC request, see {@link CallDeadline}.
+ */
+public final class Query {
+
+    private static final Counter EXECUTIONS = Counter.build()
+            .name("hotel_db_statement_executions_total")
+            .help("Statement executions, counting each batch entry")
+            .labelNames("statement")
+            .register();
+
+    /** Every query created so far, by name. */
+    private static final Map<String, Query> QUERIES = new ConcurrentHashMap<>();
+
+    private final String name;
+    private final String sql;
+    private final Counter.Child executions;
+
+    public Query(String name, String sql) {
+        this.name = name;
+        this.sql = sql;
+        this.executions = EXECUTIONS.labels(name);
+        QUERIES.put(name, this);
+    }
+
+    /** The queries of every class loaded so far. */
+    public static Collection<Query> all() {
+        return QUERIES.values();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    /**
+     * The text the driver sends to the server, with the {@code ?} placeholders
+     * numbered {@code $1}, {@code $2}... as they show in {@code pg_prepared_statements}.
+     */
+    public String getServerSql() {
+        StringBuilder server = new StringBuilder(sql.length() + 16);
+        int parameter = 0;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (c == '?') {
+                server.append('$').append(++parameter);
+            } else {
+                server.append(c);
+            }
+        }
+        return server.toString();
+    }
+
+    public PreparedStatement prepare(Connection conn) throws SQLException {
+        return conn.prepareStatement(sql);
+    }
+
+    public ResultSet executeQuery(PreparedStatement ps) throws SQLException {
+        executions.inc();
+        return CallDeadline.execute(ps, ps::executeQuery);
+    }
+
+    public int executeUpdate(PreparedStatement ps) throws SQLException {
+        executions.inc();
+        return CallDeadline.execute(ps, ps::executeUpdate);
+    }
+
+    public int[] executeBatch(PreparedStatement ps) throws SQLException {
+        int[] counts = CallDeadline.execute(ps, ps::executeBatch);
+        executions.inc(counts.length);
+        return counts;
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.hotel.grpc.db;
+
+import com.example.hotel.grpc.Reservation;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Open {@link ReservationDao#list} query. Holds its pooled connection until
+ * closed, so callers must close it once the rows are consumed or abandoned.
+ */
+public class ReservationCursor implements AutoCloseable {
+
+    private final Connection conn;
+    private final PreparedStatement ps;
+    private final ResultSet rs;
+
+    ReservationCursor(Connection conn, PreparedStatement ps, ResultSet rs) {
+        this.conn = conn;
+        this.ps = ps;
+        this.rs = rs;
+    }
+
+    /** Next reservation, or {@code null} once the cursor is exhausted. */
+    public Reservation next() throws SQLException {
+        return rs.next() ? ReservationDao.mapReservation(rs) : null;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try (conn; ps; rs) {
+            // Ends the read-only transaction; the pool restores autocommit on return
+            conn.rollback();
+        }
+    }
+}
@@ -0,0 +1,857 @@
+package com.example.hotel.grpc.db;
+
+import com.example.hotel.grpc.Chambre;
+import com.example.hotel.grpc.Client;
+import com.example.hotel.grpc.CreateReservationRequest;
+import com.example.hotel.grpc.ListReservationsRequest;
+import com.example.hotel.grpc.Reservation;
+import com.example.hotel.grpc.UpdateReservationRequest;
+import com.example.hotel.grpc.config.Settings;
+import com.google.protobuf.FieldMask;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * All SQL used by the v1 reservation service.
+ * <p>
+ * Every method borrows a pooled connection and closes its statements and
+ * result sets before returning; the exception is {@link #list}, whose cursor
+ * keeps them open until {@link ReservationCursor#close()}.
+ */
+public class ReservationDao {
+
+    static final String SELECT_COLUMNS = "SELECT r.id, r.date_debut, r.date_fin, r.preferences, " +
+            "c.id as c_id, c.nom, c.prenom, c.email, c.telephone, " +
+            "ch.id as ch_id, ch.type, ch.prix, ch.disponible ";
+
+    static final String FROM_JOINED = "FROM reservation r " +
+            "JOIN client c ON r.client_id = c.id " +
+            "JOIN chambre ch ON r.chambre_id = ch.id ";
+
+    /**
+     * The dates and price as v2 reads them, converted the way its
+     * {@code FIND_BY_ID} does; every write returns them next to
+     * {@link #SELECT_COLUMNS} so that either version maps the stored row
+     * without converting it in the JVM.
+     */
+    static final String EPOCH_COLUMNS = ", r.date_debut - DATE '1970-01-01' AS date_debut_day, " +
+            "r.date_fin - DATE '1970-01-01' AS date_fin_day, " +
+            "CAST(round(ch.prix * 100) AS bigint) AS prix_minor ";
+
+    /** A date parameter bound as an epoch day, see {@link NewReservation}. */
+    private static final String EPOCH_DAY = "DATE '1970-01-01' + CAST(? AS integer)";
+
+    /** A price parameter bound in minor units. */
+    private static final String MINOR_UNITS = "CAST(? AS bigint) / 100.0";
+
+    /**
+     * Selects the reservation inserted by CTE {@code r} with the client and
+     * chambre rows of CTEs {@code c} and {@code ch}. Rows inserted by the same
+     * statement are not visible in the tables yet, hence the CTEs. There is no
+     * row when the chambre does not exist, and a row without a reservation
+     * when the client could not be resolved.
+     */
+    private static final String SELECT_INSERTED =
+            "SELECT r.id, r.date_debut, r.date_fin, r.preferences, " +
+            "c.id as c_id, c.nom, c.prenom, c.email, c.telephone, " +
+            "ch.id as ch_id, ch.type, ch.prix, ch.disponible" + EPOCH_COLUMNS +
+            "FROM ch LEFT JOIN r ON true LEFT JOIN c ON true";
+
+    /**
+     * Inserts the client, the chambre and the reservation referencing them in a
+     * single data-modifying CTE and returns the stored rows.
+     */
+    public static final Query CREATE = new Query("reservation_create",
+            "WITH c AS (INSERT INTO client (nom, prenom, email, telephone) VALUES (?, ?, ?, ?) " +
+            "RETURNING id, nom, prenom, email, telephone), " +
+            "ch AS (INSERT INTO chambre (type, prix, disponible) VALUES (?, " + MINOR_UNITS + ", ?) " +
+            "RETURNING id, type, prix, disponible), " +
+            "r AS (INSERT INTO reservation (client_id, chambre_id, date_debut, date_fin, preferences) " +
+            "SELECT c.id, ch.id, " + EPOCH_DAY + ", " + EPOCH_DAY + ", ? FROM c, ch " +
+            "RETURNING id, date_debut, date_fin, preferences) " +
+            SELECT_INSERTED);
+
+    /**
+     * Reuses the chambre whose id is bound first, or inserts a new one when that
+     * id is 0. {@code ch} holds the stored row, and is empty when a non-zero id
+     * does not exist.
+     */
+    private static final String CHAMBRE_BY_ID_OR_NEW =
+            "ch_id AS (SELECT CAST(? AS bigint) AS id), " +
+            "ch_old AS (SELECT id, type, prix, disponible FROM chambre WHERE id = (SELECT id FROM ch_id)), " +
+            "ch_new AS (INSERT INTO chambre (type, prix, disponible) SELECT ?, " + MINOR_UNITS + ", ? " +
+            "WHERE (SELECT id FROM ch_id) = 0 RETURNING id, type, prix, disponible), " +
+            "ch AS (SELECT * FROM ch_old UNION ALL SELECT * FROM ch_new), ";
+
+    /**
+     * Like {@link #CREATE}, but resolves the client by email and the chambre by
+     * id, so a returning guest booking a known room writes only the reservation,
+     * and returns the stored client and chambre rather than the requested ones.
+     * Writes no reservation when a concurrent transaction committed the same
+     * email after this statement's snapshot; running it again finds that client.
+     * Writes nothing at all when the chambre does not exist.
+     */
+    static final Query CREATE_DEDUPED = new Query("reservation_create_deduped",
+            "WITH " + CHAMBRE_BY_ID_OR_NEW +
+            "c_new AS (INSERT INTO client (nom, prenom, email, telephone) " +
+            "SELECT ?, ?, ?, ? WHERE EXISTS (SELECT 1 FROM ch) " +
+            "ON CONFLICT (email) WHERE email <> '' DO NOTHING RETURNING id, nom, prenom, email, telephone), " +
+            "c AS (SELECT * FROM c_new UNION ALL " +
+            "SELECT id, nom, prenom, email, telephone FROM client " +
+            "WHERE email = ? AND NOT EXISTS (SELECT 1 FROM c_new)), " +
+            "r AS (INSERT INTO reservation (client_id, chambre_id, date_debut, date_fin, preferences) " +
+            "SELECT c.id, ch.id, " + EPOCH_DAY + ", " + EPOCH_DAY + ", ? FROM c, ch " +
+            "RETURNING id, date_debut, date_fin, preferences) " +
+            SELECT_INSERTED);
+
+    /**
+     * {@link #CREATE_DEDUPED} for a client id already known from
+     * {@link ClientIdCache}, bound twice. The reservation references the id
+     * itself, so a client deleted since it was cached fails the foreign key.
+     */
+    static final Query CREATE_FOR_CLIENT = new Query("reservation_create_for_client",
+            "WITH c AS (SELECT id, nom, prenom, email, telephone FROM client WHERE id = ?), " +
+            CHAMBRE_BY_ID_OR_NEW +
+            "r AS (INSERT INTO reservation (client_id, chambre_id, date_debut, date_fin, preferences) " +
+            "SELECT ?, ch.id, " + EPOCH_DAY + ", " + EPOCH_DAY + ", ? FROM ch " +
+            "RETURNING id, date_debut, date_fin, preferences) " +
+            SELECT_INSERTED);
+
+    static final Query FIND_BY_ID = new Query("reservation_find_by_id",
+            SELECT_COLUMNS + FROM_JOINED + "WHERE r.id = ?");
+
+    static final Query FIND_BY_IDS = new Query("reservation_find_by_ids",
+            SELECT_COLUMNS + FROM_JOINED + "WHERE r.id = ANY(?)");
+
+    /**
+     * Writes only the flagged columns and returns the updated row joined with its
+     * client and chambre, all in one round trip.
+     */
+    static final Query UPDATE = new Query("reservation_update",
+            "WITH r AS (UPDATE reservation SET " +
+            "date_debut = CASE WHEN ? THEN " + EPOCH_DAY + " ELSE date_debut END, " +
+            "date_fin = CASE WHEN ? THEN " + EPOCH_DAY + " ELSE date_fin END, " +
+            "preferences = CASE WHEN ? THEN CAST(? AS varchar) ELSE preferences END " +
+            "WHERE id = ? " +
+            "RETURNING id, client_id, chambre_id, date_debut, date_fin, preferences) " +
+            "SELECT r.id, r.date_debut, r.date_fin, r.preferences, " +
+            "c.id as c_id, c.nom, c.prenom, c.email, c.telephone, " +
+            "ch.id as ch_id, ch.type, ch.prix, ch.disponible" + EPOCH_COLUMNS +
+            "FROM r " +
+            "JOIN client c ON r.client_id = c.id " +
+            "JOIN chambre ch ON r.chambre_id = ch.id");
+
+    static final Query DELETE = new Query("reservation_delete",
+            "DELETE FROM reservation WHERE id = ?");
+
+    static final Query LIST = new Query("reservation_list",
+            SELECT_COLUMNS + FROM_JOINED +
+            "WHERE r.id > ? " +
+            "AND (CAST(? AS date) IS NULL OR r.date_fin >= ?) " +
+            "AND (CAST(? AS date) IS NULL OR r.date_debut <= ?) " +
+            "ORDER BY r.id " +
+            "LIMIT ?");
+
+    static final Query ALLOCATE_IDS = new Query("reservation_allocate_ids",
+            "SELECT nextval(s.client_seq), nextval(s.chambre_seq), nextval(s.reservation_seq) " +
+            "FROM (SELECT pg_get_serial_sequence('client', 'id') AS client_seq, " +
+            "pg_get_serial_sequence('chambre', 'id') AS chambre_seq, " +
+            "pg_get_serial_sequence('reservation', 'id') AS reservation_seq) s, " +
+            "generate_series(1, ?)");
+
+    static final Query INSERT_CLIENT = new Query("client_insert_batch",
+            "INSERT INTO client (id, nom, prenom, email, telephone) VALUES (?, ?, ?, ?, ?)");
+
+    static final Query UPSERT_CLIENT = new Query("client_upsert_batch",
+            "INSERT INTO client (id, nom, prenom, email, telephone) VALUES (?, ?, ?, ?, ?) " +
+            "ON CONFLICT (email) WHERE email <> '' DO NOTHING");
+
+    static final Query FIND_CLIENT_IDS = new Query("client_find_ids_by_email",
+            "SELECT id, email FROM client WHERE email = ANY(?)");
+
+    static final Query FIND_CLIENTS = new Query("client_find_by_ids",
+            "SELECT id, nom, prenom, email, telephone FROM client WHERE id = ANY(?)");
+
+    static final Query FIND_CHAMBRES = new Query("chambre_find_by_ids",
+            "SELECT id, type, prix, disponible FROM chambre WHERE id = ANY(?) FOR KEY SHARE");
+
+    static final Query INSERT_CHAMBRE = new Query("chambre_insert_batch",
+            "INSERT INTO chambre (id, type, prix, disponible) VALUES (?, ?, " + MINOR_UNITS + ", ?)");
+
+    static final Query INSERT_RESERVATION = new Query("reservation_insert_batch",
+            "INSERT INTO reservation (id, client_id, chambre_id, date_debut, date_fin, preferences) " +
+            "VALUES (?, ?, ?, " + EPOCH_DAY + ", " + EPOCH_DAY + ", ?)");
+
+    /**
+     * A reservation to create, with its dates as epoch days and the chambre's
+     * price in minor units: the SQL converts them, so v2 requests are stored
+     * as they arrive and only v1 requests are converted, once, here.
+     */
+    public static final class NewReservation {
+        private final Client client;
+        private final Chambre chambre;
+        private final long prixMinor;
+        private final int dateDebut;
+        private final int dateFin;
+        private final String preferences;
+
+        private NewReservation(Client client, Chambre chambre, long prixMinor, int dateDebut, int dateFin,
+                String preferences) {
+            this.client = client;
+            this.chambre = chambre;
+            this.prixMinor = prixMinor;
+            this.dateDebut = dateDebut;
+            this.dateFin = dateFin;
+            this.preferences = preferences;
+        }
+
+        /**
+         * @throws IllegalArgumentException if a date is not an ISO {@code yyyy-mm-dd} date
+         */
+        public static NewReservation of(CreateReservationRequest request) {
+            return new NewReservation(request.getClient(), request.getChambre(),
+                    Math.round(request.getChambre().getPrix() * 100),
+                    epochDay(request.getDateDebut()), epochDay(request.getDateFin()), request.getPreferences());
+        }
+
+        /**
+         * @param chambre its id, type and availability; the price is {@code prixMinor}
+         */
+        public static NewReservation of(Client client, Chambre chambre, long prixMinor, int dateDebut,
+                int dateFin, String preferences) {
+            return new NewReservation(client, chambre, prixMinor, dateDebut, dateFin, preferences);
+        }
+
+        public Chambre getChambre() {
+            return chambre;
+        }
+
+        Reservation withIds(long id, long clientId, long chambreId) {
+            return withRows(id, client.toBuilder().setId(clientId).build(),
+                    chambre.toBuilder().setId(chambreId).setPrix(prixMinor / 100.0).build());
+        }
+
+        Reservation withRows(long id, Client client, Chambre chambre) {
+            return Reservation.newBuilder()
+                    .setId(id)
+                    .setClient(client)
+                    .setChambre(chambre)
+                    .setDateDebut(LocalDate.ofEpochDay(dateDebut).toString())
+                    .setDateFin(LocalDate.ofEpochDay(dateFin).toString())
+                    .setPreferences(preferences)
+                    .build();
+        }
+    }
+
+    /** Maps a row of the reservation queries, which carry the columns of both versions. */
+    public interface RowMapper<T> {
+        T map(ResultSet rs) throws SQLException;
+    }
+
+    /** A stored reservation and the id of its client, for {@link ClientIdCache}. */
+    private static final class Created<T> {
+        private final T reservation;
+        private final long clientId;
+
+        private Created(T reservation, long clientId) {
+            this.reservation = reservation;
+            this.clientId = clientId;
+        }
+    }
+
+    /** The columns an update writes: those its field mask names, or all three when it names none. */
+    public static final class UpdateFields {
+        private final boolean dateDebut;
+        private final boolean dateFin;
+        private final boolean preferences;
+
+        private UpdateFields(boolean dateDebut, boolean dateFin, boolean preferences) {
+            this.dateDebut = dateDebut;
+            this.dateFin = dateFin;
+            this.preferences = preferences;
+        }
+
+        /**
+         * @throws IllegalArgumentException if a path is not {@code dateDebut},
+         *                                  {@code dateFin} or {@code preferences}
+         */
+        public static UpdateFields of(FieldMask mask) {
+            if (mask.getPathsCount() == 0) {
+                return new UpdateFields(true, true, true);
+            }
+            boolean dateDebut = false;
+            boolean dateFin = false;
+            boolean preferences = false;
+            for (String path : mask.getPathsList()) {
+                switch (path) {
+                    case "dateDebut":
+                        dateDebut = true;
+                        break;
+                    case "dateFin":
+                        dateFin = true;
+                        break;
+                    case "preferences":
+                        preferences = true;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unsupported update mask path: " + path);
+                }
+            }
+            return new UpdateFields(dateDebut, dateFin, preferences);
+        }
+    }
+
+    /** SQLSTATE for a foreign key violation. */
+    private static final String FOREIGN_KEY_VIOLATION = "23503";
+
+    private final DataSource dataSource;
+    private final ClientIdCache clientIds;
+
+    public ReservationDao(DataSource dataSource) {
+        this(dataSource, null);
+    }
+
+    /**
+     * @param clientIds email to client id cache; {@code null} disables
+     *                  deduplication and every create inserts new client and
+     *                  chambre rows
+     */
+    public ReservationDao(DataSource dataSource, ClientIdCache clientIds) {
+        this.dataSource = dataSource;
+        this.clientIds = clientIds;
+    }
+
+    /**
+     * Enables client and chambre deduplication unless
+     * {@code hotel.grpc.dedupe.enabled} is false, after making sure the unique
+     * email index it relies on exists, see {@link ClientEmailIndex}. If the
+     * index still cannot be built, the DAO keeps inserting new rows.
+     */
+    public static ReservationDao fromSettings(DataSource dataSource) {
+        if (!Settings.getBoolean("hotel.grpc.dedupe.enabled", true)) {
+            return new ReservationDao(dataSource);
+        }
+        try {
+            ClientEmailIndex.ensure(dataSource);
+        } catch (SQLException e) {
+            System.err.println("Client deduplication disabled, cannot index client emails: " + e.getMessage());
+            return new ReservationDao(dataSource);
+        }
+        return new ReservationDao(dataSource,
+                new ClientIdCache(Settings.getInt("hotel.grpc.dedupe.cache-entries", 100_000)));
+    }
+
+    /**
+     * Stores a reservation. With deduplication on, the client is found by email
+     * (from the cache when possible) and the chambre by id, and only missing rows
+     * are inserted. A chambre is inserted only for id 0.
+     *
+     * @throws UnknownChambreException with deduplication on, if the chambre id
+     *                                 is not 0 and does not exist
+     */
+    public Reservation create(NewReservation item) throws SQLException {
+        return create(item, ReservationDao::mapReservation);
+    }
+
+    /** {@link #create(NewReservation)} returning the stored row as {@code rows} maps it. */
+    public <T> T create(NewReservation item, RowMapper<T> rows) throws SQLException {
+        if (clientIds == null) {
+            return createNew(item, rows);
+        }
+        String email = item.client.getEmail();
+        if (!email.isEmpty()) {
+            Long clientId = clientIds.get(email);
+            if (clientId != null) {
+                try {
+                    return createForClient(item, clientId, rows);
+                } catch (SQLException e) {
+                    if (!FOREIGN_KEY_VIOLATION.equals(e.getSQLState())) {
+                        throw e;
+                    }
+                    // The cached client is gone, for instance merged away; fall back to the upsert
+                    clientIds.invalidate(email);
+                }
+            }
+        }
+        Created<T> created = createDeduped(item, rows);
+        if (created == null) {
+            created = createDeduped(item, rows);
+        }
+        if (created == null) {
+            throw new SQLException("Client " + email + " could neither be inserted nor found");
+        }
+        if (!email.isEmpty()) {
+            clientIds.put(email, created.clientId);
+        }
+        return created.reservation;
+    }
+
+    private <T> T createNew(NewReservation item, RowMapper<T> rows) throws SQLException {
+        try (Connection conn = CallDeadline.getConnection(dataSource);
+                PreparedStatement ps = CREATE.prepare(conn)) {
+            ps.setString(1, item.client.getNom());
+            ps.setString(2, item.client.getPrenom());
+            ps.setString(3, item.client.getEmail());
+            ps.setString(4, item.client.getTelephone());
+            ps.setString(5, item.chambre.getType());
+            ps.setLong(6, item.prixMinor);
+            ps.setBoolean(7, item.chambre.getDisponible());
+            bindDates(ps, 8, item);
+            try (ResultSet rs = CREATE.executeQuery(ps)) {
+                rs.next();
+                return rows.map(rs);
+            }
+        }
+    }
+
+    private <T> Created<T> createDeduped(NewReservation item, RowMapper<T> rows) throws SQLException {
+        try (Connection conn = CallDeadline.getConnection(dataSource);
+                PreparedStatement ps = CREATE_DEDUPED.prepare(conn)) {
+            bindChambre(ps, 1, item);
+            ps.setString(5, item.client.getNom());
+            ps.setString(6, item.client.getPrenom());
+            ps.setString(7, item.client.getEmail());
+            ps.setString(8, item.client.getTelephone());
+            ps.setString(9, item.client.getEmail());
+            bindDates(ps, 10, item);
+            try (ResultSet rs = CREATE_DEDUPED.executeQuery(ps)) {
+                if (!rs.next()) {
+                    throw new UnknownChambreException(Set.of(item.chambre.getId()));
+                }
+                return rs.getObject("id") == null ? null : new Created<>(rows.map(rs), rs.getLong("c_id"));
+            }
+        }
+    }
+
+    private <T> T createForClient(NewReservation item, long clientId, RowMapper<T> rows) throws SQLException {
+        try (Connection conn = CallDeadline.getConnection(dataSource);
+                PreparedStatement ps = CREATE_FOR_CLIENT.prepare(conn)) {
+            ps.setLong(1, clientId);
+            bindChambre(ps, 2, item);
+            ps.setLong(6, clientId);
+            bindDates(ps, 7, item);
+            try (ResultSet rs = CREATE_FOR_CLIENT.executeQuery(ps)) {
+                if (!rs.next()) {
+                    throw new UnknownChambreException(Set.of(item.chambre.getId()));
+                }
+                return rows.map(rs);
+            }
+        }
+    }
+
+    /** Binds {@link #CHAMBRE_BY_ID_OR_NEW}. */
+    private static void bindChambre(PreparedStatement ps, int first, NewReservation item) throws SQLException {
+        ps.setLong(first, item.chambre.getId());
+        ps.setString(first + 1, item.chambre.getType());
+        ps.setLong(first + 2, item.prixMinor);
+        ps.setBoolean(first + 3, item.chambre.getDisponible());
+    }
+
+    private static void bindDates(PreparedStatement ps, int first, NewReservation item) throws SQLException {
+        ps.setInt(first, item.dateDebut);
+        ps.setInt(first + 1, item.dateFin);
+        ps.setString(first + 2, item.preferences);
+    }
+
+    /**
+     * Stores {@code items} in one transaction: ids for all three tables are
+     * reserved in one query, then each table is written with a single JDBC
+     * batch, which {@code reWriteBatchedInserts} sends as multi-row inserts.
+     * With deduplication on, clients are first resolved by email and chambres
+     * with an id are reused, and the stored rows are read back for the result.
+     * Nothing is stored if any item fails.
+     *
+     * @throws UnknownChambreException with deduplication on, if items name
+     *                                 chambre ids that do not exist
+     */
+    public List<Reservation> createBatch(List<NewReservation> items) throws SQLException {
+        try (Connection conn = CallDeadline.getConnection(dataSource)) {
+            conn.setAutoCommit(false);
+            try {
+                Map<Long, Chambre> chambres = clientIds == null ? Map.of() : findChambres(conn, items);
+                long[][] ids = allocateIds(conn, items.size());
+                Map<String, Long> resolved = clientIds == null ? Map.of() : resolveClients(conn, items, ids);
+                insertBatch(conn, items, ids);
+                Reservation[] created = clientIds == null
+                        ? withIds(items, ids)
+                        : withStoredRows(conn, items, ids, chambres);
+                conn.commit();
+                if (clientIds != null) {
+                    resolved.forEach(clientIds::put);
+                }
+                return List.of(created);
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    private static Reservation[] withIds(List<NewReservation> items, long[][] ids) {
+        Reservation[] created = new Reservation[items.size()];
+        for (int i = 0; i < created.length; i++) {
+            created[i] = items.get(i).withIds(ids[i][2], ids[i][0], ids[i][1]);
+        }
+        return created;
+    }
+
+    /**
+     * Reads the chambres the items name by id, locked as the reservations'
+     * foreign key would lock them, so that they cannot be deleted before the
+     * batch is inserted.
+     *
+     * @throws UnknownChambreException if some of them do not exist
+     */
+    private static Map<Long, Chambre> findChambres(Connection conn, List<NewReservation> items)
+            throws SQLException {
+        Set<Long> named = new LinkedHashSet<>();
+        for (NewReservation item : items) {
+            long id = item.chambre.getId();
+            if (id != 0) {
+                named.add(id);
+            }
+        }
+        Map<Long, Chambre> chambres = new HashMap<>();
+        if (named.isEmpty()) {
+            return chambres;
+        }
+        try (PreparedStatement ps = FIND_CHAMBRES.prepare(conn)) {
+            ps.setArray(1, conn.createArrayOf("bigint", named.toArray()));
+            try (ResultSet rs = FIND_CHAMBRES.executeQuery(ps)) {
+                while (rs.next()) {
+                    chambres.put(rs.getLong("id"), Chambre.newBuilder()
+                            .setId(rs.getLong("id"))
+                            .setType(rs.getString("type"))
+                            .setPrix(rs.getDouble("prix"))
+                            .setDisponible(rs.getBoolean("disponible"))
+                            .build());
+                }
+            }
+        }
+        named.removeAll(chambres.keySet());
+        if (!named.isEmpty()) {
+            throw new UnknownChambreException(named);
+        }
+        return chambres;
+    }
+
+    /**
+     * Like {@link #withIds}, but with the stored client of every item that has
+     * an email and the stored chambre of every item that named one: those may
+     * be existing rows that differ from the request.
+     */
+    private static Reservation[] withStoredRows(Connection conn, List<NewReservation> items, long[][] ids,
+            Map<Long, Chambre> chambres) throws SQLException {
+        Set<Long> clientRowIds = new LinkedHashSet<>();
+        for (int i = 0; i < items.size(); i++) {
+            if (!items.get(i).client.getEmail().isEmpty()) {
+                clientRowIds.add(ids[i][0]);
+            }
+        }
+        Map<Long, Client> clients = new HashMap<>();
+        if (!clientRowIds.isEmpty()) {
+            try (PreparedStatement ps = FIND_CLIENTS.prepare(conn)) {
+                ps.setArray(1, conn.createArrayOf("bigint", clientRowIds.toArray()));
+                try (ResultSet rs = FIND_CLIENTS.executeQuery(ps)) {
+                    while (rs.next()) {
+                        clients.put(rs.getLong("id"), Client.newBuilder()
+                                .setId(rs.getLong("id"))
+                                .setNom(rs.getString("nom"))
+                                .setPrenom(rs.getString("prenom"))
+                                .setEmail(rs.getString("email"))
+                                .setTelephone(rs.getString("telephone"))
+                                .build());
+                    }
+                }
+            }
+        }
+
+        Reservation[] created = new Reservation[items.size()];
+        for (int i = 0; i < created.length; i++) {
+            Reservation requested = items.get(i).withIds(ids[i][2], ids[i][0], ids[i][1]);
+            Client client = clients.get(ids[i][0]);
+            Chambre chambre = chambres.get(ids[i][1]);
+            created[i] = items.get(i).withRows(ids[i][2],
+                    client != null ? client : requested.getClient(),
+                    chambre != null ? chambre : requested.getChambre());
+        }
+        return created;
+    }
+
+    /** Returns the reservation with its client and chambre, or {@code null}. */
+    public Reservation findById(long id) throws SQLException {
+        try (Connection conn = CallDeadline.getConnection(dataSource);
+                PreparedStatement ps = FIND_BY_ID.prepare(conn)) {
+            ps.setLong(1, id);
+            try (ResultSet rs = FIND_BY_ID.executeQuery(ps)) {
+                return rs.next() ? mapReservation(rs) : null;
+            }
+        }
+    }
+
+    /** Returns the reservations among {@code ids} that exist, by id, read with one query. */
+    public Map<Long, Reservation> findByIds(Collection<Long> ids) throws SQLException {
+        Map<Long, Reservation> found = new HashMap<>();
+        try (Connection conn = CallDeadline.getConnection(dataSource);
+                PreparedStatement ps = FIND_BY_IDS.prepare(conn)) {
+            ps.setArray(1, conn.createArrayOf("bigint", ids.toArray()));
+            try (ResultSet rs = FIND_BY_IDS.executeQuery(ps)) {
+                while (rs.next()) {
+                    Reservation reservation = mapReservation(rs);
+                    found.put(reservation.getId(), reservation);
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Writes the flagged fields of {@code request} and returns the updated
+     * reservation, or {@code null} if it does not exist.
+     *
+     * @throws IllegalArgumentException if a flagged date is not an ISO date
+     */
+    public Reservation update(UpdateReservationRequest request, UpdateFields fields) throws SQLException {
+        return update(request.getId(), fields,
+                fields.dateDebut ? epochDay(request.getDateDebut()) : 0,
+                fields.dateFin ? epochDay(request.getDateFin()) : 0,
+                request.getPreferences(), ReservationDao::mapReservation);
+    }
+
+    /**
+     * Writes the flagged fields, dates as epoch days, and returns the updated
+     * row as {@code rows} maps it, or {@code null} if it does not exist.
+     */
+    public <T> T update(long id, UpdateFields fields, int dateDebut, int dateFin, String preferences,
+            RowMapper<T> rows) throws SQLException {
+        try (Connection conn = CallDeadline.getConnection(dataSource);
+                PreparedStatement ps = UPDATE.prepare(conn)) {
+            ps.setBoolean(1, fields.dateDebut);
+            ps.setInt(2, dateDebut);
+            ps.setBoolean(3, fields.dateFin);
+            ps.setInt(4, dateFin);
+            ps.setBoolean(5, fields.preferences);
+            ps.setString(6, fields.preferences ? preferences : null);
+            ps.setLong(7, id);
+            try (ResultSet rs = UPDATE.executeQuery(ps)) {
+                return rs.next() ? rows.map(rs) : null;
+            }
+        }
+    }
+
+    public boolean delete(long id) throws SQLException {
+        try (Connection conn = CallDeadline.getConnection(dataSource);
+                PreparedStatement ps = DELETE.prepare(conn)) {
+            ps.setLong(1, id);
+            return DELETE.executeUpdate(ps) > 0;
+        }
+    }
+
+    /**
+     * Opens a server-side cursor over the reservations matching {@code request}.
+     * The query runs in a read-only transaction, which is what makes the driver
+     * honour {@code fetchSize} instead of loading every row.
+     *
+     * @throws IllegalArgumentException if a date filter is not an ISO date
+     */
+    public ReservationCursor list(ListReservationsRequest request, int fetchSize) throws SQLException {
+        Date from = request.getDateFrom().isEmpty() ? null : Date.valueOf(request.getDateFrom());
+        Date to = request.getDateTo().isEmpty() ? null : Date.valueOf(request.getDateTo());
+
+        Connection conn = CallDeadline.getConnection(dataSource);
+        try {
+            conn.setAutoCommit(false);
+            conn.setReadOnly(true);
+            PreparedStatement ps = LIST.prepare(conn);
+            ps.setFetchSize(fetchSize);
+            ps.setLong(1, request.getAfterId());
+            ps.setDate(2, from);
+            ps.setDate(3, from);
+            ps.setDate(4, to);
+            ps.setDate(5, to);
+            if (request.getLimit() > 0) {
+                ps.setInt(6, request.getLimit());
+            } else {
+                ps.setNull(6, Types.INTEGER);
+            }
+            return new ReservationCursor(conn, ps, LIST.executeQuery(ps));
+        } catch (SQLException | RuntimeException e) {
+            conn.close();
+            throw e;
+        }
+    }
+
+    private long[][] allocateIds(Connection conn, int count) throws SQLException {
+        long[][] ids = new long[count][];
+        try (PreparedStatement ps = ALLOCATE_IDS.prepare(conn)) {
+            ps.setInt(1, count);
+            try (ResultSet rs = ALLOCATE_IDS.executeQuery(ps)) {
+                for (int i = 0; i < count && rs.next(); i++) {
+                    ids[i] = new long[] { rs.getLong(1), rs.getLong(2), rs.getLong(3) };
+                }
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Points {@code ids[i][0]} at the existing client for every item with a
+     * known email, inserting the missing ones, and returns the ids it had to
+     * look up so they can be cached once the transaction commits.
+     */
+    private Map<String, Long> resolveClients(Connection conn, List<NewReservation> items, long[][] ids)
+            throws SQLException {
+        Map<String, Long> known = new HashMap<>();
+        Set<String> missing = new LinkedHashSet<>();
+        try (PreparedStatement ps = UPSERT_CLIENT.prepare(conn)) {
+            boolean any = false;
+            for (int i = 0; i < items.size(); i++) {
+                Client client = items.get(i).client;
+                String email = client.getEmail();
+                if (!email.isEmpty()) {
+                    if (known.containsKey(email) || missing.contains(email)) {
+                        continue;
+                    }
+                    Long cached = clientIds.get(email);
+                    if (cached != null) {
+                        known.put(email, cached);
+                        continue;
+                    }
+                    missing.add(email);
+                }
+                bindClient(ps, ids[i][0], client);
+                ps.addBatch();
+                any = true;
+            }
+            if (any) {
+                UPSERT_CLIENT.executeBatch(ps);
+            }
+        }
+        if (missing.isEmpty()) {
+            applyClientIds(items, ids, known);
+            return Map.of();
+        }
+
+        Map<String, Long> found = new HashMap<>();
+        try (PreparedStatement ps = FIND_CLIENT_IDS.prepare(conn)) {
+            ps.setArray(1, conn.createArrayOf("varchar", missing.toArray()));
+            try (ResultSet rs = FIND_CLIENT_IDS.executeQuery(ps)) {
+                while (rs.next()) {
+                    found.put(rs.getString("email"), rs.getLong("id"));
+                }
+            }
+        }
+        if (found.size() < missing.size()) {
+            throw new SQLException("Some clients could neither be inserted nor found");
+        }
+        known.putAll(found);
+        applyClientIds(items, ids, known);
+        return found;
+    }
+
+    private static void applyClientIds(List<NewReservation> items, long[][] ids, Map<String, Long> byEmail) {
+        for (int i = 0; i < items.size(); i++) {
+            String email = items.get(i).client.getEmail();
+            if (!email.isEmpty()) {
+                ids[i][0] = byEmail.get(email);
+            }
+        }
+    }
+
+    private static void bindClient(PreparedStatement ps, long id, Client client) throws SQLException {
+        ps.setLong(1, id);
+        ps.setString(2, client.getNom());
+        ps.setString(3, client.getPrenom());
+        ps.setString(4, client.getEmail());
+        ps.setString(5, client.getTelephone());
+    }
+
+    private void insertBatch(Connection conn, List<NewReservation> items, long[][] ids) throws SQLException {
+        if (clientIds == null) {
+            try (PreparedStatement ps = INSERT_CLIENT.prepare(conn)) {
+                for (int i = 0; i < items.size(); i++) {
+                    bindClient(ps, ids[i][0], items.get(i).client);
+                    ps.addBatch();
+                }
+                INSERT_CLIENT.executeBatch(ps);
+            }
+        }
+        try (PreparedStatement ps = INSERT_CHAMBRE.prepare(conn)) {
+            boolean any = false;
+            for (int i = 0; i < items.size(); i++) {
+                NewReservation item = items.get(i);
+                if (clientIds != null && item.chambre.getId() != 0) {
+                    // Existing room, checked by findChambres
+                    ids[i][1] = item.chambre.getId();
+                    continue;
+                }
+                ps.setLong(1, ids[i][1]);
+                ps.setString(2, item.chambre.getType());
+                ps.setLong(3, item.prixMinor);
+                ps.setBoolean(4, item.chambre.getDisponible());
+                ps.addBatch();
+                any = true;
+            }
+            if (any) {
+                INSERT_CHAMBRE.executeBatch(ps);
+            }
+        }
+        try (PreparedStatement ps = INSERT_RESERVATION.prepare(conn)) {
+            for (int i = 0; i < items.size(); i++) {
+                NewReservation item = items.get(i);
+                ps.setLong(1, ids[i][2]);
+                ps.setLong(2, ids[i][0]);
+                ps.setLong(3, ids[i][1]);
+                bindDates(ps, 4, item);
+                ps.addBatch();
+            }
+            INSERT_RESERVATION.executeBatch(ps);
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if {@code isoDate} is not an ISO {@code yyyy-mm-dd} date
+     */
+    private static int epochDay(String isoDate) {
+        return (int) Date.valueOf(isoDate).toLocalDate().toEpochDay();
+    }
+
+    static Reservation mapReservation(ResultSet rs) throws SQLException {
+        Client client = Client.newBuilder()
+                .setId(rs.getLong("c_id"))
+                .setNom(rs.getString("nom"))
+                .setPrenom(rs.getString("prenom"))
+                .setEmail(rs.getString("email"))
+                .setTelephone(rs.getString("telephone"))
+                .build();
+
+        Chambre chambre = Chambre.newBuilder()
+                .setId(rs.getLong("ch_id"))
+                .setType(rs.getString("type"))
+                .setPrix(rs.getDouble("prix"))
+                .setDisponible(rs.getBoolean("disponible"))
+                .build();
+
+        return Reservation.newBuilder()
+                .setId(rs.getLong("id"))
+                .setClient(client)
+                .setChambre(chambre)
+                .setDateDebut(rs.getDate("date_debut").toString())
+                .setDateFin(rs.getDate("date_fin").toString())
+                .setPreferences(rs.getString("preferences"))
+                .build();
+    }
+}
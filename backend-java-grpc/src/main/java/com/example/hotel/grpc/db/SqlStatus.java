@@ -0,0 +1,33 @@
+package com.example.hotel.grpc.db;
+
+import io.grpc.Status;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientConnectionException;
+
+/**
+ * Maps JDBC failures to what the services report to gRPC clients.
+ */
+public final class SqlStatus {
+
+    private SqlStatus() {
+    }
+
+    public static Throwable toStatus(SQLException e) {
+        if (e instanceof UnknownChambreException) {
+            return Status.NOT_FOUND.withDescription(e.getMessage()).asRuntimeException();
+        }
+        if (e instanceof SQLTransientConnectionException) {
+            // Pool exhausted: let clients back off and retry instead of failing hard
+            return Status.UNAVAILABLE.withDescription(e.getMessage()).withCause(e).asRuntimeException();
+        }
+        if (e instanceof SQLTimeoutException) {
+            return Status.DEADLINE_EXCEEDED.withDescription(e.getMessage()).withCause(e).asRuntimeException();
+        }
+        if (CallDeadline.QUERY_CANCELED.equals(e.getSQLState())) {
+            return Status.CANCELLED.withDescription(e.getMessage()).withCause(e).asRuntimeException();
+        }
+        return e;
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.hotel.grpc.db;
+
+import java.sql.SQLException;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * A create named chambre ids that are not stored. Only id 0 asks for a new
+ * chambre; any other id must exist, and nothing is written when one does not.
+ */
+public class UnknownChambreException extends SQLException {
+
+    private final Set<Long> chambreIds;
+
+    UnknownChambreException(Set<Long> chambreIds) {
+        super(chambreIds.stream().map(String::valueOf)
+                .collect(Collectors.joining(", ", chambreIds.size() == 1 ? "Chambre " : "Chambres ", " not found")));
+        this.chambreIds = Set.copyOf(chambreIds);
+    }
+
+    public Set<Long> getChambreIds() {
+        return chambreIds;
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.hotel.grpc.metrics;
+
+import com.example.hotel.grpc.cache.EncodedResponseCache;
+import io.prometheus.client.Collector;
+import io.prometheus.client.CounterMetricFamily;
+import io.prometheus.client.GaugeMetricFamily;
+
+import java.util.List;
+
+/**
+ * Publishes the {@code GetReservation} response cache statistics.
+ */
+public class CacheCollector extends Collector {
+
+    private final EncodedResponseCache cache;
+
+    public CacheCollector(EncodedResponseCache cache) {
+        this.cache = cache;
+    }
+
+    @Override
+    public List<MetricFamilySamples> collect() {
+        long hits = cache.getHits();
+        long misses = cache.getMisses();
+        return List.of(
+                new CounterMetricFamily("hotel_grpc_cache_hits", "Lookups served from the cache", hits),
+                new CounterMetricFamily("hotel_grpc_cache_misses", "Lookups that went to the database", misses),
+                new CounterMetricFamily("hotel_grpc_cache_evictions", "Entries evicted to stay within bounds",
+                        cache.getEvictions()),
+                new CounterMetricFamily("hotel_grpc_cache_expirations", "Entries dropped after their time to live",
+                        cache.getExpirations()),
+                new CounterMetricFamily("hotel_grpc_cache_dropped_puts",
+                        "Loads not cached because the reservation was invalidated meanwhile", cache.getDroppedPuts()),
+                new GaugeMetricFamily("hotel_grpc_cache_hit_ratio", "Hits over lookups since start",
+                        hits + misses == 0 ? 0 : (double) hits / (hits + misses)),
+                new GaugeMetricFamily("hotel_grpc_cache_entries", "Cached responses", cache.size()),
+                new GaugeMetricFamily("hotel_grpc_cache_payload_bytes", "Encoded response bytes held",
+                        cache.getPayloadBytes()),
+                new GaugeMetricFamily("hotel_grpc_cache_footprint_bytes",
+                        "Estimated heap used by the cache, including its tables", cache.getFootprintBytes()));
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.hotel.grpc.metrics;
+
+import com.example.hotel.grpc.db.ConnectionPool;
+import io.prometheus.client.Collector;
+import io.prometheus.client.GaugeMetricFamily;
+
+import java.util.List;
+
+/**
+ * Publishes the connection pool gauges, sampled on every scrape.
+ */
+public class ConnectionPoolCollector extends Collector {
+
+    private final ConnectionPool pool;
+
+    public ConnectionPoolCollector(ConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public List<MetricFamilySamples> collect() {
+        return List.of(
+                new GaugeMetricFamily("hotel_db_pool_active_connections",
+                        "Connections currently borrowed from the pool", pool.getActiveConnections()),
+                new GaugeMetricFamily("hotel_db_pool_idle_connections",
+                        "Connections open and waiting in the pool", pool.getIdleConnections()),
+                new GaugeMetricFamily("hotel_db_pool_pending_threads",
+                        "Threads blocked waiting to borrow a connection", pool.getThreadsAwaitingConnection()),
+                new GaugeMetricFamily("hotel_db_pool_max_connections",
+                        "Upper bound on pooled connections", pool.getSize()));
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.hotel.grpc.metrics;
+
+import com.example.hotel.grpc.server.ServerExecutors;
+import io.prometheus.client.Collector;
+import io.prometheus.client.CounterMetricFamily;
+import io.prometheus.client.GaugeMetricFamily;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Publishes JVM thread counts and, in the bounded and hybrid modes, the state
+ * of the gRPC worker pool.
+ */
+public class ExecutorCollector extends Collector {
+
+    private final ServerExecutors executors;
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+    public ExecutorCollector(ServerExecutors executors) {
+        this.executors = executors;
+    }
+
+    @Override
+    public List<MetricFamilySamples> collect() {
+        List<MetricFamilySamples> samples = new ArrayList<>();
+        samples.add(new GaugeMetricFamily("hotel_jvm_threads",
+                "Live platform threads in the JVM", threads.getThreadCount()));
+        samples.add(new GaugeMetricFamily("hotel_jvm_threads_peak",
+                "Peak live platform threads since start", threads.getPeakThreadCount()));
+
+        ThreadPoolExecutor pool = executors.getBoundedPool();
+        if (pool != null) {
+            samples.add(new GaugeMetricFamily("hotel_grpc_executor_active_threads",
+                    "Worker threads currently running a task", pool.getActiveCount()));
+            samples.add(new GaugeMetricFamily("hotel_grpc_executor_pool_threads",
+                    "Worker threads started", pool.getPoolSize()));
+            samples.add(new GaugeMetricFamily("hotel_grpc_executor_queue_depth",
+                    "Tasks waiting for a worker thread", pool.getQueue().size()));
+            samples.add(new CounterMetricFamily("hotel_grpc_executor_rejected",
+                    "Tasks rejected because the queue was full", executors.getRejectedCount()));
+        }
+        return samples;
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.hotel.grpc.metrics;
+
+import com.example.hotel.grpc.server.AdaptiveLimit;
+import io.prometheus.client.Collector;
+import io.prometheus.client.GaugeMetricFamily;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Publishes the adaptive concurrency limit and the latency estimates behind it.
+ */
+public class LimiterCollector extends Collector {
+
+    private final AdaptiveLimit limit;
+
+    public LimiterCollector(AdaptiveLimit limit) {
+        this.limit = limit;
+    }
+
+    @Override
+    public List<MetricFamilySamples> collect() {
+        List<MetricFamilySamples> samples = new ArrayList<>();
+        samples.add(new GaugeMetricFamily("hotel_grpc_limiter_limit",
+                "Current concurrency limit", limit.getLimit()));
+        samples.add(new GaugeMetricFamily("hotel_grpc_limiter_in_flight",
+                "Calls holding a limiter slot", limit.getInFlight()));
+        samples.add(new GaugeMetricFamily("hotel_grpc_limiter_queue_depth",
+                "Calls estimated to be queueing rather than being served", limit.getEstimatedQueue()));
+
+        GaugeMetricFamily rtt = new GaugeMetricFamily("hotel_grpc_limiter_rtt_seconds",
+                "Average unary latency over the last window and the long-term baseline", List.of("window"));
+        rtt.addMetric(List.of("short"), limit.getShortRttSeconds());
+        rtt.addMetric(List.of("long"), limit.getLongRttSeconds());
+        samples.add(rtt);
+        return samples;
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.hotel.grpc.metrics;
+
+import com.google.protobuf.MessageLite;
+import io.grpc.ForwardingServerCall;
+import io.grpc.ForwardingServerCallListener;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.Status;
+import io.prometheus.client.Counter;
+import io.prometheus.client.Gauge;
+import io.prometheus.client.Histogram;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Records latency, in-flight calls, status codes and message sizes for every
+ * call, labelled by full method name.
+ */
+public class MetricsInterceptor implements ServerInterceptor {
+
+    private static final Histogram LATENCY = Histogram.build()
+            .name("hotel_grpc_server_handling_seconds")
+            .help("Time from call start to status sent")
+            .labelNames("method")
+            .buckets(0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10)
+            .register();
+    private static final Gauge IN_FLIGHT = Gauge.build()
+            .name("hotel_grpc_server_in_flight_calls")
+            .help("Calls started and not yet finished")
+            .labelNames("method")
+            .register();
+    private static final Counter HANDLED = Counter.build()
+            .name("hotel_grpc_server_handled_total")
+            .help("Finished calls by status code")
+            .labelNames("method", "code")
+            .register();
+    private static final Histogram REQUEST_BYTES = Histogram.build()
+            .name("hotel_grpc_server_request_message_bytes")
+            .help("Serialized size of received messages")
+            .labelNames("method")
+            .exponentialBuckets(32, 4, 9)
+            .register();
+    private static final Histogram RESPONSE_BYTES = Histogram.build()
+            .name("hotel_grpc_server_response_message_bytes")
+            .help("Serialized size of sent messages")
+            .labelNames("method")
+            .exponentialBuckets(32, 4, 9)
+            .register();
+
+    @Override
+    public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(ServerCall<ReqT, RespT> call, Metadata headers,
+            ServerCallHandler<ReqT, RespT> next) {
+        String method = call.getMethodDescriptor().getFullMethodName();
+        CallRecorder recorder = new CallRecorder(method);
+
+        ServerCall<ReqT, RespT> recordingCall = new ForwardingServerCall.SimpleForwardingServerCall<>(call) {
+            @Override
+            public void sendMessage(RespT message) {
+                RESPONSE_BYTES.labels(method).observe(sizeOf(message));
+                super.sendMessage(message);
+            }
+
+            @Override
+            public void close(Status status, Metadata trailers) {
+                recorder.finish(status.getCode());
+                super.close(status, trailers);
+            }
+        };
+
+        ServerCall.Listener<ReqT> listener = next.startCall(recordingCall, headers);
+        return new ForwardingServerCallListener.SimpleForwardingServerCallListener<>(listener) {
+            @Override
+            public void onMessage(ReqT message) {
+                REQUEST_BYTES.labels(method).observe(sizeOf(message));
+                super.onMessage(message);
+            }
+
+            @Override
+            public void onCancel() {
+                recorder.finish(Status.Code.CANCELLED);
+                super.onCancel();
+            }
+        };
+    }
+
+    static int sizeOf(Object message) {
+        if (message instanceof MessageLite) {
+            return ((MessageLite) message).getSerializedSize();
+        }
+        if (message instanceof byte[]) {
+            return ((byte[]) message).length;
+        }
+        return 0;
+    }
+
+    private static final class CallRecorder {
+        private final String method;
+        private final long startNanos = System.nanoTime();
+        private final AtomicBoolean finished = new AtomicBoolean();
+
+        CallRecorder(String method) {
+            this.method = method;
+            IN_FLIGHT.labels(method).inc();
+        }
+
+        void finish(Status.Code code) {
+            if (finished.compareAndSet(false, true)) {
+                LATENCY.labels(method).observe((System.nanoTime() - startNanos) / 1e9);
+                HANDLED.labels(method, code.name()).inc();
+                IN_FLIGHT.labels(method).dec();
+            }
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.hotel.grpc.metrics;
+
+import com.example.hotel.grpc.db.ConnectionPool;
+import com.example.hotel.grpc.db.Query;
+import io.prometheus.client.Collector;
+import io.prometheus.client.GaugeMetricFamily;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Publishes the server-side prepared statements of one pooled connection,
+ * read from {@code pg_prepared_statements} on every scrape.
+ * <p>
+ * That view only shows the session that reads it, so each scrape borrows
+ * whichever connection is idle, and skips the sample when none is. A
+ * statement parsed once and then reused shows as one prepared statement whose
+ * executions keep growing; more than one, or executions that reset, mean the
+ * driver parsed the query again.
+ */
+public class PreparedStatementCollector extends Collector {
+
+    // A plain Statement runs as an unnamed one-shot statement, so it never shows up here itself
+    private static final String PREPARED_STATEMENTS =
+            "SELECT statement, generic_plans + custom_plans FROM pg_prepared_statements WHERE NOT from_sql";
+
+    private final ConnectionPool pool;
+
+    public PreparedStatementCollector(ConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public List<MetricFamilySamples> collect() {
+        if (pool.getIdleConnections() == 0) {
+            return List.of();
+        }
+        Map<String, long[]> byText = new HashMap<>();
+        try (Connection conn = pool.getConnection();
+                Statement st = conn.createStatement();
+                ResultSet rs = st.executeQuery(PREPARED_STATEMENTS)) {
+            while (rs.next()) {
+                long[] sample = byText.computeIfAbsent(rs.getString(1), text -> new long[2]);
+                sample[0]++;
+                sample[1] += rs.getLong(2);
+            }
+        } catch (SQLException e) {
+            return List.of();
+        }
+
+        GaugeMetricFamily statements = new GaugeMetricFamily("hotel_db_prepared_statements",
+                "Server-side prepared statements of each query on the sampled pooled connection",
+                List.of("statement"));
+        GaugeMetricFamily executions = new GaugeMetricFamily("hotel_db_prepared_statement_executions",
+                "Executions of those prepared statements since they were parsed", List.of("statement"));
+        for (Query query : Query.all()) {
+            long[] sample = byText.getOrDefault(query.getServerSql(), new long[2]);
+            statements.addMetric(List.of(query.getName()), sample[0]);
+            executions.addMetric(List.of(query.getName()), sample[1]);
+        }
+        return List.of(statements, executions);
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.hotel.grpc.server;
+
+import com.example.hotel.grpc.config.Settings;
+
+/**
+ * Concurrency limit that follows the latency the server actually delivers,
+ * in the style of the gradient limiters used by Netflix concurrency-limits.
+ * <p>
+ * A slowly rising baseline RTT stands for the latency without queueing and
+ * the average of the last window of samples for the current latency. Every window
+ * the limit moves towards {@code limit * long / short + sqrt(limit)}: while the
+ * two agree it grows by the square-root headroom, and once requests start to
+ * queue in front of the database the ratio drops below one and pulls it back.
+ * The limit only grows while at least half of it is in use, so a quiet server
+ * does not drift to the maximum.
+ * <p>
+ * When writes are prioritized, reads may only take {@code readSharePercent} of
+ * the slots and the rest stays available to writes.
+ */
+public class AdaptiveLimit {
+
+    private static final double SMOOTHING = 0.2;
+    private static final double TOLERANCE = 1.5;
+    /** Per-window weight with which the baseline follows latency above it. */
+    private static final double BASELINE_DRIFT = 0.05;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final int window;
+    private final int readSharePercent;
+
+    private double limit;
+    private int inFlight;
+    private int maxInFlight;
+    private double longRttNanos;
+    private double shortRttNanos;
+    private long windowSumNanos;
+    private int windowCount;
+
+    public AdaptiveLimit(int initialLimit, int minLimit, int maxLimit, int window, int readSharePercent) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.window = Math.max(1, window);
+        this.readSharePercent = Math.max(1, Math.min(100, readSharePercent));
+        this.limit = Math.max(this.minLimit, Math.min(this.maxLimit, initialLimit));
+    }
+
+    public static AdaptiveLimit fromSettings() {
+        boolean prioritizeWrites = Settings.getBoolean("hotel.grpc.limit.prioritize-writes", false);
+        return new AdaptiveLimit(
+                Settings.getInt("hotel.grpc.limit.initial", 20),
+                Settings.getInt("hotel.grpc.limit.min", 4),
+                Settings.getInt("hotel.grpc.limit.max", 500),
+                Settings.getInt("hotel.grpc.limit.window", 50),
+                prioritizeWrites ? Settings.getInt("hotel.grpc.limit.read-share-percent", 80) : 100);
+    }
+
+    /** Takes a slot, or returns {@code false} if the call should be shed. */
+    public synchronized boolean tryAcquire(boolean write) {
+        int capacity = (int) limit;
+        if (!write) {
+            capacity = Math.max(1, capacity * readSharePercent / 100);
+        }
+        if (inFlight >= capacity) {
+            return false;
+        }
+        inFlight++;
+        maxInFlight = Math.max(maxInFlight, inFlight);
+        return true;
+    }
+
+    /** Returns a slot without a latency sample, e.g. for cancelled or streaming calls. */
+    public synchronized void release() {
+        inFlight--;
+    }
+
+    /** Returns a slot and feeds the call's latency into the estimate. */
+    public synchronized void release(long rttNanos) {
+        inFlight--;
+        windowSumNanos += rttNanos;
+        if (++windowCount >= window) {
+            update((double) windowSumNanos / windowCount);
+            windowSumNanos = 0;
+            windowCount = 0;
+            maxInFlight = inFlight;
+        }
+    }
+
+    private void update(double rtt) {
+        shortRttNanos = rtt;
+        boolean saturated = maxInFlight >= limit / 2;
+        // The baseline drops to any faster window at once but only follows slower
+        // windows while the limit is not in use, so that latency added by our own
+        // queueing shows as a gradient below one instead of raising the baseline
+        if (longRttNanos == 0 || rtt < longRttNanos) {
+            longRttNanos = rtt;
+        } else if (!saturated) {
+            longRttNanos += (rtt - longRttNanos) * BASELINE_DRIFT;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longRttNanos / rtt));
+        double target = limit * gradient + Math.sqrt(limit);
+        if (!saturated) {
+            target = Math.min(target, limit);
+        }
+        double next = limit * (1 - SMOOTHING) + target * SMOOTHING;
+        limit = Math.max(minLimit, Math.min(maxLimit, next));
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * Calls estimated to be waiting rather than being served, from Vegas'
+     * {@code limit * (1 - noLoadRtt / rtt)}.
+     */
+    public synchronized double getEstimatedQueue() {
+        if (shortRttNanos == 0) {
+            return 0;
+        }
+        return Math.max(0, limit * (1 - longRttNanos / shortRttNanos));
+    }
+
+    public synchronized double getShortRttSeconds() {
+        return shortRttNanos / 1e9;
+    }
+
+    public synchronized double getLongRttSeconds() {
+        return longRttNanos / 1e9;
+    }
+}
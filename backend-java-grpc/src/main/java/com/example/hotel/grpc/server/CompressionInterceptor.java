@@ -0,0 +1,117 @@
+package com.example.hotel.grpc.server;
+
+import com.example.hotel.grpc.config.Settings;
+import com.google.protobuf.MessageLite;
+import io.grpc.Codec;
+import io.grpc.CompressorRegistry;
+import io.grpc.DecompressorRegistry;
+import io.grpc.ForwardingServerCall;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerBuilder;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compresses responses of selected methods with the encoding configured for
+ * them, as long as the client listed it in {@code grpc-accept-encoding}.
+ * <p>
+ * Compression is decided per message: replies smaller than {@code minBytes}
+ * go out uncompressed, because below a few hundred bytes gzip saves little and
+ * still costs a deflater per message. Methods that are not configured, such as
+ * {@code GetReservation}, are left alone. So is {@code ListReservations} by
+ * default: it streams one row of about 150 bytes per message, which never
+ * reaches the threshold, and the repetition gzip would find is spread across
+ * messages it compresses one at a time.
+ * <p>
+ * {@code hotel.grpc.compression.methods} lists {@code Method=encoding} entries
+ * separated by commas; a method is a bare name matching every service or a
+ * full {@code service/Method} name, and the encoding defaults to gzip.
+ */
+public class CompressionInterceptor implements ServerInterceptor {
+
+    static final Metadata.Key<String> ACCEPT_ENCODING =
+            Metadata.Key.of("grpc-accept-encoding", Metadata.ASCII_STRING_MARSHALLER);
+
+    private final Map<String, String> encodings;
+    private final int minBytes;
+
+    public CompressionInterceptor(Map<String, String> encodings, int minBytes) {
+        this.encodings = Map.copyOf(encodings);
+        this.minBytes = minBytes;
+    }
+
+    public static CompressionInterceptor fromSettings() {
+        Map<String, String> encodings = new HashMap<>();
+        String methods = Settings.getString("hotel.grpc.compression.methods",
+                "BulkCreateReservations=gzip");
+        for (String entry : methods.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            String[] parts = entry.split("=", 2);
+            encodings.put(parts[0].trim(), parts.length > 1 ? parts[1].trim() : "gzip");
+        }
+        return new CompressionInterceptor(encodings, Settings.getInt("hotel.grpc.compression.min-bytes", 512));
+    }
+
+    /** Registers deflate next to the built-in gzip for both directions. */
+    public static void registerCodecs(ServerBuilder<?> builder) {
+        DeflateCodec deflate = new DeflateCodec();
+        CompressorRegistry compressors = CompressorRegistry.newEmptyInstance();
+        compressors.register(Codec.Identity.NONE);
+        compressors.register(new Codec.Gzip());
+        compressors.register(deflate);
+        builder.compressorRegistry(compressors);
+        builder.decompressorRegistry(DecompressorRegistry.getDefaultInstance().with(deflate, true));
+    }
+
+    @Override
+    public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(ServerCall<ReqT, RespT> call, Metadata headers,
+            ServerCallHandler<ReqT, RespT> next) {
+        String encoding = encodingFor(call.getMethodDescriptor());
+        if (encoding == null || !accepts(headers.get(ACCEPT_ENCODING), encoding)) {
+            return next.startCall(call, headers);
+        }
+
+        call.setCompression(encoding);
+        return next.startCall(new ForwardingServerCall.SimpleForwardingServerCall<>(call) {
+            @Override
+            public void sendMessage(RespT message) {
+                setMessageCompression(sizeOf(message) >= minBytes);
+                super.sendMessage(message);
+            }
+        }, headers);
+    }
+
+    private String encodingFor(MethodDescriptor<?, ?> method) {
+        String encoding = encodings.get(method.getFullMethodName());
+        return encoding != null ? encoding : encodings.get(method.getBareMethodName());
+    }
+
+    static boolean accepts(String acceptEncoding, String encoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String accepted : acceptEncoding.split(",")) {
+            if (accepted.trim().equals(encoding)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int sizeOf(Object message) {
+        if (message instanceof MessageLite) {
+            return ((MessageLite) message).getSerializedSize();
+        }
+        if (message instanceof byte[]) {
+            return ((byte[]) message).length;
+        }
+        return Integer.MAX_VALUE;
+    }
+}
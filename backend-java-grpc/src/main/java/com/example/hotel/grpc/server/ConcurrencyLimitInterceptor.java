@@ -0,0 +1,123 @@
+package com.example.hotel.grpc.server;
+
+import io.grpc.ForwardingServerCall;
+import io.grpc.ForwardingServerCallListener;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.Status;
+import io.prometheus.client.Counter;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Sheds calls beyond the {@link AdaptiveLimit} with {@code RESOURCE_EXHAUSTED}
+ * before any service code runs, so a spike costs a rejected call instead of a
+ * longer queue for database connections.
+ * <p>
+ * Create, update, delete and bulk calls count as writes. Only unary calls feed
+ * the latency estimate: a stream's duration says more about its client than
+ * about the server's load. Watch streams bypass the limit altogether: they
+ * stay open for as long as the client wants and would hold a slot for good.
+ * So do the health and reflection services: a load balancer that sees health
+ * checks fail under load would take the server out while it still serves.
+ */
+public class ConcurrencyLimitInterceptor implements ServerInterceptor {
+
+    private static final Counter REJECTED = Counter.build()
+            .name("hotel_grpc_limiter_rejected_total")
+            .help("Calls shed because the concurrency limit was reached")
+            .labelNames("method")
+            .register();
+
+    /** Services whose calls are never shed. */
+    private static final Set<String> EXEMPT_SERVICES = Set.of(
+            "grpc.health.v1.Health",
+            "grpc.reflection.v1alpha.ServerReflection",
+            "grpc.reflection.v1.ServerReflection");
+
+    private final AdaptiveLimit limit;
+
+    public ConcurrencyLimitInterceptor(AdaptiveLimit limit) {
+        this.limit = limit;
+    }
+
+    @Override
+    public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(ServerCall<ReqT, RespT> call, Metadata headers,
+            ServerCallHandler<ReqT, RespT> next) {
+        MethodDescriptor<ReqT, RespT> method = call.getMethodDescriptor();
+        if (isExempt(method)) {
+            return next.startCall(call, headers);
+        }
+        if (!limit.tryAcquire(isWrite(method))) {
+            REJECTED.labels(method.getFullMethodName()).inc();
+            call.close(Status.RESOURCE_EXHAUSTED.withDescription("Server is at its concurrency limit"),
+                    new Metadata());
+            return new ServerCall.Listener<>() {
+            };
+        }
+
+        Slot slot = new Slot(method.getType() == MethodDescriptor.MethodType.UNARY);
+        ServerCall<ReqT, RespT> releasingCall = new ForwardingServerCall.SimpleForwardingServerCall<>(call) {
+            @Override
+            public void close(Status status, Metadata trailers) {
+                slot.release(status.getCode());
+                super.close(status, trailers);
+            }
+        };
+
+        ServerCall.Listener<ReqT> listener;
+        try {
+            listener = next.startCall(releasingCall, headers);
+        } catch (RuntimeException e) {
+            slot.release(Status.Code.UNKNOWN);
+            throw e;
+        }
+        return new ForwardingServerCallListener.SimpleForwardingServerCallListener<>(listener) {
+            @Override
+            public void onCancel() {
+                slot.release(Status.Code.CANCELLED);
+                super.onCancel();
+            }
+        };
+    }
+
+    static boolean isWrite(MethodDescriptor<?, ?> method) {
+        String name = method.getBareMethodName();
+        return name != null && (name.startsWith("Create") || name.startsWith("Update")
+                || name.startsWith("Delete") || name.startsWith("Bulk"));
+    }
+
+    static boolean isExempt(MethodDescriptor<?, ?> method) {
+        if (EXEMPT_SERVICES.contains(method.getServiceName())) {
+            return true;
+        }
+        String name = method.getBareMethodName();
+        return name != null && name.startsWith("Watch");
+    }
+
+    private final class Slot {
+        private final boolean sampled;
+        private final long startNanos = System.nanoTime();
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        Slot(boolean sampled) {
+            this.sampled = sampled;
+        }
+
+        void release(Status.Code code) {
+            if (!released.compareAndSet(false, true)) {
+                return;
+            }
+            // Cancelled calls end at the client's whim, not when the work is done
+            if (sampled && code != Status.Code.CANCELLED) {
+                limit.release(System.nanoTime() - startNanos);
+            } else {
+                limit.release();
+            }
+        }
+    }
+}
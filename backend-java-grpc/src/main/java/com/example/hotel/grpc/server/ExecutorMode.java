@@ -0,0 +1,19 @@
+package com.example.hotel.grpc.server;
+
+/**
+ * How {@link com.example.hotel.grpc.GrpcServer} runs application code, selected
+ * with {@code hotel.grpc.executor.mode}.
+ */
+public enum ExecutorMode {
+    /** gRPC's default unbounded cached thread pool. */
+    CACHED,
+    /** Fixed number of threads with a bounded queue; calls beyond the queue fail with RESOURCE_EXHAUSTED. */
+    BOUNDED,
+    /** One virtual thread per call (requires a Java 21 runtime). */
+    VIRTUAL,
+    /**
+     * Calls start on the transport event loop; only database work is handed to a
+     * bounded worker pool, so answers that need no I/O never switch threads.
+     */
+    HYBRID
+}
@@ -0,0 +1,211 @@
+package com.example.hotel.grpc.server;
+
+import com.example.hotel.grpc.ReservationServiceGrpc;
+import com.example.hotel.grpc.config.Settings;
+import io.grpc.Context;
+import io.grpc.Metadata;
+import io.grpc.ServerBuilder;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallExecutorSupplier;
+import io.grpc.Status;
+
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Builds the executors behind an {@link ExecutorMode} and installs them on a
+ * {@link ServerBuilder}.
+ * <p>
+ * {@link #blockingExecutor()} is what services use to run JDBC work. It is a
+ * pass-through in every mode except {@link ExecutorMode#HYBRID}, where it hands
+ * the work from the event loop to the worker pool. {@link #offloadExecutor()}
+ * runs JDBC work that starts off any call's thread, such as a timer firing.
+ * <p>
+ * In the bounded and hybrid modes calls reach the worker pool through a
+ * {@link ServerCallExecutorSupplier}, which closes a call with
+ * {@code RESOURCE_EXHAUSTED} when the queue is full. Given to the server as its
+ * executor, the pool would throw its rejection into the transport, and
+ * clients would see a reset stream or {@code UNKNOWN}.
+ */
+public class ServerExecutors implements AutoCloseable {
+
+    /** Methods that may answer on the event loop in hybrid mode and offload by themselves. */
+    private static final Set<String> EVENT_LOOP_METHODS = Set.of(
+            ReservationServiceGrpc.getGetReservationMethod().getFullMethodName());
+
+    private final ExecutorMode mode;
+    private final ExecutorService workers;
+    private final Executor blockingExecutor;
+    private final ExecutorService offload;
+    private final AtomicLong rejected = new AtomicLong();
+
+    ServerExecutors(ExecutorMode mode, int threads, int queueLimit) {
+        this.mode = mode;
+        switch (mode) {
+            case BOUNDED:
+            case HYBRID:
+                this.workers = boundedPool(threads, queueLimit);
+                break;
+            case VIRTUAL:
+                this.workers = virtualThreadPerTask();
+                break;
+            default:
+                this.workers = null;
+        }
+        this.blockingExecutor = mode == ExecutorMode.HYBRID
+                ? Context.currentContextExecutor(workers)
+                : Runnable::run;
+        // gRPC's own cached pool is not reachable in cached mode, so that mode gets one of its own
+        this.offload = workers != null ? workers : cachedPool();
+    }
+
+    public static ServerExecutors fromSettings() {
+        ExecutorMode mode = ExecutorMode.valueOf(
+                Settings.getString("hotel.grpc.executor.mode", ExecutorMode.CACHED.name()).toUpperCase());
+        return new ServerExecutors(mode,
+                Settings.getInt("hotel.grpc.executor.threads", 32),
+                Settings.getInt("hotel.grpc.executor.queue", 1_000));
+    }
+
+    public void apply(ServerBuilder<?> builder) {
+        switch (mode) {
+            case BOUNDED:
+                builder.directExecutor();
+                builder.callExecutor(new CallExecutorSupplier(workers, Set.of()));
+                break;
+            case VIRTUAL:
+                builder.executor(workers);
+                break;
+            case HYBRID:
+                builder.directExecutor();
+                builder.callExecutor(new CallExecutorSupplier(workers, EVENT_LOOP_METHODS));
+                break;
+            default:
+                break;
+        }
+    }
+
+    public ExecutorMode getMode() {
+        return mode;
+    }
+
+    public Executor blockingExecutor() {
+        return blockingExecutor;
+    }
+
+    /**
+     * Runs work handed over from threads that are not serving a call, on the
+     * worker pool or in cached mode on a cached pool. The current context goes
+     * along, so the work keeps the deadline and cancellation of its call.
+     */
+    public Executor offloadExecutor() {
+        return Context.currentContextExecutor(offload);
+    }
+
+    /** Worker pool backing the bounded and hybrid modes, or {@code null}. */
+    public ThreadPoolExecutor getBoundedPool() {
+        return workers instanceof ThreadPoolExecutor ? (ThreadPoolExecutor) workers : null;
+    }
+
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    @Override
+    public void close() {
+        offload.shutdown();
+    }
+
+    private ExecutorService boundedPool(int threads, int queueLimit) {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory factory = r -> {
+            Thread t = new Thread(r, "grpc-worker-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+        RejectedExecutionHandler abort = new ThreadPoolExecutor.AbortPolicy();
+        return new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueLimit), factory, (r, executor) -> {
+                    rejected.incrementAndGet();
+                    abort.rejectedExecution(r, executor);
+                });
+    }
+
+    private static ExecutorService cachedPool() {
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "grpc-offload-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    private static ExecutorService virtualThreadPerTask() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Executor mode VIRTUAL needs a Java 21 or newer runtime", e);
+        }
+    }
+
+    /**
+     * Keeps the methods that manage their own offloading on the event loop and
+     * sends every other call to the worker pool.
+     */
+    private static final class CallExecutorSupplier implements ServerCallExecutorSupplier {
+        private final Executor workers;
+        private final Set<String> eventLoopMethods;
+
+        CallExecutorSupplier(Executor workers, Set<String> eventLoopMethods) {
+            this.workers = workers;
+            this.eventLoopMethods = eventLoopMethods;
+        }
+
+        @Override
+        public <ReqT, RespT> Executor getExecutor(ServerCall<ReqT, RespT> call, Metadata headers) {
+            if (eventLoopMethods.contains(call.getMethodDescriptor().getFullMethodName())) {
+                return null;
+            }
+            return new SheddingExecutor(workers, call);
+        }
+    }
+
+    /**
+     * Runs one call's work on the worker pool, or closes the call with
+     * {@code RESOURCE_EXHAUSTED} when the pool rejects it. gRPC runs a call's
+     * tasks one at a time and treats a task that was accepted as running, so
+     * once a task is rejected the tasks queued behind it never run either.
+     */
+    private static final class SheddingExecutor implements Executor {
+        private final Executor workers;
+        private final ServerCall<?, ?> call;
+
+        SheddingExecutor(Executor workers, ServerCall<?, ?> call) {
+            this.workers = workers;
+            this.call = call;
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            try {
+                workers.execute(command);
+            } catch (RejectedExecutionException e) {
+                try {
+                    call.close(Status.RESOURCE_EXHAUSTED.withDescription("Server is overloaded"), new Metadata());
+                } catch (IllegalStateException alreadyClosed) {
+                    // The call ended on its own before this task was rejected
+                }
+            }
+        }
+    }
+}
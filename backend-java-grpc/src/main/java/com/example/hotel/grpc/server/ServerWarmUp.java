@@ -0,0 +1,127 @@
+package com.example.hotel.grpc.server;
+
+import com.example.hotel.grpc.GetReservationRequest;
+import com.example.hotel.grpc.ListReservationsRequest;
+import com.example.hotel.grpc.ListReservationsResponse;
+import com.example.hotel.grpc.ReservationServiceGrpc;
+import com.example.hotel.grpc.UpdateReservationRequest;
+import com.example.hotel.grpc.config.Settings;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.StatusRuntimeException;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs synthetic read-only calls through the real services before the server
+ * reports itself healthy.
+ * <p>
+ * The calls go over an in-process channel, so they take the same marshalling,
+ * service and JDBC paths as client traffic without touching the network port.
+ * They run with as many callers as the pool has connections, which lets every
+ * connection parse the statements it will later reuse, and they only read:
+ * GetReservation for ids sampled through ListReservations, UpdateReservation
+ * of a missing id, and the v2 GetReservation. The services must not answer
+ * from a response cache: GetReservation goes to few ids, so a cached service
+ * would read each of them once and prepare the lookup on a few connections
+ * only, see {@code ReservationGrpcService.uncachedServiceDefinition()}.
+ */
+public class ServerWarmUp {
+
+    private static final long MISSING_ID = -1;
+
+    private final List<ServerServiceDefinition> services;
+    private final int iterations;
+    private final int concurrency;
+    private final int sampleSize;
+
+    public ServerWarmUp(List<ServerServiceDefinition> services, int iterations, int concurrency, int sampleSize) {
+        this.services = services;
+        this.iterations = iterations;
+        this.concurrency = Math.max(1, concurrency);
+        this.sampleSize = sampleSize;
+    }
+
+    public static ServerWarmUp fromSettings(List<ServerServiceDefinition> services, int poolSize) {
+        return new ServerWarmUp(services,
+                Settings.getInt("hotel.grpc.warmup.iterations", 5_000),
+                Settings.getInt("hotel.grpc.warmup.concurrency", poolSize),
+                Settings.getInt("hotel.grpc.warmup.sample", 100));
+    }
+
+    public void run() throws IOException, InterruptedException {
+        if (iterations <= 0) {
+            return;
+        }
+        long start = System.nanoTime();
+        String name = InProcessServerBuilder.generateName();
+        InProcessServerBuilder builder = InProcessServerBuilder.forName(name);
+        services.forEach(builder::addService);
+        Server server = builder.build().start();
+        ManagedChannel channel = InProcessChannelBuilder.forName(name).build();
+        ExecutorService callers = Executors.newFixedThreadPool(concurrency);
+        try {
+            long[] ids = sampleIds(channel);
+            int perCaller = Math.max(1, iterations / concurrency);
+            for (int c = 0; c < concurrency; c++) {
+                int offset = c;
+                callers.execute(() -> callRepeatedly(channel, ids, offset, perCaller));
+            }
+            callers.shutdown();
+            callers.awaitTermination(5, TimeUnit.MINUTES);
+        } finally {
+            callers.shutdownNow();
+            channel.shutdownNow();
+            server.shutdownNow();
+        }
+        System.out.printf("Warm-up finished: %d calls in %d ms%n",
+                iterations, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private long[] sampleIds(ManagedChannel channel) {
+        List<Long> ids = new ArrayList<>();
+        try {
+            Iterator<ListReservationsResponse> rows = ReservationServiceGrpc
+                    .newBlockingStub(channel)
+                    .withDeadlineAfter(10, TimeUnit.SECONDS)
+                    .listReservations(ListReservationsRequest.newBuilder().setLimit(sampleSize).build());
+            rows.forEachRemaining(row -> ids.add(row.getReservation().getId()));
+        } catch (StatusRuntimeException e) {
+            System.err.println("Warm-up could not list reservations: " + e.getStatus());
+        }
+        return ids.isEmpty() ? new long[] { MISSING_ID } : ids.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private static void callRepeatedly(ManagedChannel channel, long[] ids, int offset, int calls) {
+        ReservationServiceGrpc.ReservationServiceBlockingStub v1 = ReservationServiceGrpc.newBlockingStub(channel);
+        com.example.hotel.grpc.v2.ReservationServiceGrpc.ReservationServiceBlockingStub v2 =
+                com.example.hotel.grpc.v2.ReservationServiceGrpc.newBlockingStub(channel);
+        for (int i = 0; i < calls; i++) {
+            long id = ids[(offset + i) % ids.length];
+            try {
+                if (i % 10 == 9) {
+                    // Runs the update statement without changing anything
+                    v1.withDeadlineAfter(5, TimeUnit.SECONDS).updateReservation(UpdateReservationRequest.newBuilder()
+                            .setId(MISSING_ID).setDateDebut("2000-01-01").setDateFin("2000-01-02").build());
+                } else if (i % 10 == 8) {
+                    v2.withDeadlineAfter(5, TimeUnit.SECONDS).getReservation(
+                            com.example.hotel.grpc.v2.GetReservationRequest.newBuilder().setId(id).build());
+                } else {
+                    v1.withDeadlineAfter(5, TimeUnit.SECONDS).getReservation(
+                            GetReservationRequest.newBuilder().setId(id).build());
+                }
+            } catch (StatusRuntimeException e) {
+                // NOT_FOUND is expected; anything else will show again under real traffic
+            }
+        }
+    }
+}
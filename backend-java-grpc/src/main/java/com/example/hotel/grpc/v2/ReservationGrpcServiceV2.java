@@ -0,0 +1,178 @@
+package com.example.hotel.grpc.v2;
+
+import com.example.hotel.grpc.cache.EncodedResponseCache;
+import com.example.hotel.grpc.db.CallDeadline;
+import com.example.hotel.grpc.db.Query;
+import com.example.hotel.grpc.db.ReservationDao;
+import com.example.hotel.grpc.db.ReservationDao.NewReservation;
+import com.example.hotel.grpc.db.ReservationDao.UpdateFields;
+import com.example.hotel.grpc.db.SqlStatus;
+import io.grpc.Status;
+import io.grpc.stub.StreamObserver;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * {@code hotel.v2.ReservationService}: the same tables as v1 with epoch-day
+ * dates and minor-unit prices.
+ * <p>
+ * Reads convert in SQL ({@code date - DATE '1970-01-01'}, {@code prix * 100}),
+ * so the JVM only moves ints and longs between the result set and the
+ * messages. Creates and updates go through the v1 {@link ReservationDao}, so
+ * both versions deduplicate clients and rooms the same way; the DAO binds the
+ * epoch days and minor units as they are, converts them in SQL, and returns
+ * the stored row with the same columns {@link #FIND_BY_ID} reads.
+ */
+public class ReservationGrpcServiceV2 extends ReservationServiceGrpc.ReservationServiceImplBase {
+
+    static final Query FIND_BY_ID = new Query("v2_reservation_find_by_id", "SELECT r.id, " +
+            "r.date_debut - DATE '1970-01-01' AS date_debut_day, " +
+            "r.date_fin - DATE '1970-01-01' AS date_fin_day, " +
+            "r.preferences, " +
+            "c.id as c_id, c.nom, c.prenom, c.email, c.telephone, " +
+            "ch.id as ch_id, ch.type, CAST(round(ch.prix * 100) AS bigint) AS prix_minor, ch.disponible " +
+            "FROM reservation r " +
+            "JOIN client c ON r.client_id = c.id " +
+            "JOIN chambre ch ON r.chambre_id = ch.id " +
+            "WHERE r.id = ?");
+
+    static final Query DELETE = new Query("v2_reservation_delete",
+            "DELETE FROM reservation WHERE id = ?");
+
+    private final ReservationDao dao;
+    private final DataSource dataSource;
+    private final EncodedResponseCache v1Cache;
+
+    /**
+     * @param dao     the v1 service's DAO, which creates and updates
+     * @param v1Cache the v1 GetReservation cache, invalidated by v2 updates and
+     *                deletes; may be {@code null}
+     */
+    public ReservationGrpcServiceV2(ReservationDao dao, DataSource dataSource, EncodedResponseCache v1Cache) {
+        this.dao = dao;
+        this.dataSource = dataSource;
+        this.v1Cache = v1Cache;
+    }
+
+    @Override
+    public void createReservation(CreateReservationRequest request,
+            StreamObserver<ReservationResponse> responseObserver) {
+        try {
+            Reservation created = dao.create(toNewReservation(request), ReservationGrpcServiceV2::mapReservation);
+            responseObserver.onNext(ReservationResponse.newBuilder().setReservation(created).build());
+            responseObserver.onCompleted();
+        } catch (SQLException e) {
+            responseObserver.onError(SqlStatus.toStatus(e));
+        }
+    }
+
+    @Override
+    public void getReservation(GetReservationRequest request, StreamObserver<ReservationResponse> responseObserver) {
+        try (Connection conn = CallDeadline.getConnection(dataSource);
+                PreparedStatement ps = FIND_BY_ID.prepare(conn)) {
+            ps.setLong(1, request.getId());
+            try (ResultSet rs = FIND_BY_ID.executeQuery(ps)) {
+                if (rs.next()) {
+                    responseObserver.onNext(ReservationResponse.newBuilder().setReservation(mapReservation(rs)).build());
+                    responseObserver.onCompleted();
+                } else {
+                    responseObserver.onError(Status.NOT_FOUND
+                            .withDescription("Reservation not found").asRuntimeException());
+                }
+            }
+        } catch (SQLException e) {
+            responseObserver.onError(SqlStatus.toStatus(e));
+        }
+    }
+
+    @Override
+    public void updateReservation(UpdateReservationRequest request,
+            StreamObserver<ReservationResponse> responseObserver) {
+        UpdateFields fields;
+        try {
+            fields = UpdateFields.of(request.getUpdateMask());
+        } catch (IllegalArgumentException e) {
+            responseObserver.onError(Status.INVALID_ARGUMENT.withDescription(e.getMessage()).asRuntimeException());
+            return;
+        }
+
+        try {
+            Reservation updated = dao.update(request.getId(), fields, request.getDateDebut(), request.getDateFin(),
+                    request.getPreferences(), ReservationGrpcServiceV2::mapReservation);
+            if (updated != null) {
+                if (v1Cache != null) {
+                    v1Cache.invalidate(request.getId());
+                }
+                responseObserver.onNext(ReservationResponse.newBuilder().setReservation(updated).build());
+                responseObserver.onCompleted();
+            } else {
+                responseObserver.onError(Status.NOT_FOUND
+                        .withDescription("Reservation not found").asRuntimeException());
+            }
+        } catch (SQLException e) {
+            responseObserver.onError(SqlStatus.toStatus(e));
+        }
+    }
+
+    @Override
+    public void deleteReservation(DeleteReservationRequest request,
+            StreamObserver<DeleteReservationResponse> responseObserver) {
+        try (Connection conn = CallDeadline.getConnection(dataSource);
+                PreparedStatement ps = DELETE.prepare(conn)) {
+            ps.setLong(1, request.getId());
+            int rows = DELETE.executeUpdate(ps);
+            if (v1Cache != null) {
+                v1Cache.invalidate(request.getId());
+            }
+
+            responseObserver.onNext(DeleteReservationResponse.newBuilder().setSuccess(rows > 0).build());
+            responseObserver.onCompleted();
+        } catch (SQLException e) {
+            responseObserver.onError(SqlStatus.toStatus(e));
+        }
+    }
+
+    static Reservation mapReservation(ResultSet rs) throws SQLException {
+        return Reservation.newBuilder()
+                .setId(rs.getLong("id"))
+                .setClient(Client.newBuilder()
+                        .setId(rs.getLong("c_id"))
+                        .setNom(rs.getString("nom"))
+                        .setPrenom(rs.getString("prenom"))
+                        .setEmail(rs.getString("email"))
+                        .setTelephone(rs.getString("telephone")))
+                .setChambre(Chambre.newBuilder()
+                        .setId(rs.getLong("ch_id"))
+                        .setType(rs.getString("type"))
+                        .setPrixMinor(rs.getLong("prix_minor"))
+                        .setDisponible(rs.getBoolean("disponible")))
+                .setDateDebut(rs.getInt("date_debut_day"))
+                .setDateFin(rs.getInt("date_fin_day"))
+                .setPreferences(rs.getString("preferences"))
+                .build();
+    }
+
+    /** The DAO's view of {@code request}: strings and ids as v1 messages, dates and price as sent. */
+    static NewReservation toNewReservation(CreateReservationRequest request) {
+        Client client = request.getClient();
+        Chambre chambre = request.getChambre();
+        return NewReservation.of(
+                com.example.hotel.grpc.Client.newBuilder()
+                        .setId(client.getId())
+                        .setNom(client.getNom())
+                        .setPrenom(client.getPrenom())
+                        .setEmail(client.getEmail())
+                        .setTelephone(client.getTelephone())
+                        .build(),
+                com.example.hotel.grpc.Chambre.newBuilder()
+                        .setId(chambre.getId())
+                        .setType(chambre.getType())
+                        .setDisponible(chambre.getDisponible())
+                        .build(),
+                chambre.getPrixMinor(), request.getDateDebut(), request.getDateFin(), request.getPreferences());
+    }
+}
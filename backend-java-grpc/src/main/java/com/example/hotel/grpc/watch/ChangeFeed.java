@@ -0,0 +1,286 @@
+package com.example.hotel.grpc.watch;
+
+import com.example.hotel.grpc.ReferenceTable;
+import com.example.hotel.grpc.ReservationEvent;
+import com.example.hotel.grpc.WatchReservationsRequest;
+import com.example.hotel.grpc.config.Settings;
+import com.example.hotel.grpc.db.CallDeadline;
+import com.example.hotel.grpc.db.ChangeLog;
+import com.example.hotel.grpc.db.ConnectionPool;
+import com.example.hotel.grpc.db.SqlStatus;
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.prometheus.client.Counter;
+import io.prometheus.client.Gauge;
+import org.postgresql.PGConnection;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Fans {@link ChangeLog} entries out to every {@code WatchReservations} stream
+ * from a single reader.
+ * <p>
+ * One thread holds a dedicated connection that {@code LISTEN}s on
+ * {@link ChangeLog#CHANNEL}. Each notification, or the poll interval if none
+ * comes, makes it read the log after the last sequence number it saw and
+ * append the rows to the {@link EventRing} that all subscriptions read from.
+ * <p>
+ * Sequence numbers are taken when a row is inserted but become visible when
+ * its transaction commits, so a later number can show up first. The reader
+ * stops at such a gap and notes the xmax of a snapshot taken after it saw the
+ * gap: the transaction that took the missing number was running then, so its
+ * id is below that xmax. Once the oldest running transaction is at or past
+ * it, that transaction has ended, and if the number is still missing it was
+ * rolled back and the reader moves on. A long transaction anywhere in the
+ * database therefore holds back a gap, never loses an event.
+ */
+public class ChangeFeed implements AutoCloseable {
+
+    private static final Gauge SUBSCRIBERS = Gauge.build()
+            .name("hotel_grpc_watch_subscribers")
+            .help("Open WatchReservations streams")
+            .register();
+    private static final Counter EVENTS = Counter.build()
+            .name("hotel_grpc_watch_events_total")
+            .help("Change log entries read by the shared reader")
+            .register();
+    private static final Counter CATCH_UP_READS = Counter.build()
+            .name("hotel_grpc_watch_catch_up_reads_total")
+            .help("Change log pages read for subscribers behind the in-memory ring")
+            .register();
+    private static final Counter GAPS_SKIPPED = Counter.build()
+            .name("hotel_grpc_watch_gaps_skipped_total")
+            .help("Sequence gaps moved past once every transaction that could fill them had ended")
+            .register();
+
+    private final ConnectionPool pool;
+    private final EventRing ring;
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+    private final List<Consumer<ChangeLog.Entry>> listeners = new CopyOnWriteArrayList<>();
+    private final ExecutorService catchUpExecutor;
+    private final int pageSize;
+    private final int pollMs;
+    private final int retentionHours;
+    private final int referenceEntries;
+    private final Thread reader;
+
+    private volatile long trimmedSeq;
+    private volatile boolean running = true;
+    /** Reader thread only. */
+    private long lastSeq;
+
+    private ChangeFeed(ConnectionPool pool, long[] bounds) {
+        this.pool = pool;
+        this.ring = new EventRing(Settings.getInt("hotel.grpc.watch.ring-size", 10_000), bounds[1]);
+        this.pageSize = Settings.getInt("hotel.grpc.watch.page-size", 500);
+        this.pollMs = Settings.getInt("hotel.grpc.watch.poll-ms", 1_000);
+        this.retentionHours = Settings.getInt("hotel.grpc.watch.retention-hours", 24);
+        this.referenceEntries = Settings.getInt("hotel.grpc.normalize.max-entries", 10_000);
+        // Whatever is below the oldest entry is gone, whether this process trimmed it or not
+        this.trimmedSeq = bounds[0] > 0 ? bounds[0] - 1 : bounds[1];
+        this.lastSeq = bounds[1];
+
+        AtomicInteger counter = new AtomicInteger();
+        this.catchUpExecutor = Executors.newFixedThreadPool(
+                Settings.getInt("hotel.grpc.watch.catch-up-threads", 2), r -> {
+                    Thread t = new Thread(r, "watch-catch-up-" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        this.reader = new Thread(this::readLoop, "watch-reader");
+        this.reader.setDaemon(true);
+    }
+
+    /**
+     * Installs the change log and starts the reader, or returns {@code null} if
+     * {@code hotel.grpc.watch.enabled} is false or the log cannot be installed.
+     */
+    public static ChangeFeed start(ConnectionPool pool) {
+        if (!Settings.getBoolean("hotel.grpc.watch.enabled", true)) {
+            return null;
+        }
+        long[] bounds;
+        try (Connection conn = pool.getConnection()) {
+            ChangeLog.install(conn);
+            bounds = ChangeLog.bounds(conn);
+        } catch (SQLException e) {
+            System.err.println("WatchReservations disabled, cannot install the change log: " + e.getMessage());
+            return null;
+        }
+        ChangeFeed feed = new ChangeFeed(pool, bounds);
+        feed.reader.start();
+        return feed;
+    }
+
+    /**
+     * @throws IllegalArgumentException if a date filter is not an ISO date
+     */
+    public void subscribe(WatchReservationsRequest request, ServerCallStreamObserver<ReservationEvent> observer) {
+        long latest = ring.getLatestSeq();
+        long cursor = request.getResumeToken() > 0 ? Math.min(request.getResumeToken(), latest) : latest;
+        ReferenceTable references = request.getNormalized() ? new ReferenceTable(referenceEntries) : null;
+        Subscription subscription = new Subscription(this, request, observer, cursor, references);
+        if (!running) {
+            observer.onError(Status.UNAVAILABLE.withDescription("Server is shutting down").asRuntimeException());
+            return;
+        }
+        if (cursor < trimmedSeq) {
+            observer.onError(expired());
+            return;
+        }
+        subscriptions.add(subscription);
+        SUBSCRIBERS.inc();
+        observer.setOnCancelHandler(subscription::cancelled);
+        observer.setOnReadyHandler(subscription);
+        subscription.deliver();
+    }
+
+    /**
+     * Calls {@code listener} on the reader thread with every entry read from
+     * now on, in order and before any subscription sees it. It must not block.
+     */
+    public void addListener(Consumer<ChangeLog.Entry> listener) {
+        listeners.add(listener);
+    }
+
+    EventRing getRing() {
+        return ring;
+    }
+
+    void remove(Subscription subscription) {
+        if (subscriptions.remove(subscription)) {
+            SUBSCRIBERS.dec();
+        }
+    }
+
+    /** Reads the next page between the subscription's cursor and the ring. */
+    void catchUp(Subscription subscription) {
+        catchUpExecutor.execute(subscription.getContext().wrap(() -> {
+            long cursor = subscription.getCursor();
+            if (cursor < trimmedSeq) {
+                subscription.close(expired());
+                return;
+            }
+            long floor = ring.getFloorSeq();
+            try (Connection conn = CallDeadline.getConnection(pool.getDataSource())) {
+                List<ChangeLog.Entry> page = ChangeLog.read(conn, cursor, floor, pageSize);
+                CATCH_UP_READS.inc();
+                subscription.catchUpDone(page, floor);
+            } catch (SQLException e) {
+                subscription.close(SqlStatus.toStatus(e));
+            }
+        }));
+    }
+
+    private void readLoop() {
+        while (running) {
+            try (Connection conn = pool.openDedicated();
+                    Statement st = conn.createStatement()) {
+                st.execute("LISTEN " + ChangeLog.CHANNEL);
+                PGConnection listener = conn.unwrap(PGConnection.class);
+                long nextTrim = System.currentTimeMillis();
+                long gapAt = -1;
+                long gapHorizon = 0;
+                while (running) {
+                    boolean gapSettled = gapAt == lastSeq && ChangeLog.snapshot(conn)[0] >= gapHorizon;
+                    long gap = readNew(conn, gapSettled);
+                    if (gap < 0) {
+                        gapAt = -1;
+                    } else if (gapAt != gap) {
+                        gapAt = gap;
+                        gapHorizon = ChangeLog.snapshot(conn)[1];
+                    }
+                    if (System.currentTimeMillis() >= nextTrim) {
+                        trimmedSeq = Math.max(trimmedSeq, ChangeLog.trim(conn, retentionHours));
+                        nextTrim = System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1);
+                    }
+                    // Returns on the next NOTIFY; poll faster while waiting for a gap to fill
+                    listener.getNotifications(gapAt >= 0 ? 50 : pollMs);
+                }
+            } catch (SQLException e) {
+                if (running) {
+                    System.err.println("Change feed reader failed, reconnecting: " + e.getMessage());
+                    sleepQuietly(1_000);
+                }
+            }
+        }
+    }
+
+    /**
+     * Appends new entries to the ring and wakes the subscriptions. Returns the
+     * sequence number it stopped at because of a gap, or -1.
+     */
+    private long readNew(Connection conn, boolean skipGap) throws SQLException {
+        boolean appended = false;
+        try {
+            while (true) {
+                List<ChangeLog.Entry> entries = ChangeLog.read(conn, lastSeq, Long.MAX_VALUE, pageSize);
+                for (ChangeLog.Entry entry : entries) {
+                    if (entry.getSeq() != lastSeq + 1) {
+                        if (!skipGap) {
+                            return lastSeq;
+                        }
+                        GAPS_SKIPPED.inc();
+                        skipGap = false;
+                    }
+                    for (Consumer<ChangeLog.Entry> listener : listeners) {
+                        listener.accept(entry);
+                    }
+                    ring.append(entry);
+                    lastSeq = entry.getSeq();
+                    EVENTS.inc();
+                    appended = true;
+                }
+                if (entries.size() < pageSize) {
+                    return -1;
+                }
+            }
+        } finally {
+            if (appended) {
+                subscriptions.forEach(Subscription::deliver);
+            }
+        }
+    }
+
+    private static RuntimeException expired() {
+        return Status.OUT_OF_RANGE
+                .withDescription("Resume token is older than the retained change log; restart with resumeToken 0")
+                .asRuntimeException();
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Stops the reader and ends every stream with UNAVAILABLE so clients resume elsewhere. */
+    @Override
+    public void close() {
+        running = false;
+        for (Subscription subscription : subscriptions) {
+            subscription.close(Status.UNAVAILABLE
+                    .withDescription("Server is shutting down; resume with the last resumeToken")
+                    .asRuntimeException());
+        }
+        catchUpExecutor.shutdownNow();
+        try {
+            reader.join(pollMs * 2L);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.hotel.grpc.watch;
+
+import com.example.hotel.grpc.db.ChangeLog;
+
+/**
+ * The most recent change log entries in sequence order, shared by every
+ * subscription. Each subscription only keeps a cursor into it, so the memory
+ * used per watcher does not grow with the event rate; a watcher whose cursor
+ * falls off the tail reads the gap from the database instead.
+ */
+final class EventRing {
+
+    private final ChangeLog.Entry[] entries;
+    private int head;
+    private int size;
+    /** Sequence number every entry in the ring is greater than. */
+    private long floorSeq;
+    private long latestSeq;
+
+    EventRing(int capacity, long startSeq) {
+        this.entries = new ChangeLog.Entry[Math.max(1, capacity)];
+        this.floorSeq = startSeq;
+        this.latestSeq = startSeq;
+    }
+
+    synchronized void append(ChangeLog.Entry entry) {
+        if (size == entries.length) {
+            floorSeq = entries[head].getSeq();
+            entries[head] = null;
+            head = (head + 1) % entries.length;
+            size--;
+        }
+        entries[(head + size) % entries.length] = entry;
+        size++;
+        latestSeq = entry.getSeq();
+    }
+
+    /** Whether entries after {@code cursor} can be served from memory. */
+    synchronized boolean covers(long cursor) {
+        return cursor >= floorSeq;
+    }
+
+    /**
+     * First entry after {@code cursor}, or {@code null} when the cursor is up to
+     * date. Only valid when {@link #covers} holds for the cursor.
+     */
+    synchronized ChangeLog.Entry next(long cursor) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (entries[(head + mid) % entries.length].getSeq() <= cursor) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low < size ? entries[(head + low) % entries.length] : null;
+    }
+
+    synchronized long getFloorSeq() {
+        return floorSeq;
+    }
+
+    synchronized long getLatestSeq() {
+        return latestSeq;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.hotel.grpc.watch;
+
+import com.example.hotel.grpc.ReferenceTable;
+import com.example.hotel.grpc.ReservationEvent;
+import com.example.hotel.grpc.WatchReservationsRequest;
+import com.example.hotel.grpc.db.ChangeLog;
+import io.grpc.Context;
+import io.grpc.stub.ServerCallStreamObserver;
+
+import java.sql.Date;
+import java.util.List;
+
+/**
+ * One {@code WatchReservations} stream: a cursor into the change log and the
+ * request's filters.
+ * <p>
+ * Events are pulled from the shared {@link EventRing} only while the transport
+ * reports {@link ServerCallStreamObserver#isReady()}, so a slow client never
+ * holds more than what the transport buffers. When its cursor falls behind
+ * the ring, the missing range is read from the database a page at a time.
+ */
+final class Subscription implements Runnable {
+
+    private final ChangeFeed feed;
+    private final ServerCallStreamObserver<ReservationEvent> observer;
+    private final Context context;
+    private final Date dateFrom;
+    private final Date dateTo;
+    private final long chambreId;
+    private final ReferenceTable references;
+
+    private long cursor;
+    private List<ChangeLog.Entry> page = List.of();
+    private int pageIndex;
+    private boolean catchingUp;
+    private boolean closed;
+
+    /**
+     * @param references clients and rooms already sent, or {@code null} for a
+     *                   stream that is not normalized
+     * @throws IllegalArgumentException if a date filter is not an ISO date
+     */
+    Subscription(ChangeFeed feed, WatchReservationsRequest request,
+            ServerCallStreamObserver<ReservationEvent> observer, long cursor, ReferenceTable references) {
+        this.feed = feed;
+        this.observer = observer;
+        this.context = Context.current();
+        this.dateFrom = request.getDateFrom().isEmpty() ? null : Date.valueOf(request.getDateFrom());
+        this.dateTo = request.getDateTo().isEmpty() ? null : Date.valueOf(request.getDateTo());
+        this.chambreId = request.getChambreId();
+        this.cursor = cursor;
+        this.references = references;
+    }
+
+    /** On-ready handler: resumes delivery once the transport drains. */
+    @Override
+    public void run() {
+        deliver();
+    }
+
+    synchronized void deliver() {
+        EventRing ring = feed.getRing();
+        while (!closed && observer.isReady()) {
+            ChangeLog.Entry entry;
+            if (pageIndex < page.size()) {
+                entry = page.get(pageIndex++);
+            } else if (ring.covers(cursor)) {
+                entry = ring.next(cursor);
+                if (entry == null) {
+                    return;
+                }
+            } else {
+                if (!catchingUp) {
+                    catchingUp = true;
+                    feed.catchUp(this);
+                }
+                return;
+            }
+            cursor = entry.getSeq();
+            if (matches(entry)) {
+                observer.onNext(references == null ? entry.getEvent() : normalize(entry.getEvent()));
+            }
+        }
+    }
+
+    /**
+     * Continues with a page read from the database. An empty page means the log
+     * holds nothing between the cursor and {@code skipTo}.
+     */
+    synchronized void catchUpDone(List<ChangeLog.Entry> entries, long skipTo) {
+        catchingUp = false;
+        page = entries;
+        pageIndex = 0;
+        if (entries.isEmpty()) {
+            cursor = Math.max(cursor, skipTo);
+        }
+        deliver();
+    }
+
+    synchronized long getCursor() {
+        return cursor;
+    }
+
+    Context getContext() {
+        return context;
+    }
+
+    synchronized void close(Throwable error) {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        page = List.of();
+        feed.remove(this);
+        observer.onError(error);
+    }
+
+    /** On-cancel handler. */
+    synchronized void cancelled() {
+        closed = true;
+        page = List.of();
+        feed.remove(this);
+    }
+
+    /** Events are shared by every stream, so normalizing builds a copy. */
+    private ReservationEvent normalize(ReservationEvent event) {
+        if (!event.hasReservation()) {
+            return event;
+        }
+        ReservationEvent.Builder normalized = event.toBuilder();
+        normalized.setReservation(references.normalize(event.getReservation(),
+                normalized::setClient, normalized::setChambre));
+        return normalized.build();
+    }
+
+    private boolean matches(ChangeLog.Entry entry) {
+        if (chambreId > 0 && entry.getChambreId() != chambreId) {
+            return false;
+        }
+        if (dateFrom != null && (entry.getDateFin() == null || entry.getDateFin().before(dateFrom))) {
+            return false;
+        }
+        return dateTo == null || (entry.getDateDebut() != null && !entry.getDateDebut().after(dateTo));
+    }
+}
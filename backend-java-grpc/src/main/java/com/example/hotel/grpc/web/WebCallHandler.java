@@ -0,0 +1,448 @@
+package com.example.hotel.grpc.web;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.protobuf.InvalidProtocolBufferException;
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.Metadata;
+import io.grpc.Status;
+import io.grpc.netty.shaded.io.netty.buffer.ByteBuf;
+import io.grpc.netty.shaded.io.netty.buffer.ByteBufUtil;
+import io.grpc.netty.shaded.io.netty.buffer.Unpooled;
+import io.grpc.netty.shaded.io.netty.channel.ChannelFuture;
+import io.grpc.netty.shaded.io.netty.channel.ChannelFutureListener;
+import io.grpc.netty.shaded.io.netty.channel.ChannelHandlerContext;
+import io.grpc.netty.shaded.io.netty.channel.SimpleChannelInboundHandler;
+import io.grpc.netty.shaded.io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.grpc.netty.shaded.io.netty.handler.codec.http.DefaultHttpContent;
+import io.grpc.netty.shaded.io.netty.handler.codec.http.DefaultHttpResponse;
+import io.grpc.netty.shaded.io.netty.handler.codec.http.DefaultLastHttpContent;
+import io.grpc.netty.shaded.io.netty.handler.codec.http.FullHttpRequest;
+import io.grpc.netty.shaded.io.netty.handler.codec.http.FullHttpResponse;
+import io.grpc.netty.shaded.io.netty.handler.codec.http.HttpHeaderNames;
+import io.grpc.netty.shaded.io.netty.handler.codec.http.HttpHeaderValues;
+import io.grpc.netty.shaded.io.netty.handler.codec.http.HttpHeaders;
+import io.grpc.netty.shaded.io.netty.handler.codec.http.HttpMethod;
+import io.grpc.netty.shaded.io.netty.handler.codec.http.HttpResponse;
+import io.grpc.netty.shaded.io.netty.handler.codec.http.HttpResponseStatus;
+import io.grpc.netty.shaded.io.netty.handler.codec.http.HttpUtil;
+import io.grpc.netty.shaded.io.netty.handler.codec.http.HttpVersion;
+import io.grpc.netty.shaded.io.netty.handler.codec.http.LastHttpContent;
+import io.grpc.netty.shaded.io.netty.handler.codec.http.QueryStringDecoder;
+import io.grpc.netty.shaded.io.netty.util.concurrent.Future;
+import io.grpc.netty.shaded.io.netty.util.concurrent.GenericFutureListener;
+import io.prometheus.client.Counter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Turns each HTTP/1.1 request into a call on the in-process channel.
+ * <p>
+ * The protocol follows the request's content type: {@code application/grpc-web}
+ * and {@code application/grpc-web-text} are passed through as encoded bytes;
+ * {@code application/json}, or a GET whose query parameters name request
+ * fields, is transcoded with the method's protobuf types and answered with
+ * JSON, or newline-delimited JSON for server-streaming methods. GET is only
+ * accepted for the read-only Get, List, Lookup and Watch methods, so that a
+ * cross-site link cannot create or delete anything; the others answer 405. The next
+ * response message is only requested once the previous one has been written
+ * to the socket, so a slow browser holds back the stream instead of the heap.
+ * Reading from the connection pauses while a call is open, which also rules
+ * out pipelined requests interleaving their responses.
+ */
+final class WebCallHandler extends SimpleChannelInboundHandler<FullHttpRequest> {
+
+    private static final Counter REQUESTS = Counter.build()
+            .name("hotel_grpc_web_requests_total")
+            .help("Requests served by the gRPC-Web and JSON gateway, by protocol")
+            .labelNames("protocol")
+            .register();
+
+    private static final String GRPC_WEB = "application/grpc-web";
+    private static final String GRPC_WEB_TEXT = "application/grpc-web-text";
+    private static final String JSON = "application/json";
+
+    /** Request headers that describe the HTTP exchange rather than the call. */
+    private static final Set<String> NOT_FORWARDED = Set.of(
+            "host", "connection", "keep-alive", "content-type", "content-length", "transfer-encoding", "te",
+            "upgrade", "accept", "accept-encoding", "accept-language", "origin", "referer", "user-agent",
+            "x-user-agent", "x-grpc-web", "grpc-timeout", "cache-control", "pragma", "cookie",
+            "x-accept-content-transfer-encoding", "x-accept-response-streaming");
+
+    enum Protocol {
+        GRPC_WEB, GRPC_WEB_TEXT, JSON;
+
+        String label() {
+            return name().toLowerCase(Locale.ROOT).replace('_', '-');
+        }
+    }
+
+    private final Channel channel;
+    private final Map<String, WebMethod> methods;
+
+    WebCallHandler(Channel channel, Map<String, WebMethod> methods) {
+        this.channel = channel;
+        this.methods = methods;
+    }
+
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx, FullHttpRequest request) {
+        boolean keepAlive = HttpUtil.isKeepAlive(request);
+        QueryStringDecoder uri = new QueryStringDecoder(request.uri());
+        String path = uri.path().startsWith("/") ? uri.path().substring(1) : uri.path();
+        WebMethod method = methods.get(path);
+        if (method == null) {
+            sendPlain(ctx, HttpResponseStatus.NOT_FOUND, "Unknown method " + path, keepAlive);
+            return;
+        }
+
+        if (request.method().equals(HttpMethod.GET) && !method.isReadOnly()) {
+            // A link or an image tag must not be able to write
+            sendMethodNotAllowed(ctx, path + " changes data: use POST", keepAlive);
+            return;
+        }
+
+        String contentType = request.headers().get(HttpHeaderNames.CONTENT_TYPE, "");
+        Protocol protocol;
+        if (contentType.startsWith(GRPC_WEB_TEXT)) {
+            protocol = Protocol.GRPC_WEB_TEXT;
+        } else if (contentType.startsWith(GRPC_WEB)) {
+            protocol = Protocol.GRPC_WEB;
+        } else if (contentType.startsWith(JSON) || request.method().equals(HttpMethod.GET)) {
+            protocol = Protocol.JSON;
+        } else {
+            sendPlain(ctx, HttpResponseStatus.UNSUPPORTED_MEDIA_TYPE,
+                    "Use " + GRPC_WEB + ", " + GRPC_WEB_TEXT + " or " + JSON, keepAlive);
+            return;
+        }
+        if (!request.method().equals(HttpMethod.POST) && !(protocol == Protocol.JSON
+                && request.method().equals(HttpMethod.GET))) {
+            sendMethodNotAllowed(ctx, "Use POST", keepAlive);
+            return;
+        }
+        if (protocol == Protocol.JSON && !method.supportsJson()) {
+            sendPlain(ctx, HttpResponseStatus.UNSUPPORTED_MEDIA_TYPE, path + " has no protobuf schema", keepAlive);
+            return;
+        }
+        REQUESTS.labels(protocol.label()).inc();
+
+        List<byte[]> messages;
+        try {
+            messages = decode(request, uri, method, protocol);
+        } catch (IllegalArgumentException | InvalidProtocolBufferException | JsonParseException e) {
+            WebCall call = new WebCall(ctx, method, protocol, keepAlive);
+            call.onClose(Status.INVALID_ARGUMENT.withDescription(e.getMessage()), new Metadata());
+            return;
+        }
+
+        CallOptions options = CallOptions.DEFAULT;
+        Long timeoutNanos = parseTimeout(request.headers().get("grpc-timeout"));
+        if (timeoutNanos != null) {
+            options = options.withDeadlineAfter(timeoutNanos, TimeUnit.NANOSECONDS);
+        }
+        ctx.channel().config().setAutoRead(false);
+        new WebCall(ctx, method, protocol, keepAlive).start(options, toMetadata(request.headers()), messages);
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+        System.err.println("gRPC-Web connection failed: " + cause.getMessage());
+        ctx.close();
+    }
+
+    private static List<byte[]> decode(FullHttpRequest request, QueryStringDecoder uri, WebMethod method,
+            Protocol protocol) throws InvalidProtocolBufferException {
+        switch (protocol) {
+            case GRPC_WEB:
+                return WebFrames.decode(ByteBufUtil.getBytes(request.content()));
+            case GRPC_WEB_TEXT:
+                return WebFrames.decode(WebFrames.decodeText(request.content().toString(StandardCharsets.US_ASCII)));
+            default:
+                if (request.method().equals(HttpMethod.GET)) {
+                    return List.of(method.fromQuery(uri.parameters()));
+                }
+                return method.fromJson(request.content().toString(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static Metadata toMetadata(HttpHeaders headers) {
+        Metadata metadata = new Metadata();
+        for (Map.Entry<String, String> header : headers) {
+            String name = header.getKey().toLowerCase(Locale.ROOT);
+            if (NOT_FORWARDED.contains(name) || name.startsWith("sec-") || name.startsWith("access-control-")) {
+                continue;
+            }
+            try {
+                if (name.endsWith(Metadata.BINARY_HEADER_SUFFIX)) {
+                    metadata.put(Metadata.Key.of(name, Metadata.BINARY_BYTE_MARSHALLER),
+                            Base64.getDecoder().decode(header.getValue()));
+                } else {
+                    metadata.put(Metadata.Key.of(name, Metadata.ASCII_STRING_MARSHALLER), header.getValue());
+                }
+            } catch (IllegalArgumentException e) {
+                // Not a valid gRPC header name or value; the call does not need it
+            }
+        }
+        return metadata;
+    }
+
+    /** Parses a {@code grpc-timeout} value such as {@code 500m} or {@code 10S}. */
+    static Long parseTimeout(String value) {
+        if (value == null || value.length() < 2 || value.length() > 9) {
+            return null;
+        }
+        long amount;
+        try {
+            amount = Long.parseLong(value.substring(0, value.length() - 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        switch (value.charAt(value.length() - 1)) {
+            case 'H':
+                return TimeUnit.HOURS.toNanos(amount);
+            case 'M':
+                return TimeUnit.MINUTES.toNanos(amount);
+            case 'S':
+                return TimeUnit.SECONDS.toNanos(amount);
+            case 'm':
+                return TimeUnit.MILLISECONDS.toNanos(amount);
+            case 'u':
+                return TimeUnit.MICROSECONDS.toNanos(amount);
+            case 'n':
+                return amount;
+            default:
+                return null;
+        }
+    }
+
+    static HttpResponseStatus toHttpStatus(Status.Code code) {
+        switch (code) {
+            case OK:
+                return HttpResponseStatus.OK;
+            case CANCELLED:
+                return HttpResponseStatus.valueOf(499, "Client Closed Request");
+            case INVALID_ARGUMENT:
+            case FAILED_PRECONDITION:
+            case OUT_OF_RANGE:
+                return HttpResponseStatus.BAD_REQUEST;
+            case DEADLINE_EXCEEDED:
+                return HttpResponseStatus.GATEWAY_TIMEOUT;
+            case NOT_FOUND:
+                return HttpResponseStatus.NOT_FOUND;
+            case ALREADY_EXISTS:
+            case ABORTED:
+                return HttpResponseStatus.CONFLICT;
+            case PERMISSION_DENIED:
+                return HttpResponseStatus.FORBIDDEN;
+            case UNAUTHENTICATED:
+                return HttpResponseStatus.UNAUTHORIZED;
+            case RESOURCE_EXHAUSTED:
+                return HttpResponseStatus.TOO_MANY_REQUESTS;
+            case UNIMPLEMENTED:
+                return HttpResponseStatus.NOT_IMPLEMENTED;
+            case UNAVAILABLE:
+                return HttpResponseStatus.SERVICE_UNAVAILABLE;
+            default:
+                return HttpResponseStatus.INTERNAL_SERVER_ERROR;
+        }
+    }
+
+    private static void sendPlain(ChannelHandlerContext ctx, HttpResponseStatus status, String text,
+            boolean keepAlive) {
+        finish(ctx, ctx.writeAndFlush(plain(status, text)), keepAlive);
+    }
+
+    private static void sendMethodNotAllowed(ChannelHandlerContext ctx, String text, boolean keepAlive) {
+        FullHttpResponse response = plain(HttpResponseStatus.METHOD_NOT_ALLOWED, text);
+        response.headers().set(HttpHeaderNames.ALLOW, HttpMethod.POST.name());
+        finish(ctx, ctx.writeAndFlush(response), keepAlive);
+    }
+
+    private static FullHttpResponse plain(HttpResponseStatus status, String text) {
+        FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, status,
+                Unpooled.copiedBuffer(text, StandardCharsets.UTF_8));
+        response.headers()
+                .set(HttpHeaderNames.CONTENT_TYPE, "text/plain; charset=utf-8")
+                .setInt(HttpHeaderNames.CONTENT_LENGTH, response.content().readableBytes());
+        return response;
+    }
+
+    private static void finish(ChannelHandlerContext ctx,
+            ChannelFuture lastWrite, boolean keepAlive) {
+        if (keepAlive) {
+            ctx.channel().config().setAutoRead(true);
+        } else {
+            lastWrite.addListener(ChannelFutureListener.CLOSE);
+        }
+    }
+
+    /** One call: relays the in-process call's responses to the HTTP response. */
+    private final class WebCall extends ClientCall.Listener<byte[]> {
+
+        private final ChannelHandlerContext ctx;
+        private final WebMethod method;
+        private final Protocol protocol;
+        private final boolean keepAlive;
+        private final GenericFutureListener<Future<Void>> cancelOnClose;
+
+        private ClientCall<byte[], byte[]> call;
+        private Metadata headers;
+        private boolean headersSent;
+
+        WebCall(ChannelHandlerContext ctx, WebMethod method, Protocol protocol, boolean keepAlive) {
+            this.ctx = ctx;
+            this.method = method;
+            this.protocol = protocol;
+            this.keepAlive = keepAlive;
+            this.cancelOnClose = future -> call.cancel("HTTP client disconnected", null);
+        }
+
+        void start(CallOptions options, Metadata metadata, List<byte[]> messages) {
+            call = channel.newCall(method.getMethod(), options);
+            ctx.channel().closeFuture().addListener(cancelOnClose);
+            call.start(this, metadata);
+            call.request(1);
+            for (byte[] message : messages) {
+                call.sendMessage(message);
+            }
+            call.halfClose();
+        }
+
+        @Override
+        public void onHeaders(Metadata headers) {
+            this.headers = headers;
+        }
+
+        @Override
+        public void onMessage(byte[] message) {
+            ByteBuf content;
+            try {
+                content = encode(message);
+            } catch (InvalidProtocolBufferException e) {
+                call.cancel("Response does not match its JSON schema", e);
+                return;
+            }
+            sendHeaders(HttpResponseStatus.OK);
+            ctx.writeAndFlush(new DefaultHttpContent(content)).addListener(future -> {
+                if (future.isSuccess()) {
+                    call.request(1);
+                }
+            });
+        }
+
+        @Override
+        public void onClose(Status status, Metadata trailers) {
+            if (call != null) {
+                ctx.channel().closeFuture().removeListener(cancelOnClose);
+            }
+            if (!ctx.channel().isActive()) {
+                return;
+            }
+            if (protocol == Protocol.JSON) {
+                closeJson(status);
+            } else if (!headersSent) {
+                // Trailers-only response: the status travels in the HTTP headers
+                FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
+                setGrpcHeaders(response);
+                for (String[] header : WebFrames.headers(trailers)) {
+                    response.headers().add(header[0], header[1]);
+                }
+                response.headers()
+                        .set("grpc-status", status.getCode().value())
+                        .setInt(HttpHeaderNames.CONTENT_LENGTH, 0);
+                if (status.getDescription() != null) {
+                    response.headers().set("grpc-message", WebFrames.encodeMessage(status.getDescription()));
+                }
+                finish(ctx, ctx.writeAndFlush(response), keepAlive);
+            } else {
+                finish(ctx, ctx.writeAndFlush(new DefaultLastHttpContent(wrap(WebFrames.trailers(status, trailers)))),
+                        keepAlive);
+            }
+        }
+
+        private void closeJson(Status status) {
+            if (!headersSent && !status.isOk()) {
+                byte[] body = (error(status).toString() + "\n").getBytes(StandardCharsets.UTF_8);
+                FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1,
+                        toHttpStatus(status.getCode()), Unpooled.wrappedBuffer(body));
+                response.headers()
+                        .set(HttpHeaderNames.CONTENT_TYPE, JSON)
+                        .setInt(HttpHeaderNames.CONTENT_LENGTH, body.length);
+                finish(ctx, ctx.writeAndFlush(response), keepAlive);
+                return;
+            }
+            sendHeaders(HttpResponseStatus.OK);
+            if (status.isOk()) {
+                finish(ctx, ctx.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT), keepAlive);
+            } else {
+                // Too late for an HTTP status: end the stream with an error line
+                JsonObject line = new JsonObject();
+                line.add("error", error(status));
+                finish(ctx, ctx.writeAndFlush(new DefaultLastHttpContent(
+                        Unpooled.copiedBuffer(line + "\n", StandardCharsets.UTF_8))), keepAlive);
+            }
+        }
+
+        private ByteBuf encode(byte[] message) throws InvalidProtocolBufferException {
+            switch (protocol) {
+                case GRPC_WEB:
+                    return Unpooled.wrappedBuffer(WebFrames.message(message));
+                case GRPC_WEB_TEXT:
+                    return wrap(WebFrames.message(message));
+                default:
+                    String json = method.toJson(message);
+                    return Unpooled.copiedBuffer(method.isServerStreaming() ? json + "\n" : json,
+                            StandardCharsets.UTF_8);
+            }
+        }
+
+        /** Frames as sent: binary as is, text mode as its own padded base64 chunk. */
+        private ByteBuf wrap(byte[] frame) {
+            return Unpooled.wrappedBuffer(protocol == Protocol.GRPC_WEB_TEXT
+                    ? Base64.getEncoder().encode(frame)
+                    : frame);
+        }
+
+        private void sendHeaders(HttpResponseStatus status) {
+            if (headersSent) {
+                return;
+            }
+            headersSent = true;
+            HttpResponse response = new DefaultHttpResponse(HttpVersion.HTTP_1_1, status);
+            if (protocol == Protocol.JSON) {
+                response.headers().set(HttpHeaderNames.CONTENT_TYPE,
+                        method.isServerStreaming() ? "application/x-ndjson" : JSON);
+            } else {
+                setGrpcHeaders(response);
+            }
+            for (String[] header : WebFrames.headers(headers)) {
+                response.headers().add(header[0], header[1]);
+            }
+            HttpUtil.setTransferEncodingChunked(response, true);
+            ctx.write(response);
+        }
+
+        private void setGrpcHeaders(HttpResponse response) {
+            response.headers().set(HttpHeaderNames.CONTENT_TYPE,
+                    protocol == Protocol.GRPC_WEB_TEXT ? GRPC_WEB_TEXT + "+proto" : GRPC_WEB + "+proto");
+            if (!keepAlive) {
+                response.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.CLOSE);
+            }
+        }
+
+        private JsonObject error(Status status) {
+            JsonObject error = new JsonObject();
+            error.addProperty("code", status.getCode().name());
+            error.addProperty("message", status.getDescription() == null ? "" : status.getDescription());
+            return error;
+        }
+    }
+}
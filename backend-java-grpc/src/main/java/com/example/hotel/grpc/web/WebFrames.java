@@ -0,0 +1,140 @@
+package com.example.hotel.grpc.web;
+
+import io.grpc.Metadata;
+import io.grpc.Status;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * gRPC-Web body framing: the same 5-byte prefix as gRPC over HTTP/2, plus a
+ * final frame with flag {@code 0x80} that carries the trailers as HTTP/1
+ * header lines, since browsers cannot read real trailers. The text variant
+ * is the same bytes in base64, where every chunk is padded on its own.
+ */
+final class WebFrames {
+
+    private static final int HEADER_BYTES = 5;
+    private static final byte COMPRESSED = 0x01;
+    private static final byte TRAILERS = (byte) 0x80;
+
+    private WebFrames() {
+    }
+
+    /**
+     * Splits a request body into its messages.
+     *
+     * @throws IllegalArgumentException on a truncated or compressed frame
+     */
+    static List<byte[]> decode(byte[] body) {
+        List<byte[]> messages = new ArrayList<>();
+        ByteBuffer buffer = ByteBuffer.wrap(body);
+        while (buffer.hasRemaining()) {
+            if (buffer.remaining() < HEADER_BYTES) {
+                throw new IllegalArgumentException("Truncated gRPC-Web frame header");
+            }
+            byte flags = buffer.get();
+            int length = buffer.getInt();
+            if ((flags & COMPRESSED) != 0) {
+                throw new IllegalArgumentException("Compressed gRPC-Web requests are not supported");
+            }
+            if (length < 0 || length > buffer.remaining()) {
+                throw new IllegalArgumentException("Truncated gRPC-Web frame");
+            }
+            byte[] message = new byte[length];
+            buffer.get(message);
+            if ((flags & TRAILERS) == 0) {
+                messages.add(message);
+            }
+        }
+        return messages;
+    }
+
+    /** Decodes a grpc-web-text body, which may be several padded base64 chunks back to back. */
+    static byte[] decodeText(String body) {
+        String text = body.replaceAll("\\s", "");
+        Base64.Decoder decoder = Base64.getDecoder();
+        byte[] out = new byte[text.length() / 4 * 3];
+        int written = 0;
+        int start = 0;
+        while (start < text.length()) {
+            int padding = text.indexOf('=', start);
+            // A chunk ends with the 4-character group that holds its padding
+            int end = padding < 0 ? text.length() : start + ((padding - start) / 4 + 1) * 4;
+            byte[] chunk = decoder.decode(text.substring(start, Math.min(end, text.length())));
+            System.arraycopy(chunk, 0, out, written, chunk.length);
+            written += chunk.length;
+            start = end;
+        }
+        return written == out.length ? out : Arrays.copyOf(out, written);
+    }
+
+    static byte[] message(byte[] message) {
+        return frame((byte) 0, message);
+    }
+
+    static byte[] trailers(Status status, Metadata trailers) {
+        StringBuilder block = new StringBuilder();
+        block.append("grpc-status:").append(status.getCode().value()).append("\r\n");
+        if (status.getDescription() != null) {
+            block.append("grpc-message:").append(encodeMessage(status.getDescription())).append("\r\n");
+        }
+        for (String[] header : headers(trailers)) {
+            block.append(header[0]).append(':').append(header[1]).append("\r\n");
+        }
+        return frame(TRAILERS, block.toString().getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /** Metadata as name/value pairs for HTTP/1 headers, binary values in base64. */
+    static List<String[]> headers(Metadata metadata) {
+        List<String[]> headers = new ArrayList<>();
+        if (metadata == null) {
+            return headers;
+        }
+        for (String name : metadata.keys()) {
+            if (name.endsWith(Metadata.BINARY_HEADER_SUFFIX)) {
+                Iterable<byte[]> values = metadata.getAll(Metadata.Key.of(name, Metadata.BINARY_BYTE_MARSHALLER));
+                if (values != null) {
+                    for (byte[] value : values) {
+                        headers.add(new String[] { name, Base64.getEncoder().encodeToString(value) });
+                    }
+                }
+            } else {
+                Iterable<String> values = metadata.getAll(Metadata.Key.of(name, Metadata.ASCII_STRING_MARSHALLER));
+                if (values != null) {
+                    for (String value : values) {
+                        headers.add(new String[] { name, value });
+                    }
+                }
+            }
+        }
+        return headers;
+    }
+
+    /** Percent-encodes a status message the way gRPC sends grpc-message. */
+    static String encodeMessage(String message) {
+        byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+        StringBuilder encoded = new StringBuilder(bytes.length);
+        for (byte b : bytes) {
+            if (b >= ' ' && b < '~' && b != '%') {
+                encoded.append((char) b);
+            } else {
+                encoded.append('%').append(Character.toUpperCase(Character.forDigit((b >> 4) & 0xF, 16)))
+                        .append(Character.toUpperCase(Character.forDigit(b & 0xF, 16)));
+            }
+        }
+        return encoded.toString();
+    }
+
+    private static byte[] frame(byte flags, byte[] payload) {
+        return ByteBuffer.allocate(HEADER_BYTES + payload.length)
+                .put(flags)
+                .putInt(payload.length)
+                .put(payload)
+                .array();
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.hotel.grpc.web;
+
+import com.example.hotel.grpc.config.Settings;
+import com.example.hotel.grpc.server.ServerExecutors;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.ServerInterceptor;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.netty.shaded.io.netty.bootstrap.ServerBootstrap;
+import io.grpc.netty.shaded.io.netty.channel.Channel;
+import io.grpc.netty.shaded.io.netty.channel.ChannelInitializer;
+import io.grpc.netty.shaded.io.netty.channel.EventLoopGroup;
+import io.grpc.netty.shaded.io.netty.channel.nio.NioEventLoopGroup;
+import io.grpc.netty.shaded.io.netty.channel.socket.SocketChannel;
+import io.grpc.netty.shaded.io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.grpc.netty.shaded.io.netty.handler.codec.http.HttpMethod;
+import io.grpc.netty.shaded.io.netty.handler.codec.http.HttpObjectAggregator;
+import io.grpc.netty.shaded.io.netty.handler.codec.http.HttpServerCodec;
+import io.grpc.netty.shaded.io.netty.handler.codec.http.cors.CorsConfig;
+import io.grpc.netty.shaded.io.netty.handler.codec.http.cors.CorsConfigBuilder;
+import io.grpc.netty.shaded.io.netty.handler.codec.http.cors.CorsHandler;
+import io.grpc.netty.shaded.io.netty.util.concurrent.DefaultThreadFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves gRPC-Web (binary and text) and JSON over HTTP/1.1 from the server
+ * process, in place of an Envoy sidecar.
+ * <p>
+ * It runs on the Netty bundled with {@code grpc-netty-shaded}, the one the
+ * gRPC server already uses, and hands every request to an in-process server
+ * that hosts the same service definitions behind the same interceptors, so
+ * gateway calls share the concurrency limit and show up in the call metrics.
+ * The in-process hop copies message bytes and nothing else: there is no
+ * second socket and no HTTP/2 framing between the gateway and the services.
+ */
+public class WebGateway implements AutoCloseable {
+
+    /** The Vite dev server of {@code frontend-react}; {@code *} allows any origin. */
+    private static final String DEFAULT_CORS_ORIGINS = "http://localhost:5173";
+
+    private final int port;
+    private final CorsConfig cors;
+    private final int maxRequestBytes;
+    private final Server inProcessServer;
+    private final ManagedChannel inProcessChannel;
+    private final Map<String, WebMethod> methods;
+    private final EventLoopGroup bossGroup;
+    private final EventLoopGroup workerGroup;
+
+    private Channel serverChannel;
+
+    /**
+     * @param interceptors applied to gateway calls in the order given, outermost first
+     */
+    public WebGateway(List<ServerServiceDefinition> services, List<ServerInterceptor> interceptors,
+            ServerExecutors executors, int port, CorsConfig cors, int maxRequestBytes, int threads) {
+        this.port = port;
+        this.cors = cors;
+        this.maxRequestBytes = maxRequestBytes;
+        this.methods = WebMethod.index(services);
+
+        String name = InProcessServerBuilder.generateName();
+        InProcessServerBuilder builder = InProcessServerBuilder.forName(name);
+        executors.apply(builder);
+        services.forEach(builder::addService);
+        // ServerBuilder runs the last interceptor added first
+        for (int i = interceptors.size() - 1; i >= 0; i--) {
+            builder.intercept(interceptors.get(i));
+        }
+        this.inProcessServer = builder.build();
+        // Responses are written to Netty, which queues them for the event loop
+        this.inProcessChannel = InProcessChannelBuilder.forName(name).directExecutor().build();
+        this.bossGroup = new NioEventLoopGroup(1, new DefaultThreadFactory("grpc-web-accept", true));
+        this.workerGroup = new NioEventLoopGroup(threads, new DefaultThreadFactory("grpc-web", true));
+    }
+
+    /**
+     * Returns a gateway configured from {@code hotel.grpc.web.*}, or {@code null}
+     * when {@code hotel.grpc.web.enabled} is false.
+     */
+    public static WebGateway fromSettings(List<ServerServiceDefinition> services,
+            List<ServerInterceptor> interceptors, ServerExecutors executors) {
+        if (!Settings.getBoolean("hotel.grpc.web.enabled", true)) {
+            return null;
+        }
+        String origins = Settings.getString("hotel.grpc.web.cors-origins", DEFAULT_CORS_ORIGINS);
+        CorsConfigBuilder cors = "*".equals(origins)
+                ? CorsConfigBuilder.forAnyOrigin()
+                : CorsConfigBuilder.forOrigins(origins.split(","));
+        cors.allowedRequestMethods(HttpMethod.GET, HttpMethod.POST, HttpMethod.OPTIONS)
+                .allowedRequestHeaders("content-type", "x-grpc-web", "x-user-agent", "grpc-timeout",
+                        "x-accept-content-transfer-encoding", "x-accept-response-streaming",
+                        "keep-alive", "user-agent", "cache-control", "content-transfer-encoding")
+                .exposeHeaders("grpc-status", "grpc-message")
+                .maxAge(Settings.getLong("hotel.grpc.web.cors-max-age", 1_728_000));
+        return new WebGateway(services, interceptors, executors,
+                Settings.getInt("hotel.grpc.web.port", 8080),
+                cors.build(),
+                Settings.getInt("hotel.grpc.web.max-request-bytes", 4 * 1024 * 1024),
+                Settings.getInt("hotel.grpc.web.threads", 0));
+    }
+
+    public WebGateway start() throws IOException, InterruptedException {
+        inProcessServer.start();
+        serverChannel = new ServerBootstrap()
+                .group(bossGroup, workerGroup)
+                .channel(NioServerSocketChannel.class)
+                .childHandler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel ch) {
+                        ch.pipeline()
+                                .addLast(new HttpServerCodec())
+                                .addLast(new HttpObjectAggregator(maxRequestBytes))
+                                .addLast(new CorsHandler(cors))
+                                .addLast(new WebCallHandler(inProcessChannel, methods));
+                    }
+                })
+                .bind(port)
+                .sync()
+                .channel();
+        return this;
+    }
+
+    public int getPort() {
+        return serverChannel == null ? port : ((InetSocketAddress) serverChannel.localAddress()).getPort();
+    }
+
+    /** Stops accepting connections; calls already open run to completion. */
+    public void shutdown() {
+        if (serverChannel != null) {
+            serverChannel.close().syncUninterruptibly();
+        }
+        inProcessServer.shutdown();
+    }
+
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return inProcessServer.awaitTermination(timeout, unit);
+    }
+
+    @Override
+    public void close() {
+        shutdown();
+        inProcessServer.shutdownNow();
+        inProcessChannel.shutdownNow();
+        bossGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS);
+        workerGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS);
+    }
+}
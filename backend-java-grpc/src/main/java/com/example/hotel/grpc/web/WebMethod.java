@@ -0,0 +1,117 @@
+package com.example.hotel.grpc.web;
+
+import com.example.hotel.grpc.cache.PreEncoded;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.protobuf.Descriptors;
+import com.google.protobuf.DynamicMessage;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.util.JsonFormat;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerMethodDefinition;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.protobuf.ProtoServiceDescriptorSupplier;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * A method the gateway can call: the server's descriptor with byte
+ * marshallers, so gRPC-Web payloads pass through without being parsed, and
+ * the protobuf message types JSON requests are transcoded with.
+ */
+final class WebMethod {
+
+    private static final JsonFormat.Parser JSON_PARSER = JsonFormat.parser();
+    private static final JsonFormat.Printer JSON_PRINTER = JsonFormat.printer()
+            .includingDefaultValueFields()
+            .omittingInsignificantWhitespace();
+
+    /** Methods that only read, by naming convention, the only ones a GET may call. */
+    private static final Pattern READ_ONLY = Pattern.compile("(Get|List|Lookup|Watch)[A-Z].*");
+
+    private final MethodDescriptor<byte[], byte[]> method;
+    private final Descriptors.Descriptor inputType;
+    private final Descriptors.Descriptor outputType;
+
+    private WebMethod(MethodDescriptor<byte[], byte[]> method, Descriptors.MethodDescriptor schema) {
+        this.method = method;
+        this.inputType = schema == null ? null : schema.getInputType();
+        this.outputType = schema == null ? null : schema.getOutputType();
+    }
+
+    /** Every method of the services, by full name such as {@code hotel.ReservationService/GetReservation}. */
+    static Map<String, WebMethod> index(List<ServerServiceDefinition> services) {
+        Map<String, WebMethod> methods = new HashMap<>();
+        for (ServerServiceDefinition service : services) {
+            Object schema = service.getServiceDescriptor().getSchemaDescriptor();
+            Descriptors.ServiceDescriptor protoService = schema instanceof ProtoServiceDescriptorSupplier
+                    ? ((ProtoServiceDescriptorSupplier) schema).getServiceDescriptor()
+                    : null;
+            for (ServerMethodDefinition<?, ?> definition : service.getMethods()) {
+                MethodDescriptor<?, ?> descriptor = definition.getMethodDescriptor();
+                methods.put(descriptor.getFullMethodName(), new WebMethod(
+                        descriptor.toBuilder(PreEncoded.MARSHALLER, PreEncoded.MARSHALLER).build(),
+                        protoService == null ? null : protoService.findMethodByName(descriptor.getBareMethodName())));
+            }
+        }
+        return methods;
+    }
+
+    MethodDescriptor<byte[], byte[]> getMethod() {
+        return method;
+    }
+
+    boolean isServerStreaming() {
+        return !method.getType().serverSendsOneMessage();
+    }
+
+    boolean isReadOnly() {
+        String name = method.getBareMethodName();
+        return name != null && READ_ONLY.matcher(name).matches();
+    }
+
+    boolean supportsJson() {
+        return inputType != null;
+    }
+
+    /**
+     * Encodes a JSON request body. An array is one message per element, for
+     * client-streaming methods.
+     *
+     * @throws InvalidProtocolBufferException if the JSON does not match the request type
+     */
+    List<byte[]> fromJson(String json) throws InvalidProtocolBufferException {
+        List<byte[]> messages = new ArrayList<>();
+        JsonElement element = json.isBlank() ? new JsonObject() : JsonParser.parseString(json);
+        if (element.isJsonArray()) {
+            for (JsonElement item : element.getAsJsonArray()) {
+                messages.add(fromJson(item));
+            }
+        } else {
+            messages.add(fromJson(element));
+        }
+        return messages;
+    }
+
+    /** Encodes query parameters as a request, each naming a top-level field. */
+    byte[] fromQuery(Map<String, List<String>> parameters) throws InvalidProtocolBufferException {
+        JsonObject json = new JsonObject();
+        parameters.forEach((name, values) -> json.addProperty(name, values.get(values.size() - 1)));
+        return fromJson(json);
+    }
+
+    String toJson(byte[] message) throws InvalidProtocolBufferException {
+        return JSON_PRINTER.print(DynamicMessage.parseFrom(outputType, message));
+    }
+
+    private byte[] fromJson(JsonElement json) throws InvalidProtocolBufferException {
+        DynamicMessage.Builder builder = DynamicMessage.newBuilder(inputType);
+        JSON_PARSER.merge(json.toString(), builder);
+        return builder.build().toByteArray();
+    }
+}
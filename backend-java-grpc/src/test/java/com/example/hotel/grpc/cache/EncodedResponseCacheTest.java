@@ -0,0 +1,51 @@
+package com.example.hotel.grpc.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class EncodedResponseCacheTest {
+
+    private final EncodedResponseCache cache = new EncodedResponseCache(100, 1 << 20);
+
+    @Test
+    void dropsALoadWhoseKeyWasInvalidatedMeanwhile() {
+        long token = cache.loadToken(7);
+        cache.invalidate(7);
+
+        cache.putIfUnchanged(7, new byte[] { 1 }, token);
+
+        assertNull(cache.get(7));
+        assertEquals(1, cache.getDroppedPuts());
+    }
+
+    @Test
+    void keepsLoadsOfKeysThatWereNotInvalidated() {
+        long[] tokens = new long[10];
+        for (int key = 0; key < tokens.length; key++) {
+            tokens[key] = cache.loadToken(key);
+        }
+        cache.invalidate(3);
+
+        for (int key = 0; key < tokens.length; key++) {
+            cache.putIfUnchanged(key, new byte[] { (byte) key }, tokens[key]);
+        }
+
+        // Up to the keys sharing a version stripe with 3, which none of these do
+        assertNull(cache.get(3));
+        assertArrayEquals(new byte[] { 4 }, cache.get(4));
+        assertEquals(9, cache.size());
+        assertEquals(1, cache.getDroppedPuts());
+    }
+
+    @Test
+    void aLoadStartedAfterTheInvalidationIsStored() {
+        cache.invalidate(7);
+        cache.putIfUnchanged(7, new byte[] { 1 }, cache.loadToken(7));
+
+        assertArrayEquals(new byte[] { 1 }, cache.get(7));
+        assertEquals(0, cache.getDroppedPuts());
+    }
+}
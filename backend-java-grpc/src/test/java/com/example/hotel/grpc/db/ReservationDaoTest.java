@@ -0,0 +1,149 @@
+package com.example.hotel.grpc.db;
+
+import com.example.hotel.grpc.Chambre;
+import com.example.hotel.grpc.Client;
+import com.example.hotel.grpc.CreateReservationRequest;
+import com.example.hotel.grpc.Reservation;
+import com.example.hotel.grpc.db.ReservationDao.NewReservation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ReservationDaoTest {
+
+    private TestDatabase db;
+
+    @BeforeEach
+    void createSchema() throws SQLException {
+        db = TestDatabase.create();
+    }
+
+    @AfterEach
+    void dropSchema() throws SQLException {
+        db.close();
+    }
+
+    @Test
+    void createBatchWithoutDedupeInsertsEveryClient() throws SQLException {
+        ReservationDao dao = new ReservationDao(db.getDataSource());
+
+        List<Reservation> created = dao.createBatch(List.of(item("ana@example.com", "Ana", 0), item("ana@example.com", "Ana", 0)));
+
+        assertEquals(2, created.size());
+        assertNotEquals(created.get(0).getClient().getId(), created.get(1).getClient().getId());
+        assertEquals(2, db.queryLong("SELECT count(*) FROM client"));
+        assertEquals(2, db.queryLong("SELECT count(*) FROM reservation"));
+    }
+
+    @Test
+    void createBatchReusesClientsByEmailAndReturnsTheStoredRows() throws SQLException {
+        ReservationDao dao = dedupingDao();
+        Reservation first = dao.create(item("ana@example.com", "Ana", 0));
+
+        List<Reservation> created = dao.createBatch(List.of(
+                item("ana@example.com", "Renamed", first.getChambre().getId()),
+                item("bob@example.com", "Bob", 0),
+                item("", "Nobody", 0)));
+
+        Reservation again = created.get(0);
+        assertEquals(first.getClient().getId(), again.getClient().getId());
+        assertEquals("Ana", again.getClient().getNom());
+        assertEquals(first.getChambre(), again.getChambre());
+        assertEquals("Bob", created.get(1).getClient().getNom());
+        assertEquals(3, db.queryLong("SELECT count(*) FROM client"));
+        assertEquals(3, db.queryLong("SELECT count(*) FROM chambre"));
+    }
+
+    @Test
+    void createReturnsTheStoredClientAndChambre() throws SQLException {
+        ReservationDao dao = dedupingDao();
+        Reservation first = dao.create(item("ana@example.com", "Ana", 0));
+
+        // The first repeat resolves the email in SQL, the second from the id cache
+        for (int i = 0; i < 2; i++) {
+            Reservation again = dao.create(item("ana@example.com", "Renamed", first.getChambre().getId()));
+            assertEquals(first.getClient(), again.getClient());
+            assertEquals(first.getChambre(), again.getChambre());
+        }
+        assertEquals(1, db.queryLong("SELECT count(*) FROM client"));
+        assertEquals(1, db.queryLong("SELECT count(*) FROM chambre"));
+    }
+
+    @Test
+    void createFallsBackWhenTheCachedClientIsGone() throws SQLException {
+        ReservationDao dao = dedupingDao();
+        Reservation first = dao.create(item("ana@example.com", "Ana", 0));
+        db.execute("DELETE FROM reservation");
+        db.execute("DELETE FROM client");
+
+        Reservation again = dao.create(item("ana@example.com", "Ana", 0));
+
+        assertNotEquals(first.getClient().getId(), again.getClient().getId());
+        assertEquals(1, db.queryLong("SELECT count(*) FROM client"));
+    }
+
+    @Test
+    void unknownChambreIdsAreRejectedWithoutWritingAnything() throws SQLException {
+        ReservationDao dao = dedupingDao();
+        Reservation first = dao.create(item("ana@example.com", "Ana", 0));
+        long missing = first.getChambre().getId() + 1000;
+
+        // Once resolved in SQL, once with the client id from the cache, once in a batch
+        UnknownChambreException e = assertThrows(UnknownChambreException.class,
+                () -> dao.create(item("bob@example.com", "Bob", missing)));
+        assertEquals(Set.of(missing), e.getChambreIds());
+        assertThrows(UnknownChambreException.class, () -> dao.create(item("ana@example.com", "Ana", missing)));
+        e = assertThrows(UnknownChambreException.class, () -> dao.createBatch(List.of(
+                item("carl@example.com", "Carl", first.getChambre().getId()),
+                item("dora@example.com", "Dora", missing))));
+        assertEquals(Set.of(missing), e.getChambreIds());
+
+        assertEquals(1, db.queryLong("SELECT count(*) FROM client"));
+        assertEquals(1, db.queryLong("SELECT count(*) FROM chambre"));
+        assertEquals(1, db.queryLong("SELECT count(*) FROM reservation"));
+    }
+
+    @Test
+    void emailIndexMergesExistingDuplicates() throws SQLException {
+        db.execute("INSERT INTO client (id, nom, prenom, email, telephone) VALUES " +
+                "(1, 'Ana', '', 'ana@example.com', ''), (2, 'Ana bis', '', 'ana@example.com', ''), " +
+                "(3, 'No email', '', '', ''), (4, 'No email', '', '', '')");
+        db.execute("INSERT INTO chambre (id, type, prix, disponible) VALUES (1, 'Double', 80, true)");
+        db.execute("INSERT INTO reservation (client_id, chambre_id, date_debut, date_fin, preferences) VALUES " +
+                "(1, 1, '2024-01-01', '2024-01-02', ''), (2, 1, '2024-02-01', '2024-02-02', ''), " +
+                "(4, 1, '2024-03-01', '2024-03-02', '')");
+
+        ClientEmailIndex.ensure(db.getDataSource());
+        // A second run finds the valid index and changes nothing
+        ClientEmailIndex.ensure(db.getDataSource());
+
+        assertEquals(3, db.queryLong("SELECT count(*) FROM client"));
+        assertEquals(2, db.queryLong("SELECT count(*) FROM reservation WHERE client_id = 1"));
+        assertEquals(1, db.queryLong("SELECT count(*) FROM reservation WHERE client_id = 4"));
+        assertEquals(1, db.queryLong("SELECT count(*) FROM pg_index " +
+                "WHERE indexrelid = to_regclass('" + ClientEmailIndex.NAME + "') AND indisvalid"));
+    }
+
+    private ReservationDao dedupingDao() throws SQLException {
+        ClientEmailIndex.ensure(db.getDataSource());
+        return new ReservationDao(db.getDataSource(), new ClientIdCache(100));
+    }
+
+    private static NewReservation item(String email, String nom, long chambreId) {
+        return NewReservation.of(CreateReservationRequest.newBuilder()
+                .setClient(Client.newBuilder().setNom(nom).setPrenom("").setEmail(email).setTelephone(""))
+                .setChambre(Chambre.newBuilder().setId(chambreId).setType("Double").setPrix(80).setDisponible(true))
+                .setDateDebut("2024-05-01")
+                .setDateFin("2024-05-03")
+                .setPreferences("")
+                .build());
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.hotel.grpc.db;
+
+import com.zaxxer.hikari.HikariConfig;
+import org.junit.jupiter.api.Assumptions;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * A throwaway schema holding the reservation tables as the Spring backend
+ * creates them, on the PostgreSQL of {@code docker-compose.yml} unless
+ * {@code hotel.test.db.url} says otherwise. Tests that need one are skipped
+ * when that server cannot be reached.
+ */
+public final class TestDatabase implements AutoCloseable {
+
+    private static final String URL = System.getProperty("hotel.test.db.url",
+            "jdbc:postgresql://localhost:5433/hotel_db");
+    private static final String USER = System.getProperty("hotel.test.db.user", "postgres");
+    private static final String PASSWORD = System.getProperty("hotel.test.db.password", "password");
+
+    private static final String[] TABLES = {
+            "CREATE TABLE client (id bigserial PRIMARY KEY, nom varchar(255), prenom varchar(255), " +
+                    "email varchar(255), telephone varchar(255))",
+            "CREATE TABLE chambre (id bigserial PRIMARY KEY, type varchar(255), prix numeric(38, 2), " +
+                    "disponible boolean NOT NULL)",
+            "CREATE TABLE reservation (id bigserial PRIMARY KEY, client_id bigint REFERENCES client, " +
+                    "chambre_id bigint REFERENCES chambre, date_debut date, date_fin date, preferences varchar(255))",
+    };
+
+    private final String schema;
+    private final ConnectionPool pool;
+
+    private TestDatabase(String schema, ConnectionPool pool) {
+        this.schema = schema;
+        this.pool = pool;
+    }
+
+    public static TestDatabase create() throws SQLException {
+        String schema = "grpc_test_" + Long.toHexString(System.nanoTime());
+        try (Connection conn = connect()) {
+            try (Statement st = conn.createStatement()) {
+                st.execute("CREATE SCHEMA " + schema);
+                st.execute("SET search_path TO " + schema);
+                for (String table : TABLES) {
+                    st.execute(table);
+                }
+            }
+        }
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl(URL + (URL.contains("?") ? "&" : "?") + "currentSchema=" + schema);
+        config.setUsername(USER);
+        config.setPassword(PASSWORD);
+        config.setMaximumPoolSize(4);
+        return new TestDatabase(schema, new ConnectionPool(config));
+    }
+
+    private static Connection connect() {
+        try {
+            return DriverManager.getConnection(URL, USER, PASSWORD);
+        } catch (SQLException e) {
+            Assumptions.abort("No test database at " + URL + ": " + e.getMessage());
+            throw new AssertionError(e);
+        }
+    }
+
+    public ConnectionPool getPool() {
+        return pool;
+    }
+
+    public DataSource getDataSource() {
+        return pool.getDataSource();
+    }
+
+    public void execute(String sql) throws SQLException {
+        try (Connection conn = pool.getConnection();
+                Statement st = conn.createStatement()) {
+            st.execute(sql);
+        }
+    }
+
+    public long queryLong(String sql) throws SQLException {
+        try (Connection conn = pool.getConnection();
+                Statement st = conn.createStatement();
+                ResultSet rs = st.executeQuery(sql)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    @Override
+    public void close() throws SQLException {
+        pool.close();
+        try (Connection conn = connect();
+                Statement st = conn.createStatement()) {
+            st.execute("DROP SCHEMA " + schema + " CASCADE");
+        }
+    }
+}
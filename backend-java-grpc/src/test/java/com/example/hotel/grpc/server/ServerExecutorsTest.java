@@ -0,0 +1,112 @@
+package com.example.hotel.grpc.server;
+
+import com.example.hotel.grpc.CreateReservationRequest;
+import com.example.hotel.grpc.Reservation;
+import com.example.hotel.grpc.ReservationResponse;
+import com.example.hotel.grpc.ReservationServiceGrpc;
+import com.google.common.util.concurrent.ListenableFuture;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ServerExecutorsTest {
+
+    private static final CreateReservationRequest REQUEST = CreateReservationRequest.getDefaultInstance();
+
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private ServerExecutors executors;
+    private Server server;
+    private ManagedChannel channel;
+
+    @AfterEach
+    void stop() {
+        release.countDown();
+        channel.shutdownNow();
+        server.shutdownNow();
+        executors.getBoundedPool().shutdownNow();
+        executors.close();
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = ExecutorMode.class, names = { "BOUNDED", "HYBRID" })
+    void callsBeyondTheQueueFailWithResourceExhausted(ExecutorMode mode) throws Exception {
+        ReservationServiceGrpc.ReservationServiceFutureStub stub = start(mode);
+
+        // One call holds the only worker and one waits in the queue of one
+        ListenableFuture<ReservationResponse> running = stub.createReservation(REQUEST);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        ListenableFuture<ReservationResponse> queued = stub.createReservation(REQUEST);
+        while (executors.getBoundedPool().getQueue().isEmpty()) {
+            Thread.sleep(1);
+        }
+
+        ExecutionException e = assertThrows(ExecutionException.class,
+                () -> stub.createReservation(REQUEST).get(5, TimeUnit.SECONDS));
+        assertEquals(Status.Code.RESOURCE_EXHAUSTED, ((StatusRuntimeException) e.getCause()).getStatus().getCode());
+        assertEquals(1, executors.getRejectedCount());
+
+        release.countDown();
+        assertEquals(7, running.get(5, TimeUnit.SECONDS).getReservation().getId());
+        assertEquals(7, queued.get(5, TimeUnit.SECONDS).getReservation().getId());
+    }
+
+    @Test
+    void theServerKeepsServingAfterShedding() throws Exception {
+        ReservationServiceGrpc.ReservationServiceFutureStub stub = start(ExecutorMode.BOUNDED);
+        ListenableFuture<ReservationResponse> running = stub.createReservation(REQUEST);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        stub.createReservation(REQUEST);
+        while (executors.getBoundedPool().getQueue().isEmpty()) {
+            Thread.sleep(1);
+        }
+        assertThrows(ExecutionException.class, () -> stub.createReservation(REQUEST).get(5, TimeUnit.SECONDS));
+
+        release.countDown();
+        running.get(5, TimeUnit.SECONDS);
+
+        assertEquals(7, stub.createReservation(REQUEST).get(5, TimeUnit.SECONDS).getReservation().getId());
+    }
+
+    private ReservationServiceGrpc.ReservationServiceFutureStub start(ExecutorMode mode) throws Exception {
+        executors = new ServerExecutors(mode, 1, 1);
+        ReservationServiceGrpc.ReservationServiceImplBase service = new ReservationServiceGrpc.ReservationServiceImplBase() {
+            @Override
+            public void createReservation(CreateReservationRequest request,
+                    StreamObserver<ReservationResponse> responseObserver) {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                responseObserver.onNext(ReservationResponse.newBuilder()
+                        .setReservation(Reservation.newBuilder().setId(7)).build());
+                responseObserver.onCompleted();
+            }
+        };
+        String name = InProcessServerBuilder.generateName();
+        InProcessServerBuilder builder = InProcessServerBuilder.forName(name);
+        executors.apply(builder);
+        server = builder.addService(service).build().start();
+        channel = InProcessChannelBuilder.forName(name).build();
+        return ReservationServiceGrpc.newFutureStub(channel);
+    }
+}
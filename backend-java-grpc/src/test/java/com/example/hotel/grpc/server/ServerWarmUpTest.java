@@ -0,0 +1,57 @@
+package com.example.hotel.grpc.server;
+
+import com.example.hotel.grpc.ReservationGrpcService;
+import com.example.hotel.grpc.cache.EncodedResponseCache;
+import com.example.hotel.grpc.db.ReservationDao;
+import com.example.hotel.grpc.db.TestDatabase;
+import io.prometheus.client.CollectorRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ServerWarmUpTest {
+
+    private TestDatabase db;
+
+    @BeforeEach
+    void createSchema() throws SQLException {
+        db = TestDatabase.create();
+        db.execute("INSERT INTO client (id, nom, prenom, email, telephone) VALUES (1, 'Ana', '', '', '')");
+        db.execute("INSERT INTO chambre (id, type, prix, disponible) VALUES (1, 'Double', 80, true)");
+        db.execute("INSERT INTO reservation (client_id, chambre_id, date_debut, date_fin, preferences) " +
+                "VALUES (1, 1, '2024-05-01', '2024-05-03', '')");
+    }
+
+    @AfterEach
+    void dropSchema() throws SQLException {
+        db.close();
+    }
+
+    @Test
+    void everyGetReservationReadsTheDatabaseAndLeavesTheCacheAlone() throws Exception {
+        EncodedResponseCache cache = new EncodedResponseCache(100, 1 << 20);
+        ReservationGrpcService service = new ReservationGrpcService(new ReservationDao(db.getDataSource()),
+                Runnable::run, Executors.newCachedThreadPool(), cache, null);
+        double before = lookups();
+
+        new ServerWarmUp(List.of(service.uncachedServiceDefinition()), 100, 4, 10).run();
+
+        // 8 calls in 10 are v1 GetReservation, all for the one reservation
+        assertTrue(lookups() - before >= 80, "lookups: " + (lookups() - before));
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getHits() + cache.getMisses());
+    }
+
+    private static double lookups() {
+        Double value = CollectorRegistry.defaultRegistry.getSampleValue("hotel_db_statement_executions_total",
+                new String[] { "statement" }, new String[] { "reservation_find_by_id" });
+        return value == null ? 0 : value;
+    }
+}
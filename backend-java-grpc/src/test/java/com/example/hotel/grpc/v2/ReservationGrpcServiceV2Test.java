@@ -0,0 +1,98 @@
+package com.example.hotel.grpc.v2;
+
+import com.example.hotel.grpc.db.ReservationDao;
+import com.example.hotel.grpc.db.TestDatabase;
+import com.google.protobuf.FieldMask;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ReservationGrpcServiceV2Test {
+
+    private static final int JULY_1 = (int) LocalDate.of(2025, 7, 1).toEpochDay();
+
+    private TestDatabase db;
+    private Server server;
+    private ManagedChannel channel;
+
+    @BeforeEach
+    void createSchema() throws SQLException {
+        db = TestDatabase.create();
+    }
+
+    @AfterEach
+    void stop() throws SQLException {
+        if (channel != null) {
+            channel.shutdownNow();
+            server.shutdownNow();
+        }
+        db.close();
+    }
+
+    @Test
+    void createAndUpdateReturnTheStoredRowInEpochDaysAndMinorUnits() throws Exception {
+        // Deduplicating, as configured by default
+        ReservationServiceGrpc.ReservationServiceBlockingStub stub =
+                start(ReservationDao.fromSettings(db.getDataSource()));
+
+        Reservation created = stub.createReservation(request()).getReservation();
+
+        assertEquals(12_990, created.getChambre().getPrixMinor());
+        assertEquals(JULY_1, created.getDateDebut());
+        assertEquals(JULY_1 + 4, created.getDateFin());
+        assertEquals(1, db.queryLong("SELECT count(*) FROM chambre WHERE prix = 129.90"));
+        assertEquals(1, db.queryLong("SELECT count(*) FROM reservation " +
+                "WHERE date_debut = DATE '2025-07-01' AND date_fin = DATE '2025-07-05'"));
+
+        Reservation updated = stub.updateReservation(UpdateReservationRequest.newBuilder()
+                .setId(created.getId())
+                .setDateFin(JULY_1 + 6)
+                .setUpdateMask(FieldMask.newBuilder().addPaths("dateFin"))
+                .build()).getReservation();
+
+        assertEquals(created.toBuilder().setDateFin(JULY_1 + 6).build(), updated);
+        assertEquals(updated, stub.getReservation(GetReservationRequest.newBuilder()
+                .setId(created.getId()).build()).getReservation());
+    }
+
+    @Test
+    void createWithoutDedupeReturnsTheStoredRow() throws Exception {
+        ReservationServiceGrpc.ReservationServiceBlockingStub stub = start(new ReservationDao(db.getDataSource()));
+
+        Reservation created = stub.createReservation(request()).getReservation();
+
+        assertEquals(created, stub.getReservation(GetReservationRequest.newBuilder()
+                .setId(created.getId()).build()).getReservation());
+        assertEquals("camille.martin@example.com", created.getClient().getEmail());
+    }
+
+    private ReservationServiceGrpc.ReservationServiceBlockingStub start(ReservationDao dao) throws IOException {
+        String name = InProcessServerBuilder.generateName();
+        server = InProcessServerBuilder.forName(name).directExecutor()
+                .addService(new ReservationGrpcServiceV2(dao, db.getDataSource(), null))
+                .build().start();
+        channel = InProcessChannelBuilder.forName(name).directExecutor().build();
+        return ReservationServiceGrpc.newBlockingStub(channel);
+    }
+
+    private static CreateReservationRequest request() {
+        return CreateReservationRequest.newBuilder()
+                .setClient(Client.newBuilder().setNom("Martin").setPrenom("Camille")
+                        .setEmail("camille.martin@example.com").setTelephone("+33612345678"))
+                .setChambre(Chambre.newBuilder().setType("DOUBLE").setPrixMinor(12_990).setDisponible(true))
+                .setDateDebut(JULY_1)
+                .setDateFin(JULY_1 + 4)
+                .setPreferences("Non-smoking")
+                .build();
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.hotel.grpc.watch;
+
+import com.example.hotel.grpc.db.ChangeLog;
+import com.example.hotel.grpc.db.TestDatabase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ChangeFeedTest {
+
+    private static final String INSERT = "INSERT INTO reservation (client_id, chambre_id, date_debut, date_fin, " +
+            "preferences) VALUES (1, 1, '2024-05-01', '2024-05-03', '')";
+
+    private TestDatabase db;
+    private ChangeFeed feed;
+    private final BlockingQueue<ChangeLog.Entry> read = new LinkedBlockingQueue<>();
+
+    @BeforeEach
+    void startFeed() throws SQLException {
+        db = TestDatabase.create();
+        db.execute("INSERT INTO client (id, nom, prenom, email, telephone) VALUES (1, 'Ana', '', '', '')");
+        db.execute("INSERT INTO chambre (id, type, prix, disponible) VALUES (1, 'Double', 80, true)");
+        feed = ChangeFeed.start(db.getPool());
+        assertNotNull(feed);
+        feed.addListener(read::add);
+    }
+
+    @AfterEach
+    void stopFeed() throws SQLException {
+        if (feed != null) {
+            feed.close();
+        }
+        db.close();
+    }
+
+    @Test
+    void waitsForTheTransactionThatOwnsAGap() throws Exception {
+        try (Connection slow = db.getDataSource().getConnection()) {
+            slow.setAutoCommit(false);
+            insert(slow);
+            db.execute(INSERT);
+
+            // Well past the poll interval: the later entry stays behind the open transaction
+            assertNull(read.poll(2_500, TimeUnit.MILLISECONDS));
+
+            slow.commit();
+        }
+        assertEquals(1, next().getSeq());
+        assertEquals(2, next().getSeq());
+    }
+
+    @Test
+    void movesPastTheGapOfARolledBackTransaction() throws Exception {
+        try (Connection slow = db.getDataSource().getConnection()) {
+            slow.setAutoCommit(false);
+            insert(slow);
+            db.execute(INSERT);
+            assertNull(read.poll(1_500, TimeUnit.MILLISECONDS));
+
+            slow.rollback();
+        }
+        assertEquals(2, next().getSeq());
+    }
+
+    private ChangeLog.Entry next() throws InterruptedException {
+        ChangeLog.Entry entry = read.poll(5, TimeUnit.SECONDS);
+        assertNotNull(entry, "no change log entry read");
+        return entry;
+    }
+
+    private static void insert(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            st.execute(INSERT);
+        }
+    }
+}
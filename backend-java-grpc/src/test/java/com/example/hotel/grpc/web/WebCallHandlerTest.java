@@ -0,0 +1,162 @@
+package com.example.hotel.grpc.web;
+
+import com.example.hotel.grpc.DeleteReservationRequest;
+import com.example.hotel.grpc.DeleteReservationResponse;
+import com.example.hotel.grpc.GetReservationRequest;
+import com.example.hotel.grpc.Reservation;
+import com.example.hotel.grpc.ReservationResponse;
+import com.example.hotel.grpc.ReservationServiceGrpc;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.netty.shaded.io.netty.buffer.ByteBuf;
+import io.grpc.netty.shaded.io.netty.buffer.Unpooled;
+import io.grpc.netty.shaded.io.netty.channel.embedded.EmbeddedChannel;
+import io.grpc.netty.shaded.io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.grpc.netty.shaded.io.netty.handler.codec.http.FullHttpRequest;
+import io.grpc.netty.shaded.io.netty.handler.codec.http.HttpContent;
+import io.grpc.netty.shaded.io.netty.handler.codec.http.HttpHeaderNames;
+import io.grpc.netty.shaded.io.netty.handler.codec.http.HttpMethod;
+import io.grpc.netty.shaded.io.netty.handler.codec.http.HttpResponse;
+import io.grpc.netty.shaded.io.netty.handler.codec.http.HttpResponseStatus;
+import io.grpc.netty.shaded.io.netty.handler.codec.http.HttpVersion;
+import io.grpc.stub.StreamObserver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WebCallHandlerTest {
+
+    private Server server;
+    private ManagedChannel channel;
+    private EmbeddedChannel http;
+    private int deletes;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        ReservationServiceGrpc.ReservationServiceImplBase service = new ReservationServiceGrpc.ReservationServiceImplBase() {
+            @Override
+            public void getReservation(GetReservationRequest request,
+                    StreamObserver<ReservationResponse> responseObserver) {
+                responseObserver.onNext(ReservationResponse.newBuilder()
+                        .setReservation(Reservation.newBuilder().setId(request.getId()))
+                        .build());
+                responseObserver.onCompleted();
+            }
+
+            @Override
+            public void deleteReservation(DeleteReservationRequest request,
+                    StreamObserver<DeleteReservationResponse> responseObserver) {
+                deletes++;
+                responseObserver.onNext(DeleteReservationResponse.newBuilder().setSuccess(true).build());
+                responseObserver.onCompleted();
+            }
+        };
+        // Direct executors on both ends: a call completes before writeInbound returns
+        String name = InProcessServerBuilder.generateName();
+        server = InProcessServerBuilder.forName(name).directExecutor().addService(service).build().start();
+        channel = InProcessChannelBuilder.forName(name).directExecutor().build();
+        http = new EmbeddedChannel(new WebCallHandler(channel, WebMethod.index(List.of(service.bindService()))));
+    }
+
+    @AfterEach
+    void stopServer() {
+        http.finishAndReleaseAll();
+        channel.shutdownNow();
+        server.shutdownNow();
+    }
+
+    @Test
+    void getCallsReadOnlyMethodsWithQueryParameters() {
+        http.writeInbound(request(HttpMethod.GET, "/hotel.ReservationService/GetReservation?id=7", null, ""));
+
+        HttpResponse response = http.readOutbound();
+        assertEquals(HttpResponseStatus.OK, response.status());
+        assertEquals("application/json", response.headers().get(HttpHeaderNames.CONTENT_TYPE));
+        assertTrue(body().contains("\"id\":\"7\""));
+    }
+
+    @Test
+    void getIsNotAllowedForMethodsThatWrite() {
+        http.writeInbound(request(HttpMethod.GET, "/hotel.ReservationService/DeleteReservation?id=7", null, ""));
+
+        HttpResponse response = http.readOutbound();
+        assertEquals(HttpResponseStatus.METHOD_NOT_ALLOWED, response.status());
+        assertEquals("POST", response.headers().get(HttpHeaderNames.ALLOW));
+        assertEquals(0, deletes);
+    }
+
+    @Test
+    void postCallsMethodsThatWrite() {
+        http.writeInbound(request(HttpMethod.POST, "/hotel.ReservationService/DeleteReservation",
+                "application/json", "{\"id\":7}"));
+
+        HttpResponse response = http.readOutbound();
+        assertEquals(HttpResponseStatus.OK, response.status());
+        assertTrue(body().contains("\"success\":true"));
+        assertEquals(1, deletes);
+    }
+
+    @Test
+    void grpcWebResponsesEndWithATrailerFrame() {
+        byte[] message = GetReservationRequest.newBuilder().setId(7).build().toByteArray();
+        http.writeInbound(request(HttpMethod.POST, "/hotel.ReservationService/GetReservation",
+                "application/grpc-web+proto", WebFrames.message(message)));
+
+        HttpResponse response = http.readOutbound();
+        assertEquals("application/grpc-web+proto", response.headers().get(HttpHeaderNames.CONTENT_TYPE));
+        byte[] body = bodyBytes();
+        List<byte[]> messages = WebFrames.decode(body);
+        assertEquals(1, messages.size());
+        assertArrayEquals(ReservationResponse.newBuilder().setReservation(Reservation.newBuilder().setId(7))
+                .build().toByteArray(), messages.get(0));
+        String trailers = new String(body, body.length - 15, 15, StandardCharsets.US_ASCII);
+        assertEquals((byte) 0x80, body[body.length - 20]);
+        assertEquals("grpc-status:0\r\n", trailers);
+        assertFalse(http.outboundMessages().iterator().hasNext());
+    }
+
+    private static FullHttpRequest request(HttpMethod method, String uri, String contentType, String body) {
+        return request(method, uri, contentType, body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static FullHttpRequest request(HttpMethod method, String uri, String contentType, byte[] body) {
+        FullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, method, uri,
+                Unpooled.wrappedBuffer(body));
+        if (contentType != null) {
+            request.headers().set(HttpHeaderNames.CONTENT_TYPE, contentType);
+        }
+        request.headers().setInt(HttpHeaderNames.CONTENT_LENGTH, body.length);
+        return request;
+    }
+
+    private String body() {
+        return new String(bodyBytes(), StandardCharsets.UTF_8);
+    }
+
+    /** The content written after the response headers, up to the last chunk. */
+    private byte[] bodyBytes() {
+        ByteBuf body = Unpooled.buffer();
+        Object message;
+        while ((message = http.readOutbound()) != null) {
+            if (message instanceof HttpContent) {
+                ByteBuf content = ((HttpContent) message).content();
+                body.writeBytes(content);
+                content.release();
+            }
+        }
+        byte[] bytes = new byte[body.readableBytes()];
+        body.readBytes(bytes);
+        return bytes;
+    }
+}
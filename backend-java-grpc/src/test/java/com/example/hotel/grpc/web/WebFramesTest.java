@@ -0,0 +1,82 @@
+package com.example.hotel.grpc.web;
+
+import io.grpc.Metadata;
+import io.grpc.Status;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WebFramesTest {
+
+    @Test
+    void decodesEveryMessageAndSkipsTrailers() {
+        byte[] body = concat(WebFrames.message(bytes("first")), WebFrames.message(new byte[0]),
+                WebFrames.message(bytes("second")), WebFrames.trailers(Status.OK, new Metadata()));
+
+        List<byte[]> messages = WebFrames.decode(body);
+
+        assertEquals(3, messages.size());
+        assertArrayEquals(bytes("first"), messages.get(0));
+        assertArrayEquals(new byte[0], messages.get(1));
+        assertArrayEquals(bytes("second"), messages.get(2));
+    }
+
+    @Test
+    void rejectsTruncatedAndCompressedFrames() {
+        byte[] frame = WebFrames.message(bytes("message"));
+
+        assertThrows(IllegalArgumentException.class, () -> WebFrames.decode(Arrays.copyOf(frame, 3)));
+        assertThrows(IllegalArgumentException.class, () -> WebFrames.decode(Arrays.copyOf(frame, frame.length - 1)));
+        frame[0] = 0x01;
+        assertThrows(IllegalArgumentException.class, () -> WebFrames.decode(frame));
+    }
+
+    @Test
+    void decodesTextChunksPaddedOneByOne() {
+        Base64.Encoder encoder = Base64.getEncoder();
+        byte[] first = WebFrames.message(bytes("a"));
+        byte[] second = WebFrames.message(bytes("bc"));
+        String body = encoder.encodeToString(first) + "\r\n" + encoder.encodeToString(second);
+
+        assertArrayEquals(concat(first, second), WebFrames.decodeText(body));
+    }
+
+    @Test
+    void encodesStatusAndMetadataAsTrailerFrame() {
+        Metadata metadata = new Metadata();
+        metadata.put(Metadata.Key.of("retry-after", Metadata.ASCII_STRING_MARSHALLER), "1");
+        metadata.put(Metadata.Key.of("detail-bin", Metadata.BINARY_BYTE_MARSHALLER), new byte[] { 1, 2 });
+
+        byte[] frame = WebFrames.trailers(Status.NOT_FOUND.withDescription("R\u00e9servation 7 introuvable"), metadata);
+
+        assertEquals((byte) 0x80, frame[0]);
+        String block = new String(frame, 5, frame.length - 5, StandardCharsets.US_ASCII);
+        assertTrue(block.startsWith("grpc-status:5\r\ngrpc-message:R%C3%A9servation 7 introuvable\r\n"));
+        // Metadata keys come in no particular order
+        assertTrue(block.contains("\r\nretry-after:1\r\n"));
+        assertTrue(block.contains("\r\ndetail-bin:AQI=\r\n"));
+        assertEquals(block.length(), block.lastIndexOf("\r\n") + 2);
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        byte[] out = new byte[0];
+        for (byte[] part : parts) {
+            int start = out.length;
+            out = Arrays.copyOf(out, start + part.length);
+            System.arraycopy(part, 0, out, start, part.length);
+        }
+        return out;
+    }
+}
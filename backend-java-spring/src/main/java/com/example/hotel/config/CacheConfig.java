@@ -0,0 +1,67 @@
+package com.example.hotel.config;
+
+import com.example.hotel.model.Chambre;
+import com.example.hotel.model.Client;
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.JCacheMetrics;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.time.Duration;
+import java.util.OptionalLong;
+
+/**
+ * Hibernate second-level cache for the reference data reservations point
+ * at: clients and chambres, by id. The regions are Caffeine
+ * caches created here, sized and expired from {@code hotel.cache.*}, and
+ * their hit, miss and eviction counts are published as {@code cache.*}
+ * meters tagged with the region name.
+ */
+@Configuration
+public class CacheConfig {
+
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager(
+            @Value("${hotel.cache.client.max-entries:10000}") long clientEntries,
+            @Value("${hotel.cache.client.ttl:10m}") Duration clientTtl,
+            @Value("${hotel.cache.chambre.max-entries:1000}") long chambreEntries,
+            @Value("${hotel.cache.chambre.ttl:1h}") Duration chambreTtl) {
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(URI.create("hotel-hibernate"), getClass().getClassLoader());
+        cacheManager.createCache(Client.CACHE_REGION, region(clientEntries, clientTtl));
+        cacheManager.createCache(Chambre.CACHE_REGION, region(chambreEntries, chambreTtl));
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer hibernateSecondLevelCache(CacheManager hibernateCacheManager) {
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+    }
+
+    @Bean
+    public MeterBinder hibernateCacheMetrics(CacheManager hibernateCacheManager) {
+        return registry -> {
+            for (String name : hibernateCacheManager.getCacheNames()) {
+                JCacheMetrics.monitor(registry, hibernateCacheManager.getCache(name));
+            }
+        };
+    }
+
+    private static CaffeineConfiguration<Object, Object> region(long maxEntries, Duration ttl) {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setMaximumSize(OptionalLong.of(maxEntries));
+        configuration.setExpireAfterWrite(OptionalLong.of(ttl.toNanos()));
+        // Hibernate stores immutable disassembled state; copying it on every read buys nothing
+        configuration.setStoreByValue(false);
+        configuration.setStatisticsEnabled(true);
+        return configuration;
+    }
+}
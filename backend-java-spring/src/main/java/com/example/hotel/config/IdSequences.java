@@ -0,0 +1,116 @@
+package com.example.hotel.config;
+
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Entity ids come from one pooled sequence per table, {@code <table>_id_seq},
+ * so Hibernate knows them before inserting and can send inserts in JDBC
+ * batches. That is the sequence behind the identity columns of schemas
+ * created by the former mapping, so on PostgreSQL:
+ * <ul>
+ * <li>before the EntityManagerFactory starts, the sequences of identity and
+ * serial id columns, such as Prisma's {@code autoincrement()}, are set to
+ * step by {@link #ALLOCATION_SIZE}, which Hibernate checks against the
+ * mapping. Only sequences that step by something else are altered, as the
+ * {@code ALTER} locks the table against every reader;</li>
+ * <li>once it has started, id columns without a default, as Hibernate
+ * creates them on an empty schema, get their sequence as default, so rows
+ * the gRPC backend inserts without an id still get one and
+ * {@code pg_get_serial_sequence} still finds it.</li>
+ * </ul>
+ * Hibernate uses the {@code pooled-lo} optimizer (see
+ * {@code application.properties}): the value {@code nextval} returns is the
+ * first id of its block, so the block is {@code [v, v + 50)} and ends before
+ * the next value any other caller can draw. The default {@code pooled}
+ * optimizer takes the value as the end of the block instead, and when the
+ * first value of a fresh sequence comes back it calls {@code nextval} a
+ * second time and hands out everything up to that second value, including
+ * whatever the gRPC backend or Prisma drew between the two calls.
+ * <p>
+ * The sequences are shared, so the gRPC backend and Prisma also step by 50:
+ * each of their single-row inserts uses up 50 ids. Prisma declares its ids
+ * {@code Int}; on an {@code integer} column that leaves about 43 million
+ * such inserts before the column overflows, against 2 billion at step 1,
+ * so schemas it created should have their id columns widened to
+ * {@code bigint}, as Hibernate and the gRPC backend create them.
+ */
+@Component(IdSequences.BEAN_NAME)
+public class IdSequences implements InitializingBean, SmartInitializingSingleton {
+
+    static final String BEAN_NAME = "idSequences";
+
+    /** Ids Hibernate takes per {@code nextval}; the sequences step by as much. */
+    public static final int ALLOCATION_SIZE = 50;
+
+    private static final List<String> TABLES = List.of("client", "chambre", "reservation");
+
+    /** Per id column: table, whether it is an identity, its sequence if any and that sequence's increment. */
+    private static final String ID_SEQUENCES = "SELECT table_name, is_identity,"
+            + " pg_get_serial_sequence(table_name, 'id'), (SELECT seqincrement FROM pg_sequence"
+            + " WHERE seqrelid = CAST(pg_get_serial_sequence(table_name, 'id') AS regclass))"
+            + " FROM information_schema.columns WHERE table_schema = current_schema() AND column_name = 'id'"
+            + " AND table_name IN ('" + String.join("', '", TABLES) + "')";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void afterPropertiesSet() {
+        if (!isPostgres()) {
+            return;
+        }
+        List<String> alters = jdbcTemplate.query(ID_SEQUENCES, (rs, row) -> {
+            String sequence = rs.getString(3);
+            if (sequence == null || rs.getLong(4) == ALLOCATION_SIZE) {
+                return null;
+            }
+            return "YES".equals(rs.getString(2))
+                    ? "ALTER TABLE " + rs.getString(1) + " ALTER COLUMN id SET INCREMENT BY " + ALLOCATION_SIZE
+                    : "ALTER SEQUENCE " + sequence + " INCREMENT BY " + ALLOCATION_SIZE;
+        });
+        for (String alter : alters) {
+            if (alter != null) {
+                jdbcTemplate.execute(alter);
+            }
+        }
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!isPostgres()) {
+            return;
+        }
+        for (String table : idColumns("is_identity = 'NO' AND column_default IS NULL")) {
+            String sequence = table + "_id_seq";
+            jdbcTemplate.execute("ALTER SEQUENCE " + sequence + " OWNED BY " + table + ".id");
+            jdbcTemplate.execute("ALTER TABLE " + table + " ALTER COLUMN id SET DEFAULT nextval('" + sequence + "')");
+        }
+    }
+
+    private List<String> idColumns(String condition) {
+        return jdbcTemplate.queryForList("SELECT table_name FROM information_schema.columns"
+                + " WHERE table_schema = current_schema() AND column_name = 'id'"
+                + " AND table_name IN ('" + String.join("', '", TABLES) + "') AND " + condition, String.class);
+    }
+
+    private boolean isPostgres() {
+        return "PostgreSQL".equals(jdbcTemplate.execute(
+                (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName()));
+    }
+
+    // The sequence increments must be in place before Hibernate validates its sequences
+    @Component
+    static class EntityManagerFactoryDependsOnIdSequences extends EntityManagerFactoryDependsOnPostProcessor {
+        EntityManagerFactoryDependsOnIdSequences() {
+            super(BEAN_NAME);
+        }
+    }
+}
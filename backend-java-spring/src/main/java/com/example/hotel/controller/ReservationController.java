@@ -1,45 +1,159 @@
 package com.example.hotel.controller;
 
 import com.example.hotel.model.Reservation;
+import com.example.hotel.service.BatchItemResult;
+import com.example.hotel.service.NotFoundException;
 import com.example.hotel.service.ReservationService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.exc.StreamReadException;
+import com.fasterxml.jackson.databind.DatabindException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/reservations")
 public class ReservationController {
 
+    /** Response header carrying the {@code afterId} of the next page; absent on the last page. */
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     @Autowired
     private ReservationService reservationService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${hotel.reservations.page-size:100}")
+    private int defaultPageSize;
+
+    @Value("${hotel.reservations.max-page-size:1000}")
+    private int maxPageSize;
+
+    @Value("${hotel.reservations.batch.chunk-size:500}")
+    private int batchChunkSize;
+
     @PostMapping
     public Reservation createReservation(@RequestBody Reservation reservation) {
         return reservationService.createReservation(reservation);
     }
 
+    /**
+     * Creates the reservations of a JSON array, or of NDJSON with one
+     * reservation per line, reading them as they arrive and saving them
+     * {@code batch.chunk-size} at a time, each chunk in its own transaction.
+     * Answers with one result per item, in upload order. An item that does
+     * not map to a reservation fails alone; malformed JSON ends the upload at
+     * that point, and the items before it are still saved.
+     */
+    @PostMapping(value = "/batch", consumes = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE })
+    public List<BatchItemResult> createReservations(InputStream body) throws IOException {
+        List<BatchItemResult> results = new ArrayList<>();
+        Map<Integer, Reservation> chunk = new LinkedHashMap<>();
+        int index = 0;
+        // Unwraps a top-level array; otherwise reads root values one after another
+        try (MappingIterator<Reservation> items = objectMapper.readerFor(Reservation.class).readValues(body)) {
+            while (true) {
+                try {
+                    if (!items.hasNextValue()) {
+                        break;
+                    }
+                    chunk.put(index, items.nextValue());
+                } catch (DatabindException e) {
+                    // The iterator skips the rest of this value on the next call
+                    results.add(BatchItemResult.failed(index, e.getOriginalMessage()));
+                } catch (StreamReadException e) {
+                    results.add(BatchItemResult.failed(index, "Malformed JSON: " + e.getOriginalMessage()));
+                    break;
+                }
+                index++;
+                if (chunk.size() == batchChunkSize) {
+                    saveChunk(chunk, results);
+                }
+            }
+        }
+        saveChunk(chunk, results);
+        results.sort(Comparator.comparingInt(BatchItemResult::getIndex));
+        return results;
+    }
+
+    /**
+     * One page of reservations in id order, starting after {@code afterId}.
+     * When the page is full, {@value #NEXT_CURSOR_HEADER} holds the cursor
+     * for the next one.
+     */
     @GetMapping
-    public List<Reservation> getAllReservations() {
-        return reservationService.getAllReservations();
+    public ResponseEntity<List<Reservation>> getReservations(@RequestParam(defaultValue = "0") long afterId,
+            @RequestParam(required = false) Integer size) {
+        int pageSize = Math.min(Math.max(size == null ? defaultPageSize : size, 1), maxPageSize);
+        List<Reservation> page = reservationService.getReservationsAfter(afterId, pageSize);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.size() == pageSize) {
+            response.header(NEXT_CURSOR_HEADER, String.valueOf(page.get(page.size() - 1).getId()));
+        }
+        return response.body(page);
+    }
+
+    /**
+     * Every reservation after {@code afterId} as one JSON array, written
+     * while rows are still being read, so memory stays flat and the first
+     * bytes go out before the last row is fetched.
+     */
+    @GetMapping("/stream")
+    public ResponseEntity<StreamingResponseBody> streamReservations(@RequestParam(defaultValue = "0") long afterId) {
+        ObjectWriter writer = objectMapper.writerFor(Reservation.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator json = objectMapper.getFactory().createGenerator(out)) {
+                json.writeStartArray();
+                json.flush();
+                reservationService.forEachReservation(afterId, reservation -> {
+                    try {
+                        writer.writeValue(json, reservation);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                json.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Reservation> getReservationById(@PathVariable Long id) {
-        return reservationService.getReservationById(id)
-                .map(ResponseEntity::ok)
+    public ResponseEntity<byte[]> getReservationById(@PathVariable Long id) {
+        return reservationService.getCachedReservationById(id)
+                .map(cached -> ResponseEntity.ok()
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .body(cached.json(this::toJson)))
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    /**
+     * Answers 404, through {@link NotFoundException}, when the reservation or
+     * a client or chambre id the request names does not exist.
+     */
     @PutMapping("/{id}")
     public ResponseEntity<Reservation> updateReservation(@PathVariable Long id,
             @RequestBody Reservation reservationDetails) {
-        try {
-            return ResponseEntity.ok(reservationService.updateReservation(id, reservationDetails));
-        } catch (RuntimeException e) {
-            return ResponseEntity.notFound().build();
-        }
+        return ResponseEntity.ok(reservationService.updateReservation(id, reservationDetails));
     }
 
     @DeleteMapping("/{id}")
@@ -47,4 +161,26 @@ public class ReservationController {
         reservationService.deleteReservation(id);
         return ResponseEntity.ok().build();
     }
+
+    private void saveChunk(Map<Integer, Reservation> chunk, List<BatchItemResult> results) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        try {
+            results.addAll(reservationService.createReservations(chunk));
+        } catch (RuntimeException e) {
+            for (Integer index : chunk.keySet()) {
+                results.add(BatchItemResult.failed(index, "Not saved: " + e.getMessage()));
+            }
+        }
+        chunk.clear();
+    }
+
+    private byte[] toJson(Reservation reservation) {
+        try {
+            return objectMapper.writeValueAsBytes(reservation);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 }
@@ -1,12 +1,24 @@
 package com.example.hotel.model;
 
+import com.example.hotel.config.IdSequences;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import java.math.BigDecimal;
 
+// Lazy references are Hibernate proxies; their internals are not part of the JSON
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Chambre.CACHE_REGION)
 public class Chambre {
+    public static final String CACHE_REGION = "chambre";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "chambre_id_seq")
+    @SequenceGenerator(name = "chambre_id_seq", sequenceName = "chambre_id_seq", allocationSize = IdSequences.ALLOCATION_SIZE)
     private Long id;
     private String type;
     private BigDecimal prix;
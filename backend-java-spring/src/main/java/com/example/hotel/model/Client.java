@@ -1,14 +1,26 @@
 package com.example.hotel.model;
 
+import com.example.hotel.config.IdSequences;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
+// Lazy references are Hibernate proxies; their internals are not part of the JSON
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Client.CACHE_REGION)
 public class Client {
+    public static final String CACHE_REGION = "client";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "client_id_seq")
+    @SequenceGenerator(name = "client_id_seq", sequenceName = "client_id_seq", allocationSize = IdSequences.ALLOCATION_SIZE)
     private Long id;
     private String nom;
     private String prenom;
+    // Not unique: schemas written before the gRPC backend's email index can hold duplicates
     private String email;
     private String telephone;
 
@@ -1,19 +1,23 @@
 package com.example.hotel.model;
 
+import com.example.hotel.config.IdSequences;
 import jakarta.persistence.*;
 import java.time.LocalDate;
 
 @Entity
 public class Reservation {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "reservation_id_seq")
+    @SequenceGenerator(name = "reservation_id_seq", sequenceName = "reservation_id_seq", allocationSize = IdSequences.ALLOCATION_SIZE)
     private Long id;
 
-    @ManyToOne(cascade = CascadeType.ALL)
+    // Clients and chambres are shared between reservations: saved with a new
+    // reservation, never removed with one
+    @ManyToOne(fetch = FetchType.LAZY, cascade = { CascadeType.PERSIST, CascadeType.MERGE })
     @JoinColumn(name = "client_id")
     private Client client;
 
-    @ManyToOne(cascade = CascadeType.ALL)
+    @ManyToOne(fetch = FetchType.LAZY, cascade = { CascadeType.PERSIST, CascadeType.MERGE })
     @JoinColumn(name = "chambre_id")
     private Chambre chambre;
 
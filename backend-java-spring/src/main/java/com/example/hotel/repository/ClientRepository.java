@@ -2,8 +2,25 @@ package com.example.hotel.repository;
 
 import com.example.hotel.model.Client;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
 public interface ClientRepository extends JpaRepository<Client, Long> {
+
+    /** Oldest first, so that of several clients sharing an email the first one seen is the one kept. */
+    List<Client> findByEmailInOrderByIdAsc(Collection<String> emails);
+
+    /**
+     * The id of the oldest client with this email. Emails are not unique
+     * until the gRPC backend's index merges duplicates, so this never expects
+     * a single row; the client itself is then read through the second-level
+     * cache.
+     */
+    @Query("select min(c.id) from Client c where c.email = :email")
+    Optional<Long> findFirstIdByEmail(String email);
 }
@@ -1,9 +1,53 @@
 package com.example.hotel.repository;
 
 import com.example.hotel.model.Reservation;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+import java.util.stream.Stream;
+
 @Repository
 public interface ReservationRepository extends JpaRepository<Reservation, Long> {
+
+    int STREAM_FETCH_SIZE = 500;
+
+    // Client and chambre are lazy on the entity; bulk reads load them in the
+    // same statement rather than one select per row. Single reads by id take
+    // them from the second-level cache instead (see ReservationService).
+    @Override
+    @EntityGraph(attributePaths = {"client", "chambre"})
+    List<Reservation> findAll();
+
+    /**
+     * Keyset page: the reservations after {@code afterId}, in id order. Only
+     * the page size of {@code pageable} is used, so no count query is run and
+     * the cost does not grow with how deep the caller has paged.
+     */
+    @Query("select r from Reservation r join fetch r.client join fetch r.chambre where r.id > :afterId order by r.id")
+    List<Reservation> findPageAfter(Long afterId, Pageable pageable);
+
+    /** The most recent reservations, newest first, for warming the read cache. */
+    @Query("select r from Reservation r join fetch r.client join fetch r.chambre order by r.id desc")
+    List<Reservation> findLatest(Pageable pageable);
+
+    /**
+     * Every reservation after {@code afterId}, in id order, read from a
+     * server-side cursor {@link #STREAM_FETCH_SIZE} rows at a time. Must be
+     * consumed and closed inside a transaction.
+     */
+    @Query("select r from Reservation r join fetch r.client join fetch r.chambre where r.id > :afterId order by r.id")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + STREAM_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            // A full export would otherwise push every client and chambre through the cache
+            @QueryHint(name = HibernateHints.HINT_CACHE_MODE, value = "IGNORE")
+    })
+    Stream<Reservation> streamAfter(Long afterId);
 }
@@ -0,0 +1,41 @@
+package com.example.hotel.service;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Outcome of one item of a batch upload: the id it was saved under, or why
+ * it was not. {@code index} is the item's position in the upload, from 0.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public final class BatchItemResult {
+
+    private final int index;
+    private final Long id;
+    private final String error;
+
+    private BatchItemResult(int index, Long id, String error) {
+        this.index = index;
+        this.id = id;
+        this.error = error;
+    }
+
+    public static BatchItemResult created(int index, Long id) {
+        return new BatchItemResult(index, id, null);
+    }
+
+    public static BatchItemResult failed(int index, String error) {
+        return new BatchItemResult(index, null, error);
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
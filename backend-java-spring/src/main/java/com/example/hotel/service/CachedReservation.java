@@ -0,0 +1,44 @@
+package com.example.hotel.service;
+
+import com.example.hotel.model.Reservation;
+
+import java.util.function.Function;
+
+/**
+ * A reservation held by {@link ReservationReadCache}, with its client and
+ * chambre loaded, and the response bodies rendered from it. Each body is
+ * rendered on first use by the endpoint that serves it and reused after
+ * that; two threads racing on the first render produce the same bytes.
+ */
+public final class CachedReservation {
+
+    private final Reservation reservation;
+    private volatile byte[] json;
+    private volatile byte[] xml;
+
+    CachedReservation(Reservation reservation) {
+        this.reservation = reservation;
+    }
+
+    public Reservation getReservation() {
+        return reservation;
+    }
+
+    public byte[] json(Function<Reservation, byte[]> render) {
+        byte[] bytes = json;
+        if (bytes == null) {
+            bytes = render.apply(reservation);
+            json = bytes;
+        }
+        return bytes;
+    }
+
+    public byte[] xml(Function<Reservation, byte[]> render) {
+        byte[] bytes = xml;
+        if (bytes == null) {
+            bytes = render.apply(reservation);
+            xml = bytes;
+        }
+        return bytes;
+    }
+}
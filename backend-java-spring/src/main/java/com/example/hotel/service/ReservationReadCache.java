@@ -0,0 +1,79 @@
+package com.example.hotel.service;
+
+import com.example.hotel.model.Reservation;
+import com.example.hotel.repository.ReservationRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Bounded cache of reservations by id in front of the single-reservation
+ * reads of REST and SOAP, so a hot id is answered by copying bytes instead
+ * of querying and serializing again. {@link ReservationService} evicts an
+ * entry when it updates or deletes the reservation; the TTL bounds how long
+ * a change made elsewhere (the gRPC backend, or a client edited through
+ * another reservation) can go unseen. The most recent reservations are
+ * loaded once the application is ready.
+ */
+@Component
+public class ReservationReadCache implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(ReservationReadCache.class);
+
+    @Autowired
+    private ReservationRepository reservationRepository;
+
+    @Value("${hotel.read-cache.prewarm:1000}")
+    private int prewarm;
+
+    private final Cache<Long, CachedReservation> cache;
+
+    public ReservationReadCache(@Value("${hotel.read-cache.max-entries:10000}") long maxEntries,
+            @Value("${hotel.read-cache.ttl:60s}") Duration ttl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    /** The cached entry, or the one {@code loader} returns; a null from the loader is not cached. */
+    CachedReservation get(Long id, Function<Long, CachedReservation> loader) {
+        return cache.get(id, loader);
+    }
+
+    void evict(Long id) {
+        cache.invalidate(id);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (prewarm <= 0) {
+            return;
+        }
+        List<Reservation> latest = reservationRepository.findLatest(PageRequest.ofSize(prewarm));
+        for (Reservation reservation : latest) {
+            cache.asMap().putIfAbsent(reservation.getId(), new CachedReservation(reservation));
+        }
+        log.info("Read cache warmed with the {} most recent reservations", latest.size());
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "reservation-read");
+    }
+}
@@ -1,12 +1,32 @@
 package com.example.hotel.service;
 
+import com.example.hotel.model.Chambre;
+import com.example.hotel.model.Client;
 import com.example.hotel.model.Reservation;
+import com.example.hotel.repository.ChambreRepository;
+import com.example.hotel.repository.ClientRepository;
 import com.example.hotel.repository.ReservationRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Hibernate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 @Service
 public class ReservationService {
@@ -14,30 +34,259 @@ public class ReservationService {
     @Autowired
     private ReservationRepository reservationRepository;
 
+    @Autowired
+    private ClientRepository clientRepository;
+
+    @Autowired
+    private ChambreRepository chambreRepository;
+
+    @Autowired
+    private ReservationReadCache readCache;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Books against the stored client and chambre when the request refers to
+     * them, by id or, for a client, by an email already on file (the oldest
+     * client with it, should there be several); only unknown ones are
+     * inserted. Lookups by id go through the second-level cache.
+     *
+     * @throws NotFoundException if the request names a client or chambre id that does not exist
+     */
     public Reservation createReservation(Reservation reservation) {
-        return reservationRepository.save(reservation);
+        return retryingOnConflict(() -> reservationRepository.saveAndFlush(new Reservation(
+                resolveClient(reservation.getClient(), false),
+                resolveChambre(reservation.getChambre(), false),
+                reservation.getDateDebut(),
+                reservation.getDateFin(),
+                reservation.getPreferences())));
+    }
+
+    /**
+     * Saves one chunk of a batch upload in a single transaction; the keys are
+     * the items' positions in the upload. The clients and chambres the items
+     * refer to are looked up with one query per kind for the whole chunk,
+     * items naming the same new client email share one new client, and the
+     * inserts go out in JDBC batches. An item naming a client or chambre that
+     * does not exist fails alone; a database error fails the whole chunk.
+     */
+    @Transactional
+    public List<BatchItemResult> createReservations(Map<Integer, Reservation> items) {
+        Set<Long> clientIds = new HashSet<>();
+        Set<String> emails = new HashSet<>();
+        Set<Long> chambreIds = new HashSet<>();
+        for (Reservation reservation : items.values()) {
+            Client client = reservation.getClient();
+            if (client != null && client.getId() != null) {
+                clientIds.add(client.getId());
+            } else if (client != null && client.getEmail() != null && !client.getEmail().isEmpty()) {
+                emails.add(client.getEmail());
+            }
+            if (reservation.getChambre() != null && reservation.getChambre().getId() != null) {
+                chambreIds.add(reservation.getChambre().getId());
+            }
+        }
+        Map<Long, Client> clientsById = new HashMap<>();
+        clientRepository.findAllById(clientIds).forEach(client -> clientsById.put(client.getId(), client));
+        Map<String, Client> clientsByEmail = new HashMap<>();
+        if (!emails.isEmpty()) {
+            clientRepository.findByEmailInOrderByIdAsc(emails)
+                    .forEach(client -> clientsByEmail.putIfAbsent(client.getEmail(), client));
+        }
+        Map<Long, Chambre> chambresById = new HashMap<>();
+        chambreRepository.findAllById(chambreIds).forEach(chambre -> chambresById.put(chambre.getId(), chambre));
+
+        List<BatchItemResult> results = new ArrayList<>(items.size());
+        for (Map.Entry<Integer, Reservation> item : items.entrySet()) {
+            Reservation reservation = item.getValue();
+            try {
+                reservation.setClient(resolveClient(reservation.getClient(), clientsById, clientsByEmail));
+                reservation.setChambre(resolveChambre(reservation.getChambre(), chambresById));
+            } catch (RuntimeException e) {
+                results.add(BatchItemResult.failed(item.getKey(), e.getMessage()));
+                continue;
+            }
+            // The id comes from the sequence on persist; the insert waits for the flush
+            results.add(BatchItemResult.created(item.getKey(), reservationRepository.save(reservation).getId()));
+        }
+        entityManager.flush();
+        // The request's persistence context outlives this chunk; do not let it grow with the upload
+        entityManager.clear();
+        return results;
+    }
+
+    public List<Reservation> getReservationsAfter(long afterId, int size) {
+        return reservationRepository.findPageAfter(afterId, PageRequest.ofSize(size));
     }
 
-    public List<Reservation> getAllReservations() {
-        return reservationRepository.findAll();
+    /**
+     * Hands every reservation after {@code afterId} to {@code action}, in id
+     * order, without holding more than one fetch of rows at a time: the
+     * persistence context is cleared after each fetch, so entities already
+     * written out can be collected.
+     */
+    @Transactional(readOnly = true)
+    public void forEachReservation(long afterId, Consumer<Reservation> action) {
+        try (Stream<Reservation> reservations = reservationRepository.streamAfter(afterId)) {
+            Iterator<Reservation> it = reservations.iterator();
+            int n = 0;
+            while (it.hasNext()) {
+                action.accept(it.next());
+                if (++n % ReservationRepository.STREAM_FETCH_SIZE == 0) {
+                    entityManager.clear();
+                }
+            }
+        }
     }
 
+    /**
+     * Reads the reservation row and takes its client and chambre from the
+     * second-level cache when they are there. Both are initialized before the
+     * transaction ends, so callers without a session, like the SOAP endpoint,
+     * can read them.
+     */
+    @Transactional(readOnly = true)
     public Optional<Reservation> getReservationById(Long id) {
-        return reservationRepository.findById(id);
+        Optional<Reservation> reservation = reservationRepository.findById(id);
+        reservation.ifPresent(r -> {
+            Hibernate.initialize(r.getClient());
+            Hibernate.initialize(r.getChambre());
+        });
+        return reservation;
+    }
+
+    /**
+     * {@link #getReservationById} through the read cache. On a miss the
+     * reservation is loaded in its own transaction, as the cache loader runs
+     * outside this bean's proxy.
+     */
+    public Optional<CachedReservation> getCachedReservationById(Long id) {
+        return Optional.ofNullable(readCache.get(id, key -> transactionTemplate.execute(
+                status -> getReservationById(key).map(CachedReservation::new).orElse(null))));
     }
 
+    /**
+     * Replaces the reservation's fields with the request's. A client or
+     * chambre named by id, or a client whose email is on file, is the stored
+     * one with the request's fields written onto it, so an update edits the
+     * guest instead of inserting a second client with the same email; one
+     * without either is inserted. The read cache entry is evicted once the
+     * update has committed.
+     *
+     * @throws NotFoundException if the reservation, or a client or chambre id the request names, does not exist
+     */
     public Reservation updateReservation(Long id, Reservation reservationDetails) {
-        return reservationRepository.findById(id).map(reservation -> {
-            reservation.setClient(reservationDetails.getClient());
-            reservation.setChambre(reservationDetails.getChambre());
+        Reservation updated = retryingOnConflict(() -> {
+            Reservation reservation = reservationRepository.findById(id)
+                    .orElseThrow(() -> new NotFoundException("Reservation not found with id " + id));
+            reservation.setClient(resolveClient(reservationDetails.getClient(), true));
+            reservation.setChambre(resolveChambre(reservationDetails.getChambre(), true));
             reservation.setDateDebut(reservationDetails.getDateDebut());
             reservation.setDateFin(reservationDetails.getDateFin());
             reservation.setPreferences(reservationDetails.getPreferences());
-            return reservationRepository.save(reservation);
-        }).orElseThrow(() -> new RuntimeException("Reservation not found with id " + id));
+            return reservationRepository.saveAndFlush(reservation);
+        });
+        readCache.evict(id);
+        return updated;
     }
 
     public void deleteReservation(Long id) {
         reservationRepository.deleteById(id);
+        readCache.evict(id);
+    }
+
+    /**
+     * Runs {@code work} in a transaction, and once more in a new one if it
+     * breaks a constraint: two requests inserting the same new email at once
+     * collide on the gRPC backend's unique email index, and on the second
+     * attempt the loser finds the winner's client.
+     */
+    private <T> T retryingOnConflict(Supplier<T> work) {
+        try {
+            return transactionTemplate.execute(status -> work.get());
+        } catch (DataIntegrityViolationException e) {
+            return transactionTemplate.execute(status -> work.get());
+        }
+    }
+
+    /**
+     * The stored client the request refers to, with the request's fields
+     * written onto it when {@code applyChanges}, or a new one copied from the
+     * request. The request's own entity is never persisted, so a retried
+     * attempt starts from the same input.
+     */
+    private Client resolveClient(Client client, boolean applyChanges) {
+        if (client == null) {
+            return null;
+        }
+        Client stored = null;
+        if (client.getId() != null) {
+            stored = clientRepository.findById(client.getId())
+                    .orElseThrow(() -> new NotFoundException("Client not found with id " + client.getId()));
+        } else if (client.getEmail() != null && !client.getEmail().isEmpty()) {
+            stored = clientRepository.findFirstIdByEmail(client.getEmail())
+                    .flatMap(clientRepository::findById)
+                    .orElse(null);
+        }
+        if (stored == null) {
+            return new Client(client.getNom(), client.getPrenom(), client.getEmail(), client.getTelephone());
+        }
+        if (applyChanges) {
+            stored.setNom(client.getNom());
+            stored.setPrenom(client.getPrenom());
+            stored.setEmail(client.getEmail());
+            stored.setTelephone(client.getTelephone());
+        }
+        return stored;
+    }
+
+    private static Client resolveClient(Client client, Map<Long, Client> byId, Map<String, Client> byEmail) {
+        if (client == null) {
+            return null;
+        }
+        if (client.getId() != null) {
+            Client existing = byId.get(client.getId());
+            if (existing == null) {
+                throw new NotFoundException("Client not found with id " + client.getId());
+            }
+            return existing;
+        }
+        if (client.getEmail() != null && !client.getEmail().isEmpty()) {
+            return byEmail.computeIfAbsent(client.getEmail(), email -> client);
+        }
+        return client;
+    }
+
+    /** As {@link #resolveClient(Client, boolean)}, by id only. */
+    private Chambre resolveChambre(Chambre chambre, boolean applyChanges) {
+        if (chambre == null) {
+            return null;
+        }
+        if (chambre.getId() == null) {
+            return new Chambre(chambre.getType(), chambre.getPrix(), chambre.isDisponible());
+        }
+        Chambre stored = chambreRepository.findById(chambre.getId())
+                .orElseThrow(() -> new NotFoundException("Chambre not found with id " + chambre.getId()));
+        if (applyChanges) {
+            stored.setType(chambre.getType());
+            stored.setPrix(chambre.getPrix());
+            stored.setDisponible(chambre.isDisponible());
+        }
+        return stored;
+    }
+
+    private static Chambre resolveChambre(Chambre chambre, Map<Long, Chambre> byId) {
+        if (chambre == null || chambre.getId() == null) {
+            return chambre;
+        }
+        Chambre existing = byId.get(chambre.getId());
+        if (existing == null) {
+            throw new NotFoundException("Chambre not found with id " + chambre.getId());
+        }
+        return existing;
     }
 }
@@ -3,13 +3,21 @@ package com.example.hotel.soap;
 import com.example.hotel.model.Chambre;
 import com.example.hotel.model.Client;
 import com.example.hotel.model.Reservation;
+import com.example.hotel.service.CachedReservation;
 import com.example.hotel.service.ReservationService;
+import jakarta.xml.bind.JAXBContext;
+import jakarta.xml.bind.JAXBException;
+import jakarta.xml.bind.Marshaller;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.ws.server.endpoint.annotation.Endpoint;
 import org.springframework.ws.server.endpoint.annotation.PayloadRoot;
 import org.springframework.ws.server.endpoint.annotation.RequestPayload;
 import org.springframework.ws.server.endpoint.annotation.ResponsePayload;
 
+import javax.xml.transform.Source;
+import javax.xml.transform.stream.StreamSource;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 
@@ -21,15 +29,19 @@ public class ReservationSoapEndpoint {
     @Autowired
     private ReservationService reservationService;
 
+    private final JAXBContext responseContext = newContext(GetReservationResponse.class);
+
+    /**
+     * Answers from the read cache: the response payload is rendered once per
+     * cached reservation and served from its bytes after that.
+     */
     @PayloadRoot(namespace = NAMESPACE_URI, localPart = "getReservationRequest")
     @ResponsePayload
-    public GetReservationResponse getReservation(@RequestPayload GetReservationRequest request) {
-        GetReservationResponse response = new GetReservationResponse();
-        Reservation reservation = reservationService.getReservationById(request.getId())
+    public Source getReservation(@RequestPayload GetReservationRequest request) {
+        CachedReservation cached = reservationService.getCachedReservationById(request.getId())
                 .orElseThrow(() -> new RuntimeException("Reservation not found"));
 
-        response.setReservation(mapToReservationInfo(reservation));
-        return response;
+        return new StreamSource(new ByteArrayInputStream(cached.xml(this::toXml)));
     }
 
     @PayloadRoot(namespace = NAMESPACE_URI, localPart = "createReservationRequest")
@@ -64,6 +76,28 @@ public class ReservationSoapEndpoint {
         return response;
     }
 
+    private byte[] toXml(Reservation reservation) {
+        GetReservationResponse response = new GetReservationResponse();
+        response.setReservation(mapToReservationInfo(reservation));
+        ByteArrayOutputStream out = new ByteArrayOutputStream(1024);
+        try {
+            Marshaller marshaller = responseContext.createMarshaller();
+            marshaller.setProperty(Marshaller.JAXB_FRAGMENT, true);
+            marshaller.marshal(response, out);
+        } catch (JAXBException e) {
+            throw new IllegalStateException("Cannot render reservation " + reservation.getId(), e);
+        }
+        return out.toByteArray();
+    }
+
+    private static JAXBContext newContext(Class<?> type) {
+        try {
+            return JAXBContext.newInstance(type);
+        } catch (JAXBException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
     private ReservationInfo mapToReservationInfo(Reservation reservation) {
         ReservationInfo info = new ReservationInfo();
         info.setId(reservation.getId());
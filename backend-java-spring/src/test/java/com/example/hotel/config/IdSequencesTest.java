@@ -0,0 +1,103 @@
+package com.example.hotel.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs against PostgreSQL, {@code hotel.test.db.url} or the one of
+ * {@code docker-compose.yml}, in a throwaway schema laid out as the other
+ * backends create it; skipped when that server cannot be reached.
+ */
+class IdSequencesTest {
+
+    private static final String URL = System.getProperty("hotel.test.db.url",
+            "jdbc:postgresql://localhost:5433/hotel_db");
+    private static final String USER = System.getProperty("hotel.test.db.user", "postgres");
+    private static final String PASSWORD = System.getProperty("hotel.test.db.password", "password");
+
+    private final String schema = "id_sequences_test_" + Long.toHexString(System.nanoTime());
+    private JdbcTemplate jdbc;
+    private IdSequences idSequences;
+
+    @BeforeEach
+    void createSchema() {
+        try (Connection conn = DriverManager.getConnection(URL, USER, PASSWORD)) {
+            conn.createStatement().execute("CREATE SCHEMA " + schema);
+        } catch (SQLException e) {
+            Assumptions.abort("No test database at " + URL + ": " + e.getMessage());
+        }
+        jdbc = new JdbcTemplate(new DriverManagerDataSource(
+                URL + (URL.contains("?") ? "&" : "?") + "currentSchema=" + schema, USER, PASSWORD));
+        // Prisma's autoincrement(), the former mapping's identity, and Hibernate's own sequence
+        jdbc.execute("CREATE TABLE client (id SERIAL PRIMARY KEY, email TEXT)");
+        jdbc.execute("CREATE TABLE chambre (id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY)");
+        jdbc.execute("CREATE SEQUENCE reservation_id_seq INCREMENT BY " + IdSequences.ALLOCATION_SIZE);
+        jdbc.execute("CREATE TABLE reservation (id bigint PRIMARY KEY)");
+        jdbc.execute("INSERT INTO client (email) VALUES ('a'), ('b')");
+
+        idSequences = new IdSequences();
+        ReflectionTestUtils.setField(idSequences, "jdbcTemplate", jdbc);
+    }
+
+    @AfterEach
+    void dropSchema() {
+        if (jdbc != null) {
+            jdbc.execute("DROP SCHEMA " + schema + " CASCADE");
+        }
+    }
+
+    @Test
+    void serialAndIdentitySequencesStepByTheAllocationSize() {
+        idSequences.afterPropertiesSet();
+
+        assertThat(increments()).containsExactly(
+                Map.entry("chambre_id_seq", 50L), Map.entry("client_id_seq", 50L), Map.entry("reservation_id_seq", 50L));
+        // Existing ids are not handed out again
+        assertThat(jdbc.queryForObject("SELECT nextval('client_id_seq')", Long.class)).isEqualTo(52L);
+    }
+
+    @Test
+    void sequencesAlreadySteppingByTheAllocationSizeAreLeftAlone() {
+        idSequences.afterPropertiesSet();
+        List<Long> versions = versions();
+
+        idSequences.afterPropertiesSet();
+
+        assertThat(versions()).isEqualTo(versions);
+    }
+
+    @Test
+    void idColumnsWithoutDefaultGetTheirSequence() {
+        idSequences.afterSingletonsInstantiated();
+
+        assertThat(jdbc.queryForObject("SELECT pg_get_serial_sequence('reservation', 'id')", String.class))
+                .isEqualTo(schema + ".reservation_id_seq");
+        jdbc.execute("INSERT INTO reservation DEFAULT VALUES");
+        assertThat(jdbc.queryForObject("SELECT id FROM reservation", Long.class)).isEqualTo(1L);
+    }
+
+    private List<Map.Entry<String, Long>> increments() {
+        return jdbc.query("SELECT sequencename, increment_by FROM pg_sequences WHERE schemaname = ? ORDER BY 1",
+                (rs, row) -> Map.entry(rs.getString(1), rs.getLong(2)), schema);
+    }
+
+    /** The row version of each sequence's catalog entry, which any ALTER replaces. */
+    private List<Long> versions() {
+        return jdbc.queryForList("SELECT CAST(CAST(s.xmin AS text) AS bigint) FROM pg_sequence s"
+                + " JOIN pg_class c ON c.oid = s.seqrelid WHERE c.relnamespace = CAST(? AS regnamespace)"
+                + " ORDER BY c.relname", Long.class, schema);
+    }
+}
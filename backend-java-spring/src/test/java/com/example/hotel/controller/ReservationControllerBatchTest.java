@@ -0,0 +1,102 @@
+package com.example.hotel.controller;
+
+import com.example.hotel.model.Reservation;
+import com.example.hotel.service.BatchItemResult;
+import com.example.hotel.service.ReservationService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.startsWith;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(controllers = ReservationController.class, properties = "hotel.reservations.batch.chunk-size=2")
+class ReservationControllerBatchTest {
+
+    private static final String ITEM = "{\"client\":{\"nom\":\"Ana\",\"email\":\"ana@example.com\"},"
+            + "\"chambre\":{\"id\":1},\"dateDebut\":\"2024-05-01\",\"dateFin\":\"2024-05-03\",\"preferences\":\"\"}";
+
+    @Autowired
+    private MockMvc mvc;
+
+    @MockBean
+    private ReservationService reservationService;
+
+    /** The keys of every chunk the service was handed, in order. */
+    private final List<List<Integer>> chunks = new ArrayList<>();
+
+    @BeforeEach
+    void saveEveryItem() {
+        when(reservationService.createReservations(anyMap())).thenAnswer(call -> {
+            Map<Integer, Reservation> chunk = call.getArgument(0);
+            chunks.add(List.copyOf(chunk.keySet()));
+            List<BatchItemResult> results = new ArrayList<>();
+            chunk.keySet().forEach(index -> results.add(BatchItemResult.created(index, 100L + index)));
+            return results;
+        });
+    }
+
+    @Test
+    void savesAJsonArrayInChunks() throws Exception {
+        mvc.perform(post("/api/reservations/batch").contentType(MediaType.APPLICATION_JSON)
+                        .content("[" + String.join(",", ITEM, ITEM, ITEM, ITEM, ITEM) + "]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(5))
+                .andExpect(jsonPath("$[4].index").value(4))
+                .andExpect(jsonPath("$[4].id").value(104));
+
+        assertThat(chunks).containsExactly(List.of(0, 1), List.of(2, 3), List.of(4));
+    }
+
+    @Test
+    void savesNdjsonAndFailsOnlyTheItemsThatDoNotMap() throws Exception {
+        String unmappable = ITEM.replace("2024-05-03", "not a date");
+        mvc.perform(post("/api/reservations/batch").contentType(MediaType.APPLICATION_NDJSON)
+                        .content(String.join("\n", ITEM, unmappable, ITEM) + "\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath("$[0].id").value(100))
+                .andExpect(jsonPath("$[1].id").doesNotExist())
+                .andExpect(jsonPath("$[1].error").exists())
+                .andExpect(jsonPath("$[2].id").value(102));
+
+        assertThat(chunks).containsExactly(List.of(0, 2));
+    }
+
+    @Test
+    void malformedJsonEndsTheUploadAfterSavingWhatCameBefore() throws Exception {
+        mvc.perform(post("/api/reservations/batch").contentType(MediaType.APPLICATION_NDJSON)
+                        .content(ITEM + "\n" + ITEM + "\n{\"client\": oops\n" + ITEM + "\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath("$[1].id").value(101))
+                .andExpect(jsonPath("$[2].error").value(startsWith("Malformed JSON")));
+
+        assertThat(chunks).containsExactly(List.of(0, 1));
+    }
+
+    @Test
+    void aChunkTheDatabaseRejectsFailsAsAWhole() throws Exception {
+        when(reservationService.createReservations(anyMap()))
+                .thenThrow(new IllegalStateException("connection lost"));
+
+        mvc.perform(post("/api/reservations/batch").contentType(MediaType.APPLICATION_JSON)
+                        .content("[" + ITEM + "," + ITEM + "]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].error").value("Not saved: connection lost"))
+                .andExpect(jsonPath("$[1].error").value("Not saved: connection lost"));
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.hotel.repository;
+
+import com.example.hotel.config.CacheConfig;
+import com.example.hotel.model.Chambre;
+import com.example.hotel.model.Client;
+import com.example.hotel.model.Reservation;
+import com.example.hotel.service.ReservationReadCache;
+import com.example.hotel.service.ReservationService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.id.enhanced.PooledLoOptimizer;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Counts the statements each reservation read prepares, on an in-memory H2:
+ * a read of many reservations must not turn into one select per client or
+ * chambre. The rows are committed before each test and every read runs in
+ * its own transaction, as in the application: the second-level cache does
+ * not serve rows written by a transaction that is still open.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "hotel.read-cache.prewarm=0"
+})
+@Import({CacheConfig.class, ReservationService.class, ReservationReadCache.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ReservationRepositoryTest {
+
+    private static final int RESERVATIONS = 6;
+
+    @Autowired
+    private ReservationRepository reservationRepository;
+
+    @Autowired
+    private ReservationService reservationService;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Statistics statistics;
+    private Long firstId;
+
+    @BeforeEach
+    void storeReservations() {
+        transactionTemplate.executeWithoutResult(status -> {
+            // Every reservation has its own client; they share two chambres
+            Chambre simple = entityManager.persist(new Chambre("Simple", new BigDecimal("60.00"), true));
+            Chambre double_ = entityManager.persist(new Chambre("Double", new BigDecimal("80.00"), true));
+            for (int i = 0; i < RESERVATIONS; i++) {
+                Client client = entityManager.persist(
+                        new Client("Nom" + i, "Prenom" + i, "client" + i + "@example.com", ""));
+                Reservation reservation = entityManager.persist(new Reservation(client,
+                        i % 2 == 0 ? simple : double_, LocalDate.of(2024, 5, 1), LocalDate.of(2024, 5, 3), ""));
+                if (firstId == null) {
+                    firstId = reservation.getId();
+                }
+            }
+        });
+        SessionFactory sessionFactory = sessionFactory();
+        // Start cold: the inserts above filled the second-level cache on commit
+        sessionFactory.getCache().evictAllRegions();
+        statistics = sessionFactory.getStatistics();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void deleteReservations() {
+        transactionTemplate.executeWithoutResult(status -> {
+            for (String entity : List.of("Reservation", "Client", "Chambre")) {
+                entityManager.getEntityManager().createQuery("delete from " + entity).executeUpdate();
+            }
+        });
+        sessionFactory().getCache().evictAllRegions();
+    }
+
+    @Test
+    void findPageAfterReadsAPageInOneStatement() {
+        List<Reservation> page = reservationRepository.findPageAfter(0L, PageRequest.ofSize(4));
+        page.forEach(ReservationRepositoryTest::touch);
+
+        assertThat(page).hasSize(4);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void findAllReadsEveryReservationInOneStatement() {
+        List<Reservation> all = reservationRepository.findAll();
+        all.forEach(ReservationRepositoryTest::touch);
+
+        assertThat(all).hasSize(RESERVATIONS);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void getByIdTakesClientAndChambreFromTheSecondLevelCache() {
+        // Cold: the reservation, then its client and chambre
+        touch(reservationService.getReservationById(firstId).orElseThrow());
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+
+        statistics.clear();
+        touch(reservationService.getReservationById(firstId).orElseThrow());
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getSecondLevelCacheHitCount()).isEqualTo(2);
+    }
+
+    @Test
+    void idsStartAtTheValueTheSequenceReturns() {
+        for (Class<?> entity : List.of(Reservation.class, Client.class, Chambre.class)) {
+            Object generator = entityManagerFactory.unwrap(SessionFactoryImplementor.class).getMappingMetamodel()
+                    .getEntityDescriptor(entity).getIdentifierGenerator();
+            assertThat(((SequenceStyleGenerator) generator).getOptimizer()).isInstanceOf(PooledLoOptimizer.class);
+        }
+    }
+
+    private SessionFactory sessionFactory() {
+        return entityManagerFactory.unwrap(SessionFactory.class);
+    }
+
+    /** Reads the associations as the JSON and SOAP views do. */
+    private static void touch(Reservation reservation) {
+        assertThat(reservation.getClient().getEmail()).endsWith("@example.com");
+        assertThat(reservation.getChambre().getType()).isNotEmpty();
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.hotel.service;
+
+import com.example.hotel.config.CacheConfig;
+import com.example.hotel.model.Chambre;
+import com.example.hotel.model.Client;
+import com.example.hotel.model.Reservation;
+import com.example.hotel.repository.ChambreRepository;
+import com.example.hotel.repository.ClientRepository;
+import com.example.hotel.repository.ReservationRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Configured as ReservationRepositoryTest so the two share one context, and one set of cache regions
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "hotel.read-cache.prewarm=0"
+})
+@Import({CacheConfig.class, ReservationService.class, ReservationReadCache.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ReservationServiceTest {
+
+    @Autowired
+    private ReservationService reservationService;
+
+    @Autowired
+    private ReservationRepository reservationRepository;
+
+    @Autowired
+    private ClientRepository clientRepository;
+
+    @Autowired
+    private ChambreRepository chambreRepository;
+
+    @AfterEach
+    void deleteAll() {
+        reservationRepository.deleteAllInBatch();
+        clientRepository.deleteAllInBatch();
+        chambreRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void updateReusesTheClientStoredWithTheSameEmail() {
+        Reservation created = reservationService.createReservation(reservation("ana@example.com"));
+        Reservation other = reservationService.createReservation(reservation("bob@example.com"));
+        long clients = clientRepository.count();
+
+        Reservation updated = reservationService.updateReservation(other.getId(), reservation("ana@example.com"));
+
+        assertThat(updated.getClient().getId()).isEqualTo(created.getClient().getId());
+        assertThat(clientRepository.count()).isEqualTo(clients);
+    }
+
+    @Test
+    void updateWritesTheEditedClientAndChambre() {
+        Reservation created = reservationService.createReservation(reservation("ana@example.com"));
+        Reservation edit = reservation("ana.new@example.com");
+        edit.getClient().setId(created.getClient().getId());
+        edit.getClient().setTelephone("0600000000");
+        edit.getChambre().setId(created.getChambre().getId());
+        edit.getChambre().setPrix(new BigDecimal("95.00"));
+
+        reservationService.updateReservation(created.getId(), edit);
+
+        Client client = clientRepository.findById(created.getClient().getId()).orElseThrow();
+        assertThat(client.getEmail()).isEqualTo("ana.new@example.com");
+        assertThat(client.getTelephone()).isEqualTo("0600000000");
+        assertThat(chambreRepository.findById(created.getChambre().getId()).orElseThrow().getPrix())
+                .isEqualByComparingTo("95.00");
+        assertThat(clientRepository.count()).isEqualTo(1);
+        assertThat(chambreRepository.count()).isEqualTo(1);
+    }
+
+    @Test
+    void unknownIdsAreNotFound() {
+        Reservation created = reservationService.createReservation(reservation("ana@example.com"));
+        Reservation edit = reservation("ana@example.com");
+        edit.getChambre().setId(created.getChambre().getId() + 1000);
+
+        assertThatThrownBy(() -> reservationService.updateReservation(created.getId(), edit))
+                .isInstanceOf(NotFoundException.class);
+        assertThatThrownBy(() -> reservationService.createReservation(edit))
+                .isInstanceOf(NotFoundException.class);
+        assertThatThrownBy(() -> reservationService.updateReservation(created.getId() + 1000, reservation("")))
+                .isInstanceOf(NotFoundException.class);
+        assertThat(chambreRepository.count()).isEqualTo(1);
+    }
+
+    @Test
+    void createPicksTheOldestOfClientsSharingAnEmail() {
+        // As left by the former mapping, which inserted a client per booking
+        Client oldest = clientRepository.save(new Client("Ana", "", "ana@example.com", ""));
+        clientRepository.save(new Client("Ana again", "", "ana@example.com", ""));
+
+        Reservation created = reservationService.createReservation(reservation("ana@example.com"));
+
+        assertThat(created.getClient().getId()).isEqualTo(oldest.getId());
+        assertThat(clientRepository.count()).isEqualTo(2);
+    }
+
+    @Test
+    void batchFailsOnlyTheItemsNamingAnUnknownId() {
+        Reservation unknownChambre = reservation("bob@example.com");
+        unknownChambre.getChambre().setId(1000L);
+        Map<Integer, Reservation> chunk = new LinkedHashMap<>();
+        chunk.put(0, reservation("ana@example.com"));
+        chunk.put(1, unknownChambre);
+        chunk.put(2, reservation("ana@example.com"));
+
+        List<BatchItemResult> results = reservationService.createReservations(chunk);
+
+        assertThat(results).extracting(BatchItemResult::getIndex).containsExactly(0, 1, 2);
+        assertThat(results.get(0).getId()).isNotNull();
+        assertThat(results.get(1).getError()).isEqualTo("Chambre not found with id 1000");
+        assertThat(results.get(2).getId()).isNotNull();
+        // Items naming the same new email share one new client
+        assertThat(clientRepository.count()).isEqualTo(1);
+        assertThat(reservationRepository.count()).isEqualTo(2);
+    }
+
+    @Test
+    void clientsWithoutAnEmailDoNotConflict() {
+        reservationService.createReservation(reservation(""));
+        reservationService.createReservation(reservation(""));
+
+        assertThat(clientRepository.findByEmailInOrderByIdAsc(List.of(""))).hasSize(2);
+    }
+
+    private static Reservation reservation(String email) {
+        return new Reservation(new Client("Nom", "Prenom", email, ""),
+                new Chambre("Double", new BigDecimal("80.00"), true),
+                LocalDate.of(2024, 5, 1), LocalDate.of(2024, 5, 3), "");
+    }
+}
@@ -1,6 +1,21 @@
 const { PrismaClient } = require('@prisma/client');
 const prisma = new PrismaClient();
 
+// client.email is unique among non-empty emails (partial index client_email_key,
+// built by the gRPC backend), so a returning guest must reuse their row
+const clientFor = async (client) => {
+    if (client.email) {
+        const existing = await prisma.client.findFirst({
+            where: { email: client.email },
+            select: { id: true },
+        });
+        if (existing) {
+            return { connect: { id: existing.id } };
+        }
+    }
+    return { create: client };
+};
+
 const resolvers = {
     Query: {
         reservations: async () => {
@@ -17,17 +32,13 @@ const resolvers = {
     },
     Mutation: {
         createReservation: async (_, { client, chambre, dateDebut, dateFin, preferences }) => {
-            // In a real app, check if client/chambre exists. Here we create new ones for simplicity or assume IDs if input changed.
-            // The schema input implies creating new client/chambre details.
-
-            return prisma.reservation.create({
+            // The client is reused by email; the chambre input has no id, so it is always new
+            const create = async () => prisma.reservation.create({
                 data: {
                     dateDebut: new Date(dateDebut),
                     dateFin: new Date(dateFin),
                     preferences,
-                    client: {
-                        create: client
-                    },
+                    client: await clientFor(client),
                     chambre: {
                         create: {
                             type: chambre.type,
@@ -38,6 +49,16 @@ const resolvers = {
                 },
                 include: { client: true, chambre: true },
             });
+
+            try {
+                return await create();
+            } catch (e) {
+                // Another request inserted the same email in between; it is found now
+                if (e.code === 'P2002' && client.email) {
+                    return create();
+                }
+                throw e;
+            }
         },
         updateReservation: async (_, { id, dateDebut, dateFin, preferences }) => {
             const data = {};
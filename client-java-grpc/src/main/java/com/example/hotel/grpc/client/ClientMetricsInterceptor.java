@@ -0,0 +1,84 @@
+package com.example.hotel.grpc.client;
+
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.ClientStreamTracer;
+import io.grpc.ForwardingClientCall;
+import io.grpc.ForwardingClientCallListener;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+import io.prometheus.client.Counter;
+import io.prometheus.client.Gauge;
+import io.prometheus.client.Histogram;
+
+/**
+ * Records what callers see, labelled by full method name like the server's
+ * {@code hotel_grpc_server_*} metrics and with the same latency buckets, so
+ * the two histograms can be compared directly: the gap is network, queueing
+ * and client overhead, and retries and hedges narrow or widen it.
+ * <p>
+ * Attempts are counted separately: a call that was hedged or retried shows
+ * one {@code first} attempt and one or more {@code additional} ones, while
+ * {@code transparent} counts the retries gRPC makes on its own when a stream
+ * never reached the server.
+ */
+public class ClientMetricsInterceptor implements ClientInterceptor {
+
+    private static final Histogram LATENCY = Histogram.build()
+            .name("hotel_grpc_client_handling_seconds")
+            .help("Time from call start to status received, across all attempts")
+            .labelNames("method")
+            .buckets(0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10)
+            .register();
+    private static final Gauge IN_FLIGHT = Gauge.build()
+            .name("hotel_grpc_client_in_flight_calls")
+            .help("Calls started and not yet finished")
+            .labelNames("method")
+            .register();
+    private static final Counter HANDLED = Counter.build()
+            .name("hotel_grpc_client_handled_total")
+            .help("Finished calls by status code")
+            .labelNames("method", "code")
+            .register();
+    private static final Counter ATTEMPTS = Counter.build()
+            .name("hotel_grpc_client_attempts_total")
+            .help("Transport attempts, including retries and hedges")
+            .labelNames("method", "attempt")
+            .register();
+
+    @Override
+    public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(MethodDescriptor<ReqT, RespT> method,
+            CallOptions callOptions, Channel next) {
+        String name = method.getFullMethodName();
+        ClientStreamTracer.Factory attempts = new ClientStreamTracer.Factory() {
+            @Override
+            public ClientStreamTracer newClientStreamTracer(ClientStreamTracer.StreamInfo info, Metadata headers) {
+                String attempt = info.isTransparentRetry() ? "transparent"
+                        : info.getPreviousAttempts() == 0 ? "first" : "additional";
+                ATTEMPTS.labels(name, attempt).inc();
+                return new ClientStreamTracer() {
+                };
+            }
+        };
+        ClientCall<ReqT, RespT> call = next.newCall(method, callOptions.withStreamTracerFactory(attempts));
+        return new ForwardingClientCall.SimpleForwardingClientCall<>(call) {
+            @Override
+            public void start(Listener<RespT> responseListener, Metadata headers) {
+                long startNanos = System.nanoTime();
+                IN_FLIGHT.labels(name).inc();
+                super.start(new ForwardingClientCallListener.SimpleForwardingClientCallListener<>(responseListener) {
+                    @Override
+                    public void onClose(Status status, Metadata trailers) {
+                        LATENCY.labels(name).observe((System.nanoTime() - startNanos) / 1e9);
+                        HANDLED.labels(name, status.getCode().name()).inc();
+                        IN_FLIGHT.labels(name).dec();
+                        super.onClose(status, trailers);
+                    }
+                }, headers);
+            }
+        };
+    }
+}
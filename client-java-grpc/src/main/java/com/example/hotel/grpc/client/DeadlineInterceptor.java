@@ -0,0 +1,44 @@
+package com.example.hotel.grpc.client;
+
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.MethodDescriptor;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gives calls without a deadline a default one, so a stuck server cannot hold
+ * a caller forever. Unary calls get {@code unaryDeadline}; streaming calls are
+ * usually long-lived and only get one when their method is listed in
+ * {@code methodDeadlines}, keyed by bare method name. A zero duration means no
+ * default for that method. A deadline set on the stub always wins.
+ */
+public class DeadlineInterceptor implements ClientInterceptor {
+
+    private final Duration unaryDeadline;
+    private final Map<String, Duration> methodDeadlines;
+
+    public DeadlineInterceptor(Duration unaryDeadline, Map<String, Duration> methodDeadlines) {
+        this.unaryDeadline = unaryDeadline;
+        this.methodDeadlines = Map.copyOf(methodDeadlines);
+    }
+
+    @Override
+    public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(MethodDescriptor<ReqT, RespT> method,
+            CallOptions callOptions, Channel next) {
+        if (callOptions.getDeadline() == null) {
+            Duration deadline = methodDeadlines.get(method.getBareMethodName());
+            if (deadline == null && method.getType() == MethodDescriptor.MethodType.UNARY) {
+                deadline = unaryDeadline;
+            }
+            if (deadline != null && !deadline.isZero()) {
+                callOptions = callOptions.withDeadlineAfter(deadline.toNanos(), TimeUnit.NANOSECONDS);
+            }
+        }
+        return next.newCall(method, callOptions);
+    }
+}
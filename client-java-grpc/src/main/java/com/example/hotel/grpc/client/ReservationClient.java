@@ -0,0 +1,308 @@
+package com.example.hotel.grpc.client;
+
+import com.example.hotel.grpc.GetReservationRequest;
+import com.example.hotel.grpc.Reservation;
+import com.example.hotel.grpc.ReservationServiceGrpc;
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientInterceptor;
+import io.grpc.ClientInterceptors;
+import io.grpc.ConnectivityState;
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import io.grpc.MethodDescriptor;
+import io.grpc.NameResolverRegistry;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.ClientCalls;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Client for {@code hotel.ReservationService} over a pool of channels.
+ * <p>
+ * Every channel resolves the same static list of server instances and
+ * balances calls across them with {@code round_robin}; stubs rotate over the
+ * channels, so concurrent calls are spread over several HTTP/2 connections
+ * per instance instead of queueing on one. The service config sent to every
+ * channel hedges {@code GetReservation}: if no answer came within
+ * {@code hedgingDelay}, another copy goes to the next instance and the first
+ * answer wins. Reads and updates that are safe to repeat are retried on
+ * {@code UNAVAILABLE}; creates and deletes are never repeated. Retries and
+ * hedges draw from a shared token bucket, so a failing cluster does not get
+ * multiplied load.
+ * <p>
+ * Stubs carry {@link DeadlineInterceptor} and {@link ClientMetricsInterceptor}.
+ */
+public class ReservationClient implements AutoCloseable {
+
+    private static final String SERVICE = "hotel.ReservationService";
+
+    /** grpc.health.v1.Health/Check with an empty request; warms a connection without touching the database. */
+    private static final MethodDescriptor<byte[], byte[]> HEALTH_CHECK = MethodDescriptor.<byte[], byte[]>newBuilder()
+            .setType(MethodDescriptor.MethodType.UNARY)
+            .setFullMethodName("grpc.health.v1.Health/Check")
+            .setRequestMarshaller(BytesMarshaller.INSTANCE)
+            .setResponseMarshaller(BytesMarshaller.INSTANCE)
+            .build();
+
+    static {
+        NameResolverRegistry.getDefaultRegistry().register(new StaticNameResolverProvider());
+    }
+
+    private final List<ManagedChannel> channels;
+    private final List<Channel> intercepted;
+    private final AtomicInteger next = new AtomicInteger();
+
+    private ReservationClient(Builder builder) {
+        Map<String, ?> serviceConfig = serviceConfig(builder);
+        List<ClientInterceptor> interceptors = new ArrayList<>();
+        interceptors.add(new DeadlineInterceptor(builder.unaryDeadline, builder.methodDeadlines));
+        if (builder.metrics) {
+            interceptors.add(new ClientMetricsInterceptor());
+        }
+        this.channels = new ArrayList<>();
+        this.intercepted = new ArrayList<>();
+        for (int i = 0; i < builder.channels; i++) {
+            ManagedChannelBuilder<?> channel = ManagedChannelBuilder
+                    .forTarget(StaticNameResolverProvider.target(builder.instances))
+                    .defaultServiceConfig(serviceConfig)
+                    .enableRetry()
+                    .userAgent("hotel-grpc-client");
+            if (builder.plaintext) {
+                channel.usePlaintext();
+            }
+            ManagedChannel built = channel.build();
+            channels.add(built);
+            intercepted.add(ClientInterceptors.intercept(built, interceptors));
+        }
+    }
+
+    /** Starts a builder for the given {@code host:port} instances. */
+    public static Builder forInstances(List<String> instances) {
+        return new Builder(instances);
+    }
+
+    public static Builder forInstances(String... instances) {
+        return new Builder(List.of(instances));
+    }
+
+    public ReservationServiceGrpc.ReservationServiceBlockingStub blockingStub() {
+        return ReservationServiceGrpc.newBlockingStub(nextChannel());
+    }
+
+    public ReservationServiceGrpc.ReservationServiceStub asyncStub() {
+        return ReservationServiceGrpc.newStub(nextChannel());
+    }
+
+    public ReservationServiceGrpc.ReservationServiceFutureStub futureStub() {
+        return ReservationServiceGrpc.newFutureStub(nextChannel());
+    }
+
+    /**
+     * @throws StatusRuntimeException with {@code NOT_FOUND} when there is no such reservation
+     */
+    public Reservation getReservation(long id) {
+        return blockingStub().getReservation(GetReservationRequest.newBuilder().setId(id).build()).getReservation();
+    }
+
+    /**
+     * Connects every channel and sends {@code callsPerChannel} health checks
+     * through each, which round-robin over the instances, so the first real
+     * calls find open connections and warmed-up code. Returns whether every
+     * channel reached {@code READY} within the timeout.
+     */
+    public boolean warmUp(Duration timeout, int callsPerChannel) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        CountDownLatch ready = new CountDownLatch(channels.size());
+        for (ManagedChannel channel : channels) {
+            awaitReady(channel, ready);
+        }
+        boolean allReady = ready.await(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        for (ManagedChannel channel : channels) {
+            for (int i = 0; i < callsPerChannel; i++) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                try {
+                    ClientCalls.blockingUnaryCall(channel, HEALTH_CHECK,
+                            CallOptions.DEFAULT.withDeadlineAfter(remaining, TimeUnit.NANOSECONDS), new byte[0]);
+                } catch (StatusRuntimeException e) {
+                    // The connection and the client path are warm even if the call failed
+                }
+            }
+        }
+        return allReady;
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        for (ManagedChannel channel : channels) {
+            channel.shutdown();
+        }
+        for (ManagedChannel channel : channels) {
+            if (!channel.awaitTermination(5, TimeUnit.SECONDS)) {
+                channel.shutdownNow();
+            }
+        }
+    }
+
+    private Channel nextChannel() {
+        return intercepted.get(Math.floorMod(next.getAndIncrement(), intercepted.size()));
+    }
+
+    private static void awaitReady(ManagedChannel channel, CountDownLatch ready) {
+        ConnectivityState state = channel.getState(true);
+        if (state == ConnectivityState.READY) {
+            ready.countDown();
+        } else if (state != ConnectivityState.SHUTDOWN) {
+            channel.notifyWhenStateChanged(state, () -> awaitReady(channel, ready));
+        }
+    }
+
+    /** Service config in the JSON-like form grpc-java parses: numbers are doubles, durations strings. */
+    static Map<String, ?> serviceConfig(Builder builder) {
+        List<Map<String, ?>> methodConfig = new ArrayList<>();
+
+        Map<String, Object> get = new HashMap<>();
+        get.put("name", List.of(method("GetReservation")));
+        if (builder.hedgingDelay != null) {
+            get.put("hedgingPolicy", Map.of(
+                    "maxAttempts", (double) builder.hedgingMaxAttempts,
+                    "hedgingDelay", seconds(builder.hedgingDelay),
+                    "nonFatalStatusCodes", List.of("UNAVAILABLE")));
+        } else {
+            get.put("retryPolicy", retryPolicy(builder));
+        }
+        methodConfig.add(get);
+
+        methodConfig.add(Map.of(
+                "name", List.of(method("ListReservations"), method("LookupReservations"), method("UpdateReservation")),
+                "retryPolicy", retryPolicy(builder)));
+
+        return Map.of(
+                "loadBalancingConfig", List.of(Map.of("round_robin", Map.of())),
+                "methodConfig", methodConfig,
+                "retryThrottling", Map.of("maxTokens", 10.0, "tokenRatio", 0.1));
+    }
+
+    private static Map<String, ?> method(String name) {
+        return Map.of("service", SERVICE, "method", name);
+    }
+
+    private static Map<String, ?> retryPolicy(Builder builder) {
+        return Map.of(
+                "maxAttempts", (double) builder.retryMaxAttempts,
+                "initialBackoff", "0.05s",
+                "maxBackoff", "1s",
+                "backoffMultiplier", 2.0,
+                "retryableStatusCodes", List.of("UNAVAILABLE"));
+    }
+
+    private static String seconds(Duration duration) {
+        return String.format(Locale.ROOT, "%.6fs", duration.toNanos() / 1e9);
+    }
+
+    public static final class Builder {
+        private final List<String> instances;
+        private int channels = 2;
+        private Duration hedgingDelay = Duration.ofMillis(10);
+        private int hedgingMaxAttempts = 2;
+        private int retryMaxAttempts = 3;
+        private Duration unaryDeadline = Duration.ofSeconds(2);
+        private final Map<String, Duration> methodDeadlines = new HashMap<>();
+        private boolean plaintext = true;
+        private boolean metrics = true;
+
+        private Builder(List<String> instances) {
+            if (instances.isEmpty()) {
+                throw new IllegalArgumentException("At least one host:port instance is required");
+            }
+            this.instances = List.copyOf(instances);
+        }
+
+        /** Channels in the pool; each holds one connection per instance. Default 2. */
+        public Builder channels(int channels) {
+            this.channels = Math.max(1, channels);
+            return this;
+        }
+
+        /**
+         * Delay before GetReservation is sent again, best set near the p95 of
+         * {@code hotel_grpc_client_handling_seconds}; {@code null} retries on
+         * UNAVAILABLE instead of hedging. Default 10 ms.
+         */
+        public Builder hedgingDelay(Duration hedgingDelay) {
+            this.hedgingDelay = hedgingDelay;
+            return this;
+        }
+
+        /** Copies of a hedged call, the first included; gRPC caps it at 5. Default 2. */
+        public Builder hedgingMaxAttempts(int hedgingMaxAttempts) {
+            this.hedgingMaxAttempts = Math.max(2, hedgingMaxAttempts);
+            return this;
+        }
+
+        /** Attempts of a retried call, the first included; gRPC caps it at 5. Default 3. */
+        public Builder retryMaxAttempts(int retryMaxAttempts) {
+            this.retryMaxAttempts = Math.max(2, retryMaxAttempts);
+            return this;
+        }
+
+        /** Deadline of unary calls made without one. Default 2 s. */
+        public Builder unaryDeadline(Duration unaryDeadline) {
+            this.unaryDeadline = unaryDeadline;
+            return this;
+        }
+
+        /** Default deadline of one method, by bare name; zero for none. */
+        public Builder methodDeadline(String method, Duration deadline) {
+            methodDeadlines.put(method, deadline);
+            return this;
+        }
+
+        public Builder plaintext(boolean plaintext) {
+            this.plaintext = plaintext;
+            return this;
+        }
+
+        public Builder metrics(boolean metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
+        public ReservationClient build() {
+            return new ReservationClient(this);
+        }
+    }
+
+    private enum BytesMarshaller implements MethodDescriptor.Marshaller<byte[]> {
+        INSTANCE;
+
+        @Override
+        public InputStream stream(byte[] value) {
+            return new ByteArrayInputStream(value);
+        }
+
+        @Override
+        public byte[] parse(InputStream stream) {
+            try {
+                return stream.readAllBytes();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.hotel.grpc.client;
+
+import io.grpc.Attributes;
+import io.grpc.EquivalentAddressGroup;
+import io.grpc.NameResolver;
+import io.grpc.NameResolverProvider;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Resolves {@code static:///host1:9095,host2:9095} to a fixed list of server
+ * instances, one address group each, so {@code round_robin} keeps a
+ * connection to every instance and spreads calls across them. IPv6 hosts are
+ * written in brackets, as in {@code [::1]:9095}.
+ */
+public final class StaticNameResolverProvider extends NameResolverProvider {
+
+    public static final String SCHEME = "static";
+
+    /** Target for a list of {@code host:port} instances; the brackets of IPv6 hosts come out escaped. */
+    public static String target(List<String> instances) {
+        try {
+            return new URI(SCHEME, "", "/" + String.join(",", instances), null).toString();
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException("Invalid instances " + instances, e);
+        }
+    }
+
+    @Override
+    protected boolean isAvailable() {
+        return true;
+    }
+
+    @Override
+    protected int priority() {
+        return 5;
+    }
+
+    @Override
+    public String getDefaultScheme() {
+        return SCHEME;
+    }
+
+    @Override
+    protected Collection<Class<? extends SocketAddress>> getProducedSocketAddressTypes() {
+        return List.of(InetSocketAddress.class);
+    }
+
+    @Override
+    public NameResolver newNameResolver(URI targetUri, NameResolver.Args args) {
+        if (!SCHEME.equals(targetUri.getScheme())) {
+            return null;
+        }
+        String path = targetUri.getPath();
+        String[] instances = (path.startsWith("/") ? path.substring(1) : path).split(",");
+        List<EquivalentAddressGroup> groups = new ArrayList<>();
+        for (String instance : instances) {
+            int colon = instance.lastIndexOf(':');
+            if (colon <= 0) {
+                throw new IllegalArgumentException("Expected host:port in " + targetUri + ", got " + instance);
+            }
+            int port;
+            try {
+                port = Integer.parseInt(instance.substring(colon + 1));
+            } catch (NumberFormatException e) {
+                port = -1;
+            }
+            if (port < 0 || port > 0xFFFF) {
+                throw new IllegalArgumentException("Invalid port in " + targetUri + ", got " + instance);
+            }
+            groups.add(new EquivalentAddressGroup(new InetSocketAddress(instance.substring(0, colon), port)));
+        }
+        String authority = instances[0];
+        return new NameResolver() {
+            @Override
+            public String getServiceAuthority() {
+                return authority;
+            }
+
+            @Override
+            public void start(Listener2 listener) {
+                listener.onResult(ResolutionResult.newBuilder()
+                        .setAddresses(groups)
+                        .setAttributes(Attributes.EMPTY)
+                        .build());
+            }
+
+            @Override
+            public void shutdown() {
+            }
+        };
+    }
+}
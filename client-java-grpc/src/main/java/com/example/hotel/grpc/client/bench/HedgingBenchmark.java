@@ -0,0 +1,132 @@
+package com.example.hotel.grpc.client.bench;
+
+import com.example.hotel.grpc.GetReservationRequest;
+import com.example.hotel.grpc.Reservation;
+import com.example.hotel.grpc.ReservationResponse;
+import com.example.hotel.grpc.ReservationServiceGrpc;
+import com.example.hotel.grpc.client.ReservationClient;
+import io.grpc.Server;
+import io.grpc.ServerBuilder;
+import io.grpc.stub.StreamObserver;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tail latency of GetReservation with and without hedging, against local
+ * servers that answer in {@code fastMicros} except for a {@code slowPercent}
+ * share of calls that take {@code slowMillis}, the shape a GC pause or a cold
+ * page gives a real instance. Also times the first call of a fresh client
+ * with and without {@link ReservationClient#warmUp}.
+ * <p>
+ * Usage: {@code HedgingBenchmark [calls] [instances] [slowPercent] [slowMillis] [hedgeMillis]}.
+ */
+public class HedgingBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int calls = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int instances = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        double slowPercent = args.length > 2 ? Double.parseDouble(args[2]) : 2;
+        long slowMillis = args.length > 3 ? Long.parseLong(args[3]) : 30;
+        long hedgeMillis = args.length > 4 ? Long.parseLong(args[4]) : 5;
+        long fastMicros = 200;
+
+        ScheduledExecutorService delays = Executors.newScheduledThreadPool(4);
+        List<Server> servers = new ArrayList<>();
+        List<String> targets = new ArrayList<>();
+        for (int i = 0; i < instances; i++) {
+            Server server = ServerBuilder.forPort(0)
+                    .addService(new SlowSometimes(delays, slowPercent, slowMillis, fastMicros))
+                    .build()
+                    .start();
+            servers.add(server);
+            targets.add("localhost:" + server.getPort());
+        }
+
+        try {
+            firstCall("first call, cold", targets, false);
+            firstCall("first call, warmed up", targets, true);
+            run("retry only", targets, null, calls);
+            run("hedged after " + hedgeMillis + " ms", targets, Duration.ofMillis(hedgeMillis), calls);
+        } finally {
+            servers.forEach(Server::shutdownNow);
+            delays.shutdownNow();
+        }
+    }
+
+    private static void firstCall(String label, List<String> targets, boolean warmUp) throws InterruptedException {
+        ReservationClient client = ReservationClient.forInstances(targets).metrics(false).build();
+        try {
+            if (warmUp) {
+                client.warmUp(Duration.ofSeconds(5), 10);
+            }
+            long start = System.nanoTime();
+            client.getReservation(1);
+            System.out.printf("%-24s %8.2f ms%n", label, (System.nanoTime() - start) / 1e6);
+        } finally {
+            client.close();
+        }
+    }
+
+    private static void run(String label, List<String> targets, Duration hedgingDelay, int calls)
+            throws InterruptedException {
+        ReservationClient client = ReservationClient.forInstances(targets)
+                .hedgingDelay(hedgingDelay)
+                .metrics(false)
+                .build();
+        try {
+            client.warmUp(Duration.ofSeconds(5), 10);
+            for (int i = 0; i < Math.min(calls, 2_000); i++) {
+                client.getReservation(i);
+            }
+            long[] samples = new long[calls];
+            for (int i = 0; i < calls; i++) {
+                long start = System.nanoTime();
+                client.getReservation(i);
+                samples[i] = System.nanoTime() - start;
+            }
+            Arrays.sort(samples);
+            System.out.printf("%-24s p50=%.2fms  p90=%.2fms  p99=%.2fms  p99.9=%.2fms  max=%.2fms%n", label,
+                    percentile(samples, 0.50), percentile(samples, 0.90), percentile(samples, 0.99),
+                    percentile(samples, 0.999), samples[samples.length - 1] / 1e6);
+        } finally {
+            client.close();
+        }
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+    }
+
+    private static final class SlowSometimes extends ReservationServiceGrpc.ReservationServiceImplBase {
+        private final ScheduledExecutorService delays;
+        private final double slowPercent;
+        private final long slowMillis;
+        private final long fastMicros;
+
+        SlowSometimes(ScheduledExecutorService delays, double slowPercent, long slowMillis, long fastMicros) {
+            this.delays = delays;
+            this.slowPercent = slowPercent;
+            this.slowMillis = slowMillis;
+            this.fastMicros = fastMicros;
+        }
+
+        @Override
+        public void getReservation(GetReservationRequest request, StreamObserver<ReservationResponse> observer) {
+            boolean slow = ThreadLocalRandom.current().nextDouble(100) < slowPercent;
+            delays.schedule(() -> {
+                observer.onNext(ReservationResponse.newBuilder()
+                        .setReservation(Reservation.newBuilder().setId(request.getId()))
+                        .build());
+                observer.onCompleted();
+            }, slow ? TimeUnit.MILLISECONDS.toMicros(slowMillis) : fastMicros, TimeUnit.MICROSECONDS);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.hotel.grpc.client;
+
+import com.example.hotel.grpc.GetReservationRequest;
+import com.example.hotel.grpc.ListReservationsRequest;
+import com.example.hotel.grpc.ListReservationsResponse;
+import com.example.hotel.grpc.ReservationResponse;
+import com.example.hotel.grpc.ReservationServiceGrpc;
+import io.grpc.ClientInterceptors;
+import io.grpc.Context;
+import io.grpc.Deadline;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Reads the deadline each call arrives with on an in-process server. */
+class DeadlineInterceptorTest {
+
+    private Server server;
+    private ManagedChannel channel;
+    private Deadline received;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        ReservationServiceGrpc.ReservationServiceImplBase service = new ReservationServiceGrpc.ReservationServiceImplBase() {
+            @Override
+            public void getReservation(GetReservationRequest request,
+                    StreamObserver<ReservationResponse> responseObserver) {
+                received = Context.current().getDeadline();
+                responseObserver.onNext(ReservationResponse.getDefaultInstance());
+                responseObserver.onCompleted();
+            }
+
+            @Override
+            public void listReservations(ListReservationsRequest request,
+                    StreamObserver<ListReservationsResponse> responseObserver) {
+                received = Context.current().getDeadline();
+                responseObserver.onCompleted();
+            }
+        };
+        String name = InProcessServerBuilder.generateName();
+        server = InProcessServerBuilder.forName(name).directExecutor().addService(service).build().start();
+        channel = InProcessChannelBuilder.forName(name).directExecutor().build();
+    }
+
+    @AfterEach
+    void stopServer() {
+        channel.shutdownNow();
+        server.shutdownNow();
+    }
+
+    @Test
+    void unaryCallsGetTheDefaultButStreamsDoNot() {
+        ReservationServiceGrpc.ReservationServiceBlockingStub stub = stub(Duration.ofSeconds(2), Map.of());
+
+        stub.getReservation(GetReservationRequest.getDefaultInstance());
+        assertNotNull(received);
+        assertTrue(received.timeRemaining(TimeUnit.MILLISECONDS) <= 2_000);
+
+        stub.listReservations(ListReservationsRequest.getDefaultInstance()).forEachRemaining(response -> { });
+        assertNull(received);
+    }
+
+    @Test
+    void listedMethodsOverrideTheDefault() {
+        ReservationServiceGrpc.ReservationServiceBlockingStub stub = stub(Duration.ofSeconds(2),
+                Map.of("ListReservations", Duration.ofSeconds(30), "GetReservation", Duration.ZERO));
+
+        stub.getReservation(GetReservationRequest.getDefaultInstance());
+        assertNull(received);
+
+        stub.listReservations(ListReservationsRequest.getDefaultInstance()).forEachRemaining(response -> { });
+        assertNotNull(received);
+        assertTrue(received.timeRemaining(TimeUnit.SECONDS) > 2);
+    }
+
+    @Test
+    void aDeadlineSetOnTheStubWins() {
+        stub(Duration.ofSeconds(2), Map.of()).withDeadlineAfter(30, TimeUnit.SECONDS)
+                .getReservation(GetReservationRequest.getDefaultInstance());
+
+        assertTrue(received.timeRemaining(TimeUnit.SECONDS) > 2);
+    }
+
+    private ReservationServiceGrpc.ReservationServiceBlockingStub stub(Duration unaryDeadline,
+            Map<String, Duration> methodDeadlines) {
+        return ReservationServiceGrpc.newBlockingStub(
+                ClientInterceptors.intercept(channel, new DeadlineInterceptor(unaryDeadline, methodDeadlines)));
+    }
+}
@@ -0,0 +1,206 @@
+package com.example.hotel.grpc.client;
+
+import com.example.hotel.grpc.CreateReservationRequest;
+import com.example.hotel.grpc.DeleteReservationRequest;
+import com.example.hotel.grpc.DeleteReservationResponse;
+import com.example.hotel.grpc.GetReservationRequest;
+import com.example.hotel.grpc.ReservationResponse;
+import com.example.hotel.grpc.ReservationServiceGrpc;
+import com.example.hotel.grpc.UpdateReservationRequest;
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import io.grpc.Server;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReservationClientTest {
+
+    private static final List<String> INSTANCES = List.of("127.0.0.1:9095", "127.0.0.2:9095");
+
+    private Server server;
+    private ManagedChannel channel;
+
+    @AfterEach
+    void stopServer() {
+        if (channel != null) {
+            channel.shutdownNow();
+        }
+        if (server != null) {
+            server.shutdownNow();
+        }
+    }
+
+    @Test
+    void serviceConfigIsAcceptedAsTheChannelDefault() {
+        for (ReservationClient.Builder builder : List.of(ReservationClient.forInstances(INSTANCES),
+                ReservationClient.forInstances(INSTANCES).hedgingDelay(null))) {
+            // The channel parses its default config when built and refuses one it cannot use
+            ManagedChannelBuilder.forTarget(StaticNameResolverProvider.target(INSTANCES))
+                    .defaultServiceConfig(ReservationClient.serviceConfig(builder))
+                    .enableRetry()
+                    .usePlaintext()
+                    .build()
+                    .shutdownNow();
+        }
+    }
+
+    @Test
+    void onlyGetReservationIsHedged() {
+        Map<String, ?> get = methodConfig(ReservationClient.serviceConfig(
+                ReservationClient.forInstances(INSTANCES).hedgingDelay(Duration.ofMillis(15)).hedgingMaxAttempts(3)),
+                "GetReservation");
+
+        assertEquals(Map.of("maxAttempts", 3.0, "hedgingDelay", "0.015000s",
+                "nonFatalStatusCodes", List.of("UNAVAILABLE")), get.get("hedgingPolicy"));
+        assertFalse(get.containsKey("retryPolicy"));
+        for (String method : List.of("ListReservations", "LookupReservations", "UpdateReservation")) {
+            Map<String, ?> config = methodConfig(ReservationClient.serviceConfig(
+                    ReservationClient.forInstances(INSTANCES)), method);
+            assertFalse(config.containsKey("hedgingPolicy"), method);
+            assertTrue(config.containsKey("retryPolicy"), method);
+        }
+    }
+
+    @Test
+    void getReservationIsRetriedWithoutAHedgingDelay() {
+        Map<String, ?> get = methodConfig(ReservationClient.serviceConfig(
+                ReservationClient.forInstances(INSTANCES).hedgingDelay(null)), "GetReservation");
+
+        assertFalse(get.containsKey("hedgingPolicy"));
+        assertTrue(get.containsKey("retryPolicy"));
+    }
+
+    @Test
+    void createsAndDeletesHaveNoPolicy() {
+        for (Map<String, ?> config : methodConfigs(ReservationClient.serviceConfig(
+                ReservationClient.forInstances(INSTANCES)))) {
+            for (String method : methodNames(config)) {
+                assertFalse(method.startsWith("Create") || method.startsWith("Delete")
+                        || method.startsWith("BulkCreate"), method);
+            }
+        }
+    }
+
+    @Test
+    void unavailableRetriesUpdatesButNeverCreatesOrDeletes() throws IOException {
+        AtomicInteger creates = new AtomicInteger();
+        AtomicInteger updates = new AtomicInteger();
+        AtomicInteger deletes = new AtomicInteger();
+        start(new ReservationServiceGrpc.ReservationServiceImplBase() {
+            @Override
+            public void createReservation(CreateReservationRequest request,
+                    StreamObserver<ReservationResponse> responseObserver) {
+                creates.incrementAndGet();
+                responseObserver.onError(Status.UNAVAILABLE.asRuntimeException());
+            }
+
+            @Override
+            public void updateReservation(UpdateReservationRequest request,
+                    StreamObserver<ReservationResponse> responseObserver) {
+                updates.incrementAndGet();
+                responseObserver.onError(Status.UNAVAILABLE.asRuntimeException());
+            }
+
+            @Override
+            public void deleteReservation(DeleteReservationRequest request,
+                    StreamObserver<DeleteReservationResponse> responseObserver) {
+                deletes.incrementAndGet();
+                responseObserver.onError(Status.UNAVAILABLE.asRuntimeException());
+            }
+        }, ReservationClient.forInstances(INSTANCES).retryMaxAttempts(3));
+        ReservationServiceGrpc.ReservationServiceBlockingStub stub = ReservationServiceGrpc.newBlockingStub(channel)
+                .withDeadlineAfter(5, TimeUnit.SECONDS);
+
+        assertThrows(StatusRuntimeException.class,
+                () -> stub.updateReservation(UpdateReservationRequest.getDefaultInstance()));
+        assertThrows(StatusRuntimeException.class,
+                () -> stub.createReservation(CreateReservationRequest.getDefaultInstance()));
+        assertThrows(StatusRuntimeException.class,
+                () -> stub.deleteReservation(DeleteReservationRequest.getDefaultInstance()));
+
+        assertEquals(3, updates.get());
+        assertEquals(1, creates.get());
+        assertEquals(1, deletes.get());
+    }
+
+    @Test
+    void aSlowGetReservationIsAnsweredByItsHedge() throws IOException {
+        AtomicInteger gets = new AtomicInteger();
+        List<StreamObserver<ReservationResponse>> stuck = new ArrayList<>();
+        start(new ReservationServiceGrpc.ReservationServiceImplBase() {
+            @Override
+            public void getReservation(GetReservationRequest request,
+                    StreamObserver<ReservationResponse> responseObserver) {
+                if (gets.incrementAndGet() == 1) {
+                    // The first copy never answers
+                    stuck.add(responseObserver);
+                    return;
+                }
+                responseObserver.onNext(ReservationResponse.getDefaultInstance());
+                responseObserver.onCompleted();
+            }
+        }, ReservationClient.forInstances(INSTANCES).hedgingDelay(Duration.ofMillis(10)));
+
+        ReservationServiceGrpc.newBlockingStub(channel).withDeadlineAfter(5, TimeUnit.SECONDS)
+                .getReservation(GetReservationRequest.getDefaultInstance());
+
+        assertEquals(2, gets.get());
+    }
+
+    private void start(ReservationServiceGrpc.ReservationServiceImplBase service, ReservationClient.Builder builder)
+            throws IOException {
+        String name = InProcessServerBuilder.generateName();
+        server = InProcessServerBuilder.forName(name).directExecutor().addService(service).build().start();
+        channel = InProcessChannelBuilder.forName(name)
+                .defaultServiceConfig(ReservationClient.serviceConfig(builder))
+                .enableRetry()
+                .build();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, ?>> methodConfigs(Map<String, ?> serviceConfig) {
+        return (List<Map<String, ?>>) serviceConfig.get("methodConfig");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<String> methodNames(Map<String, ?> methodConfig) {
+        List<String> names = new ArrayList<>();
+        for (Map<String, ?> name : (List<Map<String, ?>>) methodConfig.get("name")) {
+            assertEquals("hotel.ReservationService", name.get("service"));
+            names.add((String) name.get("method"));
+        }
+        return names;
+    }
+
+    private static Map<String, ?> methodConfig(Map<String, ?> serviceConfig, String method) {
+        Map<String, ?> found = null;
+        for (Map<String, ?> config : methodConfigs(serviceConfig)) {
+            if (methodNames(config).contains(method)) {
+                assertNull(found, method + " is configured twice");
+                found = config;
+            }
+        }
+        assertNotNull(found, method + " has no method config");
+        return found;
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.hotel.grpc.client;
+
+import io.grpc.EquivalentAddressGroup;
+import io.grpc.NameResolver;
+import io.grpc.Status;
+import io.grpc.SynchronizationContext;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class StaticNameResolverProviderTest {
+
+    private static final NameResolver.Args ARGS = NameResolver.Args.newBuilder()
+            .setDefaultPort(443)
+            .setProxyDetector(address -> null)
+            .setSynchronizationContext(new SynchronizationContext((thread, e) -> {
+                throw new AssertionError(e);
+            }))
+            .setServiceConfigParser(new NameResolver.ServiceConfigParser() {
+                @Override
+                public NameResolver.ConfigOrError parseServiceConfig(Map<String, ?> rawServiceConfig) {
+                    return NameResolver.ConfigOrError.fromConfig(rawServiceConfig);
+                }
+            })
+            .build();
+
+    private final StaticNameResolverProvider provider = new StaticNameResolverProvider();
+
+    @Test
+    void resolvesEveryInstanceToItsOwnAddressGroup() {
+        NameResolver resolver = resolver(List.of("127.0.0.1:9095", "127.0.0.2:9096", "127.0.0.3:9097"));
+
+        List<EquivalentAddressGroup> groups = resolve(resolver);
+
+        assertEquals(3, groups.size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(List.of(new InetSocketAddress("127.0.0." + (i + 1), 9095 + i)), groups.get(i).getAddresses());
+        }
+        assertEquals("127.0.0.1:9095", resolver.getServiceAuthority());
+    }
+
+    @Test
+    void acceptsIpv6HostsInBrackets() throws Exception {
+        NameResolver resolver = resolver(List.of("[::1]:9095", "[2001:db8::7]:9096"));
+
+        List<EquivalentAddressGroup> groups = resolve(resolver);
+
+        assertEquals(List.of(new InetSocketAddress(InetAddress.getByName("::1"), 9095)), groups.get(0).getAddresses());
+        assertEquals(List.of(new InetSocketAddress(InetAddress.getByName("2001:db8::7"), 9096)),
+                groups.get(1).getAddresses());
+        assertEquals("[::1]:9095", resolver.getServiceAuthority());
+    }
+
+    @Test
+    void rejectsInstancesWithoutAValidPort() {
+        for (String instance : List.of("127.0.0.1", "127.0.0.1:", "127.0.0.1:grpc", "127.0.0.1:70000", ":9095")) {
+            assertThrows(IllegalArgumentException.class, () -> resolver(List.of("127.0.0.2:9095", instance)),
+                    instance);
+        }
+    }
+
+    @Test
+    void leavesOtherSchemesToTheirResolvers() {
+        assertNull(provider.newNameResolver(URI.create("dns:///127.0.0.1:9095"), ARGS));
+    }
+
+    private NameResolver resolver(List<String> instances) {
+        return provider.newNameResolver(URI.create(StaticNameResolverProvider.target(instances)), ARGS);
+    }
+
+    private static List<EquivalentAddressGroup> resolve(NameResolver resolver) {
+        CapturingListener listener = new CapturingListener();
+        resolver.start(listener);
+        resolver.shutdown();
+        return listener.addresses;
+    }
+
+    private static final class CapturingListener extends NameResolver.Listener2 {
+        private List<EquivalentAddressGroup> addresses;
+
+        @Override
+        public void onResult(NameResolver.ResolutionResult resolutionResult) {
+            addresses = resolutionResult.getAddresses();
+        }
+
+        @Override
+        public void onError(Status error) {
+            throw new AssertionError(error.toString());
+        }
+    }
+}
@@ -4,7 +4,7 @@ import { CreateReservationRequest } from '../generated/reservation';
 
 // Create a transport for gRPC-Web
 const transport = new GrpcWebFetchTransport({
-    baseUrl: 'http://localhost:8080' // Envoy Proxy
+    baseUrl: 'http://localhost:8080' // gRPC-Web gateway of the gRPC server
 });
 
 const client = new ReservationServiceClient(transport);
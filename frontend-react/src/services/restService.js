@@ -3,9 +3,16 @@ import axios from 'axios';
 const API_URL = '/api/reservations';
 
 export const restService = {
+    // The list endpoint is keyset-paginated: follow X-Next-Cursor until the last page
     getAll: async () => {
-        const response = await axios.get(API_URL);
-        return response.data;
+        const reservations = [];
+        let afterId = 0;
+        while (afterId !== undefined) {
+            const response = await axios.get(API_URL, { params: { afterId, size: 1000 } });
+            reservations.push(...response.data);
+            afterId = response.headers['x-next-cursor'];
+        }
+        return reservations;
     },
     create: async (reservation) => {
         const response = await axios.post(API_URL, reservation);
@@ -0,0 +1,33 @@
+import grpc from 'k6/net/grpc';
+import { check, sleep } from 'k6';
+
+// Same load shape as k6_script.js, aimed at the gRPC server directly.
+// Run once per executor mode and compare throughput, p99 and the
+// hotel_jvm_threads gauge, e.g.:
+//   java -Dhotel.grpc.executor.mode=HYBRID ... com.example.hotel.grpc.GrpcServer
+//   k6 run -e RESERVATION_ID=1 tests/k6_grpc_script.js
+export const options = {
+    stages: [
+        { duration: '30s', target: 10 }, // Ramp to 10 users
+        { duration: '1m', target: 100 }, // Ramp to 100 users
+        { duration: '30s', target: 0 },  // Scale down
+    ],
+    summaryTrendStats: ['avg', 'p(50)', 'p(95)', 'p(99)', 'max'],
+};
+
+const GRPC_ADDR = __ENV.GRPC_ADDR || 'localhost:9095';
+const RESERVATION_ID = __ENV.RESERVATION_ID || '1';
+
+const client = new grpc.Client();
+client.load(['../backend-java-grpc/src/main/proto'], 'reservation.proto');
+
+export default function () {
+    if (__ITER == 0) {
+        client.connect(GRPC_ADDR, { plaintext: true });
+    }
+
+    const res = client.invoke('hotel.ReservationService/GetReservation', { id: RESERVATION_ID });
+    check(res, { 'gRPC status was OK': (r) => r && r.status === grpc.StatusOK });
+
+    sleep(1);
+}